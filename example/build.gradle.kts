@@ -14,6 +14,7 @@ java {
 
 dependencies {
     implementation(project(":state-machine"))
+    annotationProcessor(project(":model-compiler"))
 
     testImplementation(platform(libs.junit.bom))
     testImplementation(libs.junit.jupiter)
@@ -24,4 +25,19 @@ dependencies {
 tasks.test {
     useJUnitPlatform()
     jvmArgs("-javaagent:${configurations.testRuntimeClasspath.get().single { it.name.contains("byte-buddy-agent") }.absolutePath}")
-}
\ No newline at end of file
+}
+
+// Runs the startup benchmark in a fresh JVM per mode
+val startupBenchmark by tasks.registering {
+    description = "Compares building a model at runtime with the model compiled at build time."
+    group = "verification"
+}
+
+listOf("runtime", "compiled").forEach { mode ->
+    val run = tasks.register<JavaExec>("startupBenchmark${mode.replaceFirstChar { it.uppercase() }}") {
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("net.npg.example.StartupBenchmark")
+        args(mode)
+    }
+    startupBenchmark.configure { dependsOn(run) }
+}
@@ -0,0 +1,17 @@
+package net.npg.example;
+
+import net.npg.state.ModelDefinition;
+import net.npg.state.TransitionDefinition;
+
+/// The model of [SimpleStateModel], compiled at build time into `SimpleModel`.
+@ModelDefinition(id = "State Diagram", className = "SimpleModel",
+        states = {"new", "waiting", "searching", "following", "finished"},
+        transitions = {
+                @TransitionDefinition(id = "start", from = "new", to = "waiting"),
+                @TransitionDefinition(id = "search", from = "waiting", to = "searching"),
+                @TransitionDefinition(id = "found", from = "waiting", to = "finished"),
+                @TransitionDefinition(id = "follow", from = "searching", to = "following"),
+                @TransitionDefinition(id = "searchagain", from = "following", to = "waiting")
+        })
+interface SimpleModelDefinition {
+}
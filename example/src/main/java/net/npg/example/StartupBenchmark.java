@@ -0,0 +1,80 @@
+package net.npg.example;
+
+import net.npg.state.StateMachine;
+import net.npg.state.StateModel;
+
+import java.lang.management.ManagementFactory;
+
+/// Compares building the model of [SimpleStateModel] at runtime with the model compiled from
+/// [SimpleModelDefinition]. Each mode must run in a fresh JVM (`gradle :example:startupBenchmark`),
+/// the first model includes class loading and initialization.
+public class StartupBenchmark {
+    private static final int ITERATIONS = 100_000;
+
+    static void main(final String[] args) {
+        final var compiled = args.length > 0 && args[0].equals("compiled");
+        final var start = System.nanoTime();
+        final var model = create(compiled);
+        final var first = System.nanoTime() - start;
+        final var token = StateMachine.execute(model.createToken(model.state(0)));
+
+        var transitions = 0L;
+        final var warm = System.nanoTime();
+        for (var i = 0; i < ITERATIONS; i++) {
+            transitions += create(compiled).transitions().size();
+        }
+        final var perModel = (System.nanoTime() - warm) / ITERATIONS;
+
+        System.out.printf("%s: first model %d us (executed to %s, JVM uptime %d ms), %d ns per model afterwards (%d transitions)%n",
+                compiled ? "compiled" : "runtime", first / 1_000, token.state().id(),
+                ManagementFactory.getRuntimeMXBean().getUptime(), perModel, transitions);
+    }
+
+    private static StateModel<String> create(final boolean compiled) {
+        return compiled ? compiledModel() : runtimeModel();
+    }
+
+    private static StateModel<String> runtimeModel() {
+        final var model = new StateModel<>("State Diagram");
+        final var newState = model.addState("new");
+        final var waiting = model.addState("waiting");
+        final var searching = model.addState("searching");
+        final var following = model.addState("following");
+        final var finished = model.addState("finished");
+        model.addTransition(newState, waiting, () -> true, "start");
+        model.addTransition(waiting, searching, () -> false, "search");
+        model.addTransition(waiting, finished, () -> false, "found");
+        model.addTransition(searching, following, () -> false, "follow");
+        model.addTransition(following, waiting, () -> true, "searchagain");
+        return model;
+    }
+
+    private static StateModel<String> compiledModel() {
+        return SimpleModel.create(new SimpleModel.Guards() {
+            @Override
+            public boolean start(final Object context) {
+                return true;
+            }
+
+            @Override
+            public boolean search(final Object context) {
+                return false;
+            }
+
+            @Override
+            public boolean found(final Object context) {
+                return false;
+            }
+
+            @Override
+            public boolean follow(final Object context) {
+                return false;
+            }
+
+            @Override
+            public boolean searchagain(final Object context) {
+                return true;
+            }
+        });
+    }
+}
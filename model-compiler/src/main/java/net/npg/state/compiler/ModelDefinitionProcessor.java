@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state.compiler;
+
+import net.npg.state.ModelDefinition;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/// Compiles the [ModelDefinition]s of a compilation into Java classes.
+///
+/// Every definition is validated once at build time: state and transition ids must be unique,
+/// transitions must reference declared states, their ids must be valid Java identifiers and no two
+/// ids may map to the same constant.
+/// Errors are reported on the annotated type and fail the compilation. For a valid definition a
+/// class is generated which builds the model with
+/// [net.npg.state.StateModelBuilder#compiled], see [ModelDefinition] for its members.
+@SupportedAnnotationTypes("net.npg.state.ModelDefinition")
+public final class ModelDefinitionProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (final var element : roundEnv.getElementsAnnotatedWith(ModelDefinition.class)) {
+            final var definition = element.getAnnotation(ModelDefinition.class);
+            if (validate(element, definition)) {
+                generate((TypeElement) element, definition);
+            }
+        }
+        return true;
+    }
+
+    private boolean validate(final Element element, final ModelDefinition definition) {
+        var valid = true;
+        final var states = new HashSet<String>();
+        final var constants = new HashSet<String>();
+        for (final var state : definition.states()) {
+            if (!states.add(state)) {
+                valid = error(element, "State with id " + state + " already exists");
+            } else if (!constants.add(constant("STATE_", state))) {
+                valid = error(element, "State id " + state + " clashes with another state id");
+            }
+        }
+        final var transitions = new HashSet<String>();
+        for (final var transition : definition.transitions()) {
+            if (!transitions.add(transition.id())) {
+                valid = error(element, "Transition with id " + transition.id() + " already exists");
+            } else if (!constants.add(constant("TRANSITION_", transition.id()))) {
+                valid = error(element, "Transition id " + transition.id() + " clashes with another transition id");
+            }
+            if (!isIdentifier(transition.id())) {
+                valid = error(element, "Transition id " + transition.id() + " is not a valid Java identifier");
+            }
+            if (!states.contains(transition.from()) || !states.contains(transition.to())) {
+                valid = error(element, "Both states (" + transition.from() + " -> " + transition.to()
+                        + ") must be from the current model: " + definition.id());
+            }
+        }
+        if (!definition.className().isEmpty() && !isIdentifier(definition.className())) {
+            valid = error(element, "Class name " + definition.className() + " is not a valid Java identifier");
+        }
+        return valid;
+    }
+
+    /// @return `true` if the name is a simple Java identifier and no keyword
+    private static boolean isIdentifier(final String name) {
+        return SourceVersion.isIdentifier(name) && !SourceVersion.isKeyword(name);
+    }
+
+    private boolean error(final Element element, final String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+
+    private void generate(final TypeElement element, final ModelDefinition definition) {
+        final var packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        final var className = definition.className().isEmpty()
+                ? element.getSimpleName() + "Compiled"
+                : definition.className();
+        final var states = List.of(definition.states());
+        final var transitions = List.of(definition.transitions());
+        final Map<String, Integer> ordinals = new HashMap<>();
+        IntStream.range(0, states.size()).forEach(ordinal -> ordinals.put(states.get(ordinal), ordinal));
+
+        final var source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import java.util.List;\n")
+                .append("import java.util.Objects;\n")
+                .append("import java.util.function.Predicate;\n")
+                .append("import javax.annotation.processing.Generated;\n")
+                .append("import net.npg.state.StateModel;\n")
+                .append("import net.npg.state.StateModelBuilder;\n\n")
+                .append("/// The compiled model `").append(definition.id()).append("` of [")
+                .append(element.getSimpleName()).append("].\n")
+                .append("@Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(className).append(" {\n")
+                .append("    /// The id of the model\n")
+                .append("    public static final String ID = ").append(literal(definition.id())).append(";\n");
+        for (var ordinal = 0; ordinal < states.size(); ordinal++) {
+            source.append("    /// The ordinal of state `").append(states.get(ordinal)).append("`\n")
+                    .append("    public static final int ").append(constant("STATE_", states.get(ordinal)))
+                    .append(" = ").append(ordinal).append(";\n");
+        }
+        for (var ordinal = 0; ordinal < transitions.size(); ordinal++) {
+            source.append("    /// The ordinal of transition `").append(transitions.get(ordinal).id()).append("`\n")
+                    .append("    public static final int ").append(constant("TRANSITION_", transitions.get(ordinal).id()))
+                    .append(" = ").append(ordinal).append(";\n");
+        }
+        source.append("\n    private static final List<String> STATES = List.of(")
+                .append(states.stream().map(this::literal).collect(Collectors.joining(", "))).append(");\n")
+                .append("    private static final List<String> TRANSITIONS = List.of(")
+                .append(transitions.stream().map(t -> literal(t.id())).collect(Collectors.joining(", "))).append(");\n")
+                .append("    private static final int[] SOURCES = {")
+                .append(transitions.stream().map(t -> ordinals.get(t.from()).toString()).collect(Collectors.joining(", "))).append("};\n")
+                .append("    private static final int[] TARGETS = {")
+                .append(transitions.stream().map(t -> ordinals.get(t.to()).toString()).collect(Collectors.joining(", "))).append("};\n\n")
+                .append("    /// The guards of the transitions, the context is the one passed to the state machine.\n")
+                .append("    public interface Guards {\n");
+        for (final var transition : transitions) {
+            if (transition != transitions.getFirst()) {
+                source.append("\n");
+            }
+            source.append("        /// @param context the context, may be null\n")
+                    .append("        /// @return `true` if transition `").append(transition.id()).append("` is allowed\n")
+                    .append("        boolean ").append(transition.id()).append("(Object context);\n");
+        }
+        source.append("    }\n\n")
+                .append("    private ").append(className).append("() {\n    }\n\n")
+                .append("    /// Creates the model without validation, it was validated at build time.\n")
+                .append("    ///\n")
+                .append("    /// @param guards the guards of the transitions\n")
+                .append("    /// @return a new model\n")
+                .append("    public static StateModel<String> create(final Guards guards) {\n")
+                .append("        Objects.requireNonNull(guards, \"guards must not be null\");\n")
+                .append("        return StateModelBuilder.compiled(ID, STATES, TRANSITIONS, SOURCES, TARGETS,\n")
+                .append("                List.<Predicate<Object>>of(")
+                .append(transitions.stream().map(t -> "guards::" + t.id()).collect(Collectors.joining(", ")))
+                .append("));\n")
+                .append("    }\n")
+                .append("}\n");
+
+        final var name = packageName.isEmpty() ? className : packageName + "." + className;
+        try (final var writer = processingEnv.getFiler().createSourceFile(name, element).openWriter()) {
+            writer.write(source.toString());
+        } catch (final IOException e) {
+            error(element, "Cannot write " + name + ": " + e.getMessage());
+        }
+    }
+
+    private String literal(final String value) {
+        return processingEnv.getElementUtils().getConstantExpression(value);
+    }
+
+    /// @return the name of the constant of an id, non-identifier characters are replaced by `_`
+    private static String constant(final String prefix, final String id) {
+        final var name = new StringBuilder(prefix);
+        id.codePoints().forEach(c -> name.appendCodePoint(Character.isJavaIdentifierPart(c) ? c : '_'));
+        return name.toString().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state.compiler;
+
+import net.npg.state.StateMachine;
+import net.npg.state.StateModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModelDefinitionProcessorTest {
+
+    private static final String DEFINITION = """
+            package test;
+
+            import net.npg.state.ModelDefinition;
+            import net.npg.state.TransitionDefinition;
+
+            @ModelDefinition(id = "door", states = {"open", "closed", "locked"}, transitions = {
+                    @TransitionDefinition(id = "close", from = "open", to = "closed"),
+                    @TransitionDefinition(id = "lock", from = "closed", to = "locked"),
+                    @TransitionDefinition(id = "unlock", from = "locked", to = "closed")
+            })
+            interface Door {
+            }
+            """;
+
+    @TempDir
+    Path directory;
+
+    private DiagnosticCollector<JavaFileObject> compile(final String source) throws IOException, URISyntaxException {
+        final var file = directory.resolve("src/test/Door.java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, source);
+        final var compiler = ToolProvider.getSystemJavaCompiler();
+        final var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (final var files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final var options = List.of("-d", directory.resolve("classes").toString(),
+                    "-s", directory.resolve("generated").toString(),
+                    "-classpath", Path.of(StateModel.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString());
+            Files.createDirectories(directory.resolve("classes"));
+            Files.createDirectories(directory.resolve("generated"));
+            final var task = compiler.getTask(null, files, diagnostics, options, null, files.getJavaFileObjects(file));
+            task.setProcessors(List.of(new ModelDefinitionProcessor()));
+            task.call();
+        }
+        return diagnostics;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGeneratedModel_success() throws Exception {
+        final var diagnostics = compile(DEFINITION);
+        assertTrue(diagnostics.getDiagnostics().stream().noneMatch(d -> d.getKind() == Diagnostic.Kind.ERROR),
+                diagnostics.getDiagnostics().toString());
+
+        try (final var loader = new URLClassLoader(new URL[]{directory.resolve("classes").toUri().toURL()}, getClass().getClassLoader())) {
+            final var compiled = loader.loadClass("test.DoorCompiled");
+            final var guards = loader.loadClass("test.DoorCompiled$Guards");
+            final var instance = Proxy.newProxyInstance(loader, new Class<?>[]{guards},
+                    (proxy, method, args) -> !method.getName().equals("unlock"));
+            final var model = (StateModel<String>) compiled.getMethod("create", guards).invoke(null, instance);
+
+            assertEquals("door", model.id());
+            assertEquals(2, compiled.getField("STATE_LOCKED").getInt(null));
+            assertEquals(1, compiled.getField("TRANSITION_LOCK").getInt(null));
+            assertEquals(List.of("open", "closed", "locked"), model.states().stream().map(s -> s.id()).toList());
+            assertEquals(model.state(1), model.transition(0).target());
+            assertEquals(List.of(model.transition(1)), List.copyOf(model.state(1).outgoingTransitions()));
+            assertEquals(List.of(model.transition(0), model.transition(2)), List.copyOf(model.state(1).incomingTransitions()));
+            assertEquals("locked", StateMachine.execute(model.createToken(model.state(0))).state().id());
+        }
+    }
+
+    @Test
+    void testInvalidDefinition_failure() throws IOException, URISyntaxException {
+        final var diagnostics = compile(DEFINITION
+                .replace("to = \"locked\"", "to = \"sealed\"")
+                .replace("id = \"unlock\"", "id = \"close\""));
+        final var messages = diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .toList();
+
+        assertTrue(messages.contains("Both states (closed -> sealed) must be from the current model: door"), messages.toString());
+        assertTrue(messages.contains("Transition with id close already exists"), messages.toString());
+        assertFalse(Files.exists(directory.resolve("generated/test/DoorCompiled.java")));
+    }
+
+    @Test
+    void testInvalidTransitionIds_failure() throws IOException, URISyntaxException {
+        final var diagnostics = compile(DEFINITION
+                .replace("id = \"close\"", "id = \"a.b\"")
+                .replace("id = \"lock\"", "id = \"unLock\""));
+        final var messages = diagnostics.getDiagnostics().stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .toList();
+
+        assertTrue(messages.contains("Transition id a.b is not a valid Java identifier"), messages.toString());
+        assertTrue(messages.contains("Transition id unlock clashes with another transition id"), messages.toString());
+        assertFalse(Files.exists(directory.resolve("generated/test/DoorCompiled.java")));
+    }
+}
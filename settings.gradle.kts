@@ -1,4 +1,6 @@
 rootProject.name = "StateMachine"
 
 include("state-machine")
-include("example")
\ No newline at end of file
+include("example")
+include("simulation")
+include("model-compiler")
\ No newline at end of file
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.LatencyHistogram;
+import net.npg.state.State;
+import net.npg.state.StateModel;
+import net.npg.state.Transition;
+
+import java.util.SplittableRandom;
+
+/// The context passed to the guards of a simulated model, deciding which transition is taken.
+///
+/// One decision is drawn per state visit and cached until a transition is taken, so the guards
+/// of the outgoing transitions of a state never enable more than one transition.
+final class Draw {
+    static final int NONE = -1;
+
+    private final StateModel<?> model;
+    private final double[] probabilities;
+    private final LatencyHistogram[] latencies;
+    private final SplittableRandom random;
+    private int decidedState = NONE;
+    private int decision = NONE;
+    private int forced = NONE;
+    private int hops;
+    private int maxHops;
+    private long steps;
+    private long mark;
+
+    Draw(final StateModel<?> model, final double[] probabilities, final LatencyHistogram[] latencies, final long seed) {
+        this.model = model;
+        this.probabilities = probabilities;
+        this.latencies = latencies;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /// Prepares the execution of one token.
+    void begin(final int maxHops) {
+        this.maxHops = maxHops;
+        this.forced = NONE;
+        hops = 0;
+        decidedState = NONE;
+        mark = System.nanoTime();
+    }
+
+    /// Prepares the execution of one token which must take exactly the given transition.
+    void force(final int transitionOrdinal) {
+        begin(1);
+        forced = transitionOrdinal;
+    }
+
+    /// Called by the guards of the simulated model.
+    boolean allows(final int stateOrdinal, final int transitionOrdinal) {
+        if (decidedState != stateOrdinal) {
+            decision = decide(model.state(stateOrdinal));
+            decidedState = stateOrdinal;
+        }
+        return decision == transitionOrdinal;
+    }
+
+    /// Called after the simulated model took a transition.
+    void taken(final Transition<?> transition) {
+        final var now = System.nanoTime();
+        latencies[transition.ordinal()].record(now - mark);
+        mark = now;
+        hops++;
+        steps++;
+        decidedState = NONE;
+    }
+
+    long steps() {
+        return steps;
+    }
+
+    private int decide(final State<?> state) {
+        if (hops >= maxHops) {
+            return NONE;
+        }
+        if (forced != NONE) {
+            return forced;
+        }
+        final var value = random.nextDouble();
+        var cumulative = 0.0;
+        for (final var transition : state.outgoingTransitions()) {
+            cumulative += probabilities[transition.ordinal()];
+            if (value < cumulative) {
+                return transition.ordinal();
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.Transition;
+
+import java.util.Map;
+import java.util.Objects;
+
+/// The stochastic outcome of the guards during a [Simulation].
+///
+/// Whenever a token visits a state the simulation draws one random number and takes at most one
+/// outgoing transition, each with the probability returned by this schedule. The probabilities of
+/// the outgoing transitions of a state must not add up to more than 1.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+@FunctionalInterface
+public interface GuardSchedule<I> {
+
+    /// @param transition a transition of the simulated model
+    /// @return the probability between 0 and 1 that the transition is taken when its source state is visited
+    double probability(Transition<I> transition);
+
+    /// A schedule with the same probability for every transition.
+    ///
+    /// @param probability the probability of every transition
+    /// @param <I>         The type of the state identifier
+    /// @return the schedule
+    static <I> GuardSchedule<I> uniform(final double probability) {
+        return transition -> probability;
+    }
+
+    /// A schedule with a probability per transition id.
+    ///
+    /// @param probabilities      the probabilities by transition id
+    /// @param defaultProbability the probability of all other transitions
+    /// @param <I>                The type of the state identifier
+    /// @return the schedule
+    static <I> GuardSchedule<I> of(final Map<I, Double> probabilities, final double defaultProbability) {
+        Objects.requireNonNull(probabilities, "probabilities must not be null");
+        final var copy = Map.copyOf(probabilities);
+        return transition -> copy.getOrDefault(transition.id(), defaultProbability);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.LatencyHistogram;
+import net.npg.state.State;
+import net.npg.state.StateMachine;
+import net.npg.state.StateModel;
+import net.npg.state.Token;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/// A deterministic load test harness for the topology of a [StateModel].
+///
+/// The simulation copies the states and transitions of a model and replaces every guard by a
+/// random draw according to a [GuardSchedule]. It then drives [StateMachine#execute(Token, Object)]
+/// for a population of tokens as fast as possible. Two runs with the same seed take exactly the
+/// same transitions. Listeners of the original model are not copied, parallel states are
+/// simulated as plain states.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see SimulationReport
+public final class Simulation<I> {
+    /// Default limit of transitions a token may take in one round, ends cycles of certain transitions
+    public static final int DEFAULT_MAX_HOPS = 64;
+
+    private final StateModel<I> model;
+    private final double[] probabilities;
+    private final Map<I, Integer> transitionOrdinals = new LinkedHashMap<>();
+    private int maxHops = DEFAULT_MAX_HOPS;
+
+    /// Creates a simulation of a model.
+    ///
+    /// @param source   the model to simulate
+    /// @param schedule the probabilities of the guards
+    /// @throws IllegalArgumentException if a probability is out of range or the probabilities of a state add up to more than 1
+    public Simulation(final StateModel<I> source, final GuardSchedule<I> schedule) {
+        Objects.requireNonNull(source, "source must not be null");
+        Objects.requireNonNull(schedule, "schedule must not be null");
+        model = new StateModel<>(source.id());
+        for (final var state : source.states()) {
+            model.addState(state.id());
+        }
+        probabilities = new double[source.transitions().size()];
+        for (final var transition : source.transitions()) {
+            final var probability = schedule.probability(transition);
+            if (probability < 0 || probability > 1) {
+                throw new IllegalArgumentException("Invalid probability " + probability + " of " + transition);
+            }
+            probabilities[transition.ordinal()] = probability;
+            final var stateOrdinal = transition.source().ordinal();
+            final var transitionOrdinal = transition.ordinal();
+            model.addTransition(model.state(stateOrdinal), model.state(transition.target().ordinal()),
+                    (Draw draw) -> draw.allows(stateOrdinal, transitionOrdinal), transition.id());
+            transitionOrdinals.put(transition.id(), transitionOrdinal);
+        }
+        for (final var state : source.states()) {
+            final var sum = state.outgoingTransitions().stream().mapToDouble(t -> probabilities[t.ordinal()]).sum();
+            if (sum > 1 + 1e-9) {
+                throw new IllegalArgumentException("Probabilities of state " + state + " add up to " + sum);
+            }
+        }
+        model.addTransitionListener((transition, context) -> ((Draw) context).taken(transition));
+    }
+
+    /// Limits the transitions a token may take in one round.
+    ///
+    /// @param maxHops the limit, at least 1
+    public void setMaxHops(final int maxHops) {
+        if (maxHops < 1) {
+            throw new IllegalArgumentException("maxHops must be positive: " + maxHops);
+        }
+        this.maxHops = maxHops;
+    }
+
+    /// Runs the simulation.
+    ///
+    /// Every round executes all tokens once, the occupancy of the states is recorded after
+    /// every round.
+    ///
+    /// @param start  the start state of all tokens, a state of the source model
+    /// @param tokens the size of the token population
+    /// @param rounds the number of rounds
+    /// @param seed   the seed of the random draws
+    /// @return the report
+    public SimulationReport<I> run(final State<I> start, final int tokens, final int rounds, final long seed) {
+        final var population = createPopulation(start, tokens);
+        final var latencies = createLatencies();
+        final var draw = new Draw(model, probabilities, latencies, seed);
+        final var occupancy = new ArrayList<Map<I, Integer>>(rounds);
+        var elapsed = 0L;
+        for (var round = 0; round < rounds; round++) {
+            final var begin = System.nanoTime();
+            for (var i = 0; i < population.size(); i++) {
+                draw.begin(maxHops);
+                population.set(i, StateMachine.execute(population.get(i), draw));
+            }
+            elapsed += System.nanoTime() - begin;
+            occupancy.add(occupancy(population));
+        }
+        return report(draw, elapsed, latencies, occupancy);
+    }
+
+    /// Replays a recorded trace: every entry moves the token of its entity along the recorded transition.
+    ///
+    /// @param start  the start state of all tokens, a state of the source model
+    /// @param tokens the size of the token population, all entities of the trace must be smaller
+    /// @param trace  the recorded transitions
+    /// @return the report, the occupancy is recorded once at the end
+    /// @throws IllegalStateException if the trace does not match the model
+    public SimulationReport<I> replay(final State<I> start, final int tokens, final List<TraceEntry<I>> trace) {
+        final var population = createPopulation(start, tokens);
+        final var latencies = createLatencies();
+        final var draw = new Draw(model, probabilities, latencies, 0);
+        final var begin = System.nanoTime();
+        for (final var entry : trace) {
+            final var ordinal = transitionOrdinals.get(entry.transitionId());
+            if (ordinal == null || entry.entity() >= tokens) {
+                throw new IllegalStateException("Trace entry " + entry + " does not match the simulation");
+            }
+            final var index = (int) entry.entity();
+            final var token = population.get(index);
+            if (token.state() != model.transition(ordinal).source()) {
+                throw new IllegalStateException("Trace entry " + entry + " does not start in state " + token.state());
+            }
+            draw.force(ordinal);
+            population.set(index, StateMachine.execute(token, draw));
+        }
+        final var elapsed = System.nanoTime() - begin;
+        return report(draw, elapsed, latencies, List.of(occupancy(population)));
+    }
+
+    private List<Token<I>> createPopulation(final State<I> start, final int tokens) {
+        Objects.requireNonNull(start, "start must not be null");
+        if (tokens <= 0) {
+            throw new IllegalArgumentException("tokens must be positive: " + tokens);
+        }
+        final var token = model.createToken(model.state(start.ordinal()));
+        return new ArrayList<>(Collections.nCopies(tokens, token));
+    }
+
+    private LatencyHistogram[] createLatencies() {
+        final var latencies = new LatencyHistogram[probabilities.length];
+        for (var i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        return latencies;
+    }
+
+    private Map<I, Integer> occupancy(final List<Token<I>> population) {
+        final var counts = new int[model.states().size()];
+        for (final var token : population) {
+            counts[token.state().ordinal()]++;
+        }
+        final var result = new LinkedHashMap<I, Integer>();
+        for (final var state : model.states()) {
+            result.put(state.id(), counts[state.ordinal()]);
+        }
+        return result;
+    }
+
+    private SimulationReport<I> report(final Draw draw, final long elapsed, final LatencyHistogram[] latencies, final List<Map<I, Integer>> occupancy) {
+        final var byId = new LinkedHashMap<I, LatencyHistogram>();
+        transitionOrdinals.forEach((id, ordinal) -> byId.put(id, latencies[ordinal]));
+        return new SimulationReport<>(draw.steps(), elapsed, byId, List.copyOf(occupancy));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.StateModel;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/// Simulates the model of the example with 100 000 tokens and prints the report.
+public class SimulationMain {
+    private static final Logger LOGGER = Logger.getLogger(SimulationMain.class.getName());
+
+    static void main(final String[] args) {
+        final var model = new StateModel<>("State Diagram");
+
+        final var newState = model.addState("new");
+        final var waiting = model.addState("waiting");
+        final var searching = model.addState("searching");
+        final var following = model.addState("following");
+        model.addState("finished");
+
+        final var found = new AtomicBoolean(false);
+        final var caught = new AtomicBoolean(false);
+        final var startSearch = new AtomicBoolean(false);
+
+        model.addTransition(newState, waiting, () -> true, "start");
+        model.addTransition(waiting, searching, startSearch::get, "search");
+        model.addTransition(waiting, model.state(4), found::get, "found");
+        model.addTransition(searching, following, caught::get, "follow");
+        model.addTransition(following, waiting, () -> true, "searchagain");
+
+        final var schedule = GuardSchedule.of(Map.of(
+                "start", 1.0,
+                "search", 0.3,
+                "found", 0.05,
+                "follow", 0.2,
+                "searchagain", 0.5), 0.0);
+        final var seed = args.length > 0 ? Long.parseLong(args[0]) : 42L;
+        final var report = new Simulation<>(model, schedule).run(newState, 100_000, 100, seed);
+
+        LOGGER.info("\n" + report.format());
+    }
+}
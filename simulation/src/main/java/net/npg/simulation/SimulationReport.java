@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.LatencyHistogram;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/// The result of a [Simulation] run.
+///
+/// @param <I>                 The type of the state identifier (e.g., String, Integer)
+/// @param steps               the number of transitions taken
+/// @param elapsedNanos        the wall clock time of the run
+/// @param transitionLatencies the time from entering a state until leaving it by a transition, per transition id
+/// @param occupancy           the number of tokens per state id after every round
+public record SimulationReport<I>(
+        long steps,
+        long elapsedNanos,
+        Map<I, LatencyHistogram> transitionLatencies,
+        List<Map<I, Integer>> occupancy
+) {
+    /// Ensure that all fields are set
+    public SimulationReport {
+        Objects.requireNonNull(transitionLatencies, "transitionLatencies must not be null");
+        Objects.requireNonNull(occupancy, "occupancy must not be null");
+    }
+
+    /// @return the transitions taken per second of wall clock time
+    public double stepsPerSecond() {
+        return elapsedNanos == 0 ? 0 : steps * 1e9 / elapsedNanos;
+    }
+
+    /// @return a human readable summary
+    public String format() {
+        final var text = new StringBuilder();
+        text.append(String.format("steps: %d, elapsed: %.3f ms, steps/sec: %.0f%n", steps, elapsedNanos / 1e6, stepsPerSecond()));
+        text.append(String.format("%-20s %10s %10s %10s %10s %10s%n", "transition", "count", "p50 ns", "p90 ns", "p99 ns", "max ns"));
+        transitionLatencies.forEach((id, histogram) -> text.append(String.format("%-20s %10d %10d %10d %10d %10d%n",
+                id, histogram.count(), histogram.percentile(50), histogram.percentile(90), histogram.percentile(99), histogram.max())));
+        if (!occupancy.isEmpty()) {
+            text.append("final occupancy: ").append(occupancy.getLast()).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import java.util.Objects;
+
+/// One recorded transition of a real execution, see [TraceRecorder] and [Simulation#replay(net.npg.state.State, int, java.util.List)].
+///
+/// @param <I>          The type of the state identifier (e.g., String, Integer)
+/// @param entity       the number of the entity whose token took the transition
+/// @param transitionId the id of the transition
+public record TraceEntry<I>(long entity, I transitionId) {
+
+    /// Ensure that all fields are set
+    public TraceEntry {
+        if (entity < 0) {
+            throw new IllegalArgumentException("entity must not be negative: " + entity);
+        }
+        Objects.requireNonNull(transitionId, "transitionId must not be null");
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.Transition;
+import net.npg.state.TransitionListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/// Records the transitions of a real model as a trace which can be replayed by a [Simulation].
+///
+/// Register the recorder with `StateModel.addTransitionListener`. The entity of a transition is
+/// derived from the context passed to the state machine.
+///
+/// Traces are stored as text files with one `entity,transitionId` line per transition.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class TraceRecorder<I> implements TransitionListener<I> {
+    private final ToLongFunction<Object> entityOfContext;
+    private final List<TraceEntry<I>> entries = new ArrayList<>();
+
+    /// @param entityOfContext maps the context of an execution to the entity number
+    public TraceRecorder(final ToLongFunction<Object> entityOfContext) {
+        this.entityOfContext = Objects.requireNonNull(entityOfContext, "entityOfContext must not be null");
+    }
+
+    @Override
+    public void onTransition(final Transition<I> transition, final Object context) {
+        final var entry = new TraceEntry<>(entityOfContext.applyAsLong(context), transition.id());
+        synchronized (entries) {
+            entries.add(entry);
+        }
+    }
+
+    /// @return a copy of the recorded trace
+    public List<TraceEntry<I>> entries() {
+        synchronized (entries) {
+            return List.copyOf(entries);
+        }
+    }
+
+    /// Writes a trace to a file.
+    ///
+    /// @param file  the trace file
+    /// @param trace the trace
+    /// @throws IOException if the file cannot be written
+    public static void write(final Path file, final List<? extends TraceEntry<?>> trace) throws IOException {
+        Files.write(file, trace.stream().map(entry -> entry.entity() + "," + entry.transitionId()).toList());
+    }
+
+    /// Reads a trace written by [#write(Path, List)].
+    ///
+    /// @param file    the trace file
+    /// @param idParser converts the text of a transition id back to the id
+    /// @param <I>     The type of the state identifier
+    /// @return the trace
+    /// @throws IOException if the file cannot be read
+    public static <I> List<TraceEntry<I>> read(final Path file, final Function<String, I> idParser) throws IOException {
+        try (final var lines = Files.lines(file)) {
+            return lines.filter(line -> !line.isBlank())
+                    .map(line -> {
+                        final var separator = line.indexOf(',');
+                        if (separator < 0) {
+                            throw new IllegalArgumentException("Invalid trace line: " + line);
+                        }
+                        return new TraceEntry<>(Long.parseLong(line.substring(0, separator)), idParser.apply(line.substring(separator + 1)));
+                    })
+                    .toList();
+        }
+    }
+}
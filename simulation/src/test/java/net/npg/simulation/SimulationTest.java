@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.simulation;
+
+import net.npg.state.StateModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    private static StateModel<String> createModel() {
+        final var model = new StateModel<String>("sim");
+        final var a = model.addState("A");
+        final var b = model.addState("B");
+        final var c = model.addState("C");
+        model.addTransition(a, b, () -> false, "ab");
+        model.addTransition(b, a, () -> false, "ba");
+        model.addTransition(b, c, () -> false, "bc");
+        return model;
+    }
+
+    @Test
+    void testSameSeedIsDeterministic() {
+        final var model = createModel();
+        final var schedule = GuardSchedule.<String>of(Map.of("ab", 0.5, "ba", 0.3, "bc", 0.1), 0);
+        final var first = new Simulation<>(model, schedule).run(model.state(0), 1000, 20, 7);
+        final var second = new Simulation<>(model, schedule).run(model.state(0), 1000, 20, 7);
+
+        assertTrue(first.steps() > 0);
+        assertEquals(first.steps(), second.steps());
+        assertEquals(first.occupancy(), second.occupancy());
+        assertEquals(first.steps(), first.transitionLatencies().values().stream().mapToLong(h -> h.count()).sum());
+        assertEquals(1000, first.occupancy().getLast().values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void testMaxHopsEndsCycles() {
+        final var model = createModel();
+        final var simulation = new Simulation<>(model, GuardSchedule.<String>of(Map.of("ab", 1.0, "ba", 1.0), 0));
+        simulation.setMaxHops(3);
+        final var report = simulation.run(model.state(0), 10, 1, 1);
+
+        assertEquals(30, report.steps());
+        assertEquals(Map.of("A", 0, "B", 10, "C", 0), report.occupancy().getFirst());
+    }
+
+    @Test
+    void testInvalidProbabilities() {
+        final var model = createModel();
+        assertThrows(IllegalArgumentException.class, () -> new Simulation<>(model, GuardSchedule.uniform(1.5)));
+        assertThrows(IllegalArgumentException.class, () -> new Simulation<>(model, GuardSchedule.uniform(0.6)));
+    }
+
+    @Test
+    void testReplayRecordedTrace() throws IOException {
+        final var model = createModel();
+        final var recorder = new TraceRecorder<String>(context -> (Long) context);
+        recorder.onTransition(model.transition(0), 1L);
+        recorder.onTransition(model.transition(2), 1L);
+        recorder.onTransition(model.transition(0), 0L);
+
+        final var file = Files.createTempFile("trace", ".csv");
+        try {
+            TraceRecorder.write(file, recorder.entries());
+            final var trace = TraceRecorder.read(file, id -> id);
+            assertEquals(recorder.entries(), trace);
+
+            final var report = new Simulation<>(model, GuardSchedule.<String>uniform(0)).replay(model.state(0), 2, trace);
+            assertEquals(3, report.steps());
+            assertEquals(Map.of("A", 0, "B", 1, "C", 1), report.occupancy().getFirst());
+
+            final var invalid = List.of(new TraceEntry<>(0, "bc"));
+            assertThrows(IllegalStateException.class,
+                    () -> new Simulation<>(model, GuardSchedule.<String>uniform(0)).replay(model.state(0), 1, invalid));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -16,6 +16,30 @@ java {
     withJavadocJar()
 }
 
+// The batch guard evaluation uses the Vector API if the incubator module is present at runtime.
+// Only the kernel in src/vector needs the module, it is loaded reflectively and compiled on its own
+// so the rest of the code never sees the incubator. Its only warning is the incubating module one.
+val vector by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>("compileVectorJava") {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+    options.isWarnings = false
+}
+
+sourceSets.test {
+    runtimeClasspath += vector.output
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+tasks.named<Jar>("sourcesJar") {
+    from(vector.allSource)
+}
+
 dependencies {
     testImplementation(platform(libs.junit.bom))
     testImplementation(libs.junit.jupiter)
@@ -26,9 +50,26 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+    jvmArgs("-javaagent:${configurations.testRuntimeClasspath.get().single { it.name.contains("byte-buddy-agent") }.absolutePath}")
+}
+
+// Runs the whole test suite a second time with the generated dispatcher as default backend
+val testGenerated by tasks.registering(Test::class) {
+    description = "Runs the tests with the generated dispatcher backend."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform()
+    systemProperty("net.npg.state.backend", "GENERATED")
+    jvmArgs("--add-modules", "jdk.incubator.vector")
     jvmArgs("-javaagent:${configurations.testRuntimeClasspath.get().single { it.name.contains("byte-buddy-agent") }.absolutePath}")
 }
 
+tasks.check {
+    dependsOn(testGenerated)
+}
+
 // Javadoc options
 
 tasks.withType<Javadoc>().configureEach {
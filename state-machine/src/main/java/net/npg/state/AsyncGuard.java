@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.concurrent.CompletableFuture;
+
+/// A guard which resolves asynchronously, e.g. by calling a remote service.
+///
+/// Transitions with such a guard are added with
+/// [StateModel#addAsyncTransition(State, State, AsyncGuard, Object)]. [AsyncGuardEvaluator]
+/// resolves all guards of a state concurrently and cancels the returned futures which are no
+/// longer needed; the synchronous [StateMachine] waits for each guard in turn.
+///
+/// @param <C> The type of the context
+@FunctionalInterface
+public interface AsyncGuard<C> {
+
+    /// Starts the evaluation of the guard.
+    ///
+    /// @param context the context passed to the state machine, may be null
+    /// @return a future completing with `true` if the transition is allowed
+    CompletableFuture<Boolean> test(C context);
+}
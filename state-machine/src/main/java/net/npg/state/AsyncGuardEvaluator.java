@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Evaluates the guards of all outgoing transitions of a state concurrently.
+///
+/// [StateMachine] evaluates the guards one after the other, so a state with many slow guards pays
+/// their latencies in series. This evaluator starts every [AsyncGuard] at once and runs the other
+/// guards on virtual threads. The step is decided as soon as a second guard is enabled (multiple
+/// transitions enabled), a guard fails or all guards resolved; the guards which are still running
+/// are cancelled then. Guards which do not resolve within the timeout fail the step.
+///
+/// The semantics are the ones of [StateMachine#execute(Token, Object)], only the guards run in
+/// parallel, they must not share unsynchronized state.
+public final class AsyncGuardEvaluator implements AutoCloseable {
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /// @param timeout the maximum time to resolve the guards of one state
+    /// @throws IllegalArgumentException if the timeout is not positive
+    public AsyncGuardEvaluator(final Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout must not be null");
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        this.timeout = timeout;
+    }
+
+    /// Executes the state machine from the given token, see [StateMachine#execute(Token, Object)].
+    ///
+    /// @param token   the starting point for execution
+    /// @param context the context passed to every guard, may be null
+    /// @return the final token after all enabled transitions have been processed, or the token
+    ///         before a transition into a full state
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state, a
+    ///                               guard failed or the guards did not resolve in time
+    public <I> Token<I> execute(final Token<I> token, final Object context) {
+        Objects.requireNonNull(token, "token must not be null");
+        var step = tryStep(token, context);
+        while (step.outcome() == StepResult.Outcome.MOVED) {
+            step = tryStep(step.token(), context);
+        }
+        return step.token();
+    }
+
+    /// Takes at most one transition, see [StateMachine#step(Token, Object)].
+    ///
+    /// @param token   the current token
+    /// @param context the context passed to every guard, may be null
+    /// @return the token after the transition, or the given token itself if no transition is
+    ///         enabled, the token is at a parallel state or the target state is full
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state, a
+    ///                               guard failed or the guards did not resolve in time
+    public <I> Token<I> step(final Token<I> token, final Object context) {
+        return tryStep(token, context).token();
+    }
+
+    /// Takes at most one transition and reports what happened, see [StateMachine#tryStep(Token, Object)].
+    ///
+    /// @param token   the current token
+    /// @param context the context passed to every guard, may be null
+    /// @return the moved token, the given token if it is done, or the given token and the enabled
+    ///         transition if its target state is full
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state, a
+    ///                               guard failed or the guards did not resolve in time
+    public <I> StepResult<I> tryStep(final Token<I> token, final Object context) {
+        Objects.requireNonNull(token, "token must not be null");
+        final var model = token.model();
+        if (model.isParallel(token.state())) {
+            return new StepResult<>(token, null, StepResult.Outcome.DONE);
+        }
+        final var transition = next(model, token.state(), context);
+        if (transition == null) {
+            return new StepResult<>(token, null, StepResult.Outcome.DONE);
+        }
+        return StateMachine.enterStep(token, transition, context);
+    }
+
+    /// Resolves the guards of the outgoing transitions of a state.
+    ///
+    /// @param model   the model of the state
+    /// @param state   the state
+    /// @param context the context passed to every guard, may be null
+    /// @return the only enabled transition or `null` if no transition is enabled
+    /// @throws IllegalStateException if multiple transitions are enabled, a guard failed or the
+    ///                               guards did not resolve in time
+    public <I> Transition<I> next(final StateModel<I> model, final State<I> state, final Object context) {
+        Objects.requireNonNull(model, "model must not be null");
+        Objects.requireNonNull(state, "state must not be null");
+        final var transitions = List.copyOf(state.outgoingTransitions());
+        if (transitions.isEmpty()) {
+            return null;
+        }
+        final var ordinal = transitions.size() == 1 && transitions.getFirst().asyncGuard().isEmpty()
+                ? (transitions.getFirst().canTraverse(context) ? 0 : Dispatcher.NONE)
+                : resolve(transitions, context, state);
+        if (ordinal == Dispatcher.NONE) {
+            return null;
+        }
+        if (ordinal == Dispatcher.MULTIPLE) {
+            new FlightRecorderEvents.TransitionConflict().commit(model.id(), state);
+            throw new IllegalStateException("Multiple transitions enabled from state: " + state);
+        }
+        return transitions.get(ordinal);
+    }
+
+    /// Starts all guards and waits until the step is decided.
+    ///
+    /// @return the index of the enabled transition in the list, [Dispatcher#NONE] or [Dispatcher#MULTIPLE]
+    private <I> int resolve(final List<Transition<I>> transitions, final Object context, final State<I> state) {
+        final var decision = new CompletableFuture<Integer>();
+        final var enabled = new AtomicInteger(Dispatcher.NONE);
+        final var remaining = new AtomicInteger(transitions.size());
+        final var pending = new ArrayList<Future<?>>(transitions.size());
+        try {
+            for (var i = 0; i < transitions.size() && !decision.isDone(); i++) {
+                final var index = i;
+                final var guard = start(transitions.get(i), context, pending);
+                guard.whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        decision.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure);
+                        return;
+                    }
+                    if (Boolean.TRUE.equals(result) && !enabled.compareAndSet(Dispatcher.NONE, index)) {
+                        decision.complete(Dispatcher.MULTIPLE);
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        decision.complete(enabled.get());
+                    }
+                });
+            }
+            return decision.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            throw new IllegalStateException("Guards of state " + state + " not resolved within " + timeout, e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Guard of state " + state + " failed", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while resolving the guards of state " + state, e);
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private CompletableFuture<Boolean> start(final Transition<?> transition, final Object context, final List<Future<?>> pending) {
+        final var asyncGuard = transition.asyncGuard();
+        if (asyncGuard.isPresent()) {
+            final CompletableFuture<Boolean> future;
+            try {
+                future = Objects.requireNonNull(asyncGuard.get().test(context), "async guard returned null");
+            } catch (final RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            pending.add(future);
+            return future;
+        }
+        final var future = new CompletableFuture<Boolean>();
+        pending.add(future);
+        pending.add(executor.submit(() -> {
+            try {
+                future.complete(transition.canTraverse(context));
+            } catch (final RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    /// Cancels the running guards and stops the virtual threads.
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
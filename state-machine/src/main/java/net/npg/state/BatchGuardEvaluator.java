@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/// Evaluates the [GuardExpression]s of a state for a whole population at once.
+///
+/// The fields of the entities are passed as columns: `columns[i][row]` is field `i` of the entity
+/// in `row`. If the module `jdk.incubator.vector` is present (`--add-modules jdk.incubator.vector`)
+/// the comparisons run on SIMD registers, otherwise on plain scalar loops. Guards which are no
+/// expressions are evaluated per row with a [NumericFields] context.
+public final class BatchGuardEvaluator {
+    /// Result of a row without enabled transition
+    public static final int NONE = Dispatcher.NONE;
+    /// Result of a row with more than one enabled transition
+    public static final int MULTIPLE = Dispatcher.MULTIPLE;
+
+    /// Number of tokens whose guards are evaluated in one batch by [#advance(TokenPopulation, State, double[][])]
+    public static final int CHUNK = 4096;
+
+    private static final Logger LOGGER = Logger.getLogger(BatchGuardEvaluator.class.getName());
+    private static final GuardKernel KERNEL = loadKernel();
+
+    private BatchGuardEvaluator() {
+    }
+
+    /// @return `true` if the Vector API is used
+    public static boolean isVectorized() {
+        return KERNEL != GuardKernel.SCALAR;
+    }
+
+    /// Evaluates an expression for the rows `0` to `count - 1`.
+    ///
+    /// @param expression the expression
+    /// @param columns    the columns of the fields
+    /// @param count      the number of rows
+    /// @return the result of every row
+    public static boolean[] evaluate(final GuardExpression expression, final double[][] columns, final int count) {
+        Objects.requireNonNull(expression, "expression must not be null");
+        Objects.requireNonNull(columns, "columns must not be null");
+        final var result = new boolean[count];
+        KERNEL.evaluate(expression, columns, count, result);
+        return result;
+    }
+
+    /// Determines the enabled transition of the outgoing transitions of a state for every row.
+    ///
+    /// @param state   the state
+    /// @param columns the columns of the fields
+    /// @param count   the number of rows
+    /// @return the ordinal of the enabled transition for every row, [#NONE] or [#MULTIPLE]
+    public static <I> int[] next(final State<I> state, final double[][] columns, final int count) {
+        Objects.requireNonNull(state, "state must not be null");
+        Objects.requireNonNull(columns, "columns must not be null");
+        final var next = new int[count];
+        next(state, columns, count, next, new boolean[count], new Row(columns));
+        return next;
+    }
+
+    /// Executes all tokens of an indexed population which sit in a state and have an enabled
+    /// transition. The guards of the state are evaluated in one batch per [#CHUNK] tokens, only
+    /// over the rows of the tokens in the state. The tokens which can move take the transition
+    /// found by the batch and are then executed further with
+    /// [StateMachine#execute(TokenPopulation, long, Object)], using their row as context. The row
+    /// of a token is its slot. The context is one cursor moved from token to token, so listeners
+    /// must not keep it beyond their call.
+    ///
+    /// @param population an indexed population
+    /// @param state      the state whose tokens are re-evaluated
+    /// @param columns    the columns of the fields, one row per slot
+    /// @return the number of tokens which moved, tokens blocked by a full target state are not counted
+    /// @throws IllegalStateException if the population is not indexed or multiple transitions are enabled for a token
+    public static <I> long advance(final TokenPopulation<I> population, final State<I> state, final double[][] columns) {
+        Objects.requireNonNull(population, "population must not be null");
+        Objects.requireNonNull(state, "state must not be null");
+        Objects.requireNonNull(columns, "columns must not be null");
+        final var model = population.model();
+        if (model.isParallel(state)) {
+            return 0;
+        }
+        final var slots = population.slots(state).toArray();
+        final var size = Math.min(CHUNK, slots.length);
+        final var chunk = new double[columns.length][size];
+        final var next = new int[size];
+        final var enabled = new boolean[size];
+        final var row = new Row(chunk);
+        final var context = new Row(columns);
+        var executed = 0L;
+        for (var from = 0; from < slots.length; from += size) {
+            final var count = Math.min(size, slots.length - from);
+            for (var field = 0; field < columns.length; field++) {
+                for (var i = 0; i < count; i++) {
+                    chunk[field][i] = columns[field][Math.toIntExact(slots[from + i])];
+                }
+            }
+            next(state, chunk, count, next, enabled, row);
+            for (var i = 0; i < count; i++) {
+                if (next[i] == NONE) {
+                    continue;
+                }
+                final var slot = slots[from + i];
+                if (next[i] == MULTIPLE) {
+                    throw new IllegalStateException("Multiple transitions enabled from state " + state + " for slot " + slot);
+                }
+                context.index = Math.toIntExact(slot);
+                if (StateMachine.execute(population, slot, model.transition(next[i]), context)) {
+                    executed++;
+                }
+            }
+        }
+        return executed;
+    }
+
+    /// Fills `next` with the enabled transition of every row, reusing the buffers of the caller.
+    private static <I> void next(final State<I> state, final double[][] columns, final int count, final int[] next,
+                                 final boolean[] enabled, final Row row) {
+        Arrays.fill(next, 0, count, NONE);
+        for (final var transition : state.outgoingTransitions()) {
+            if (transition.guard() instanceof final GuardExpression expression) {
+                KERNEL.evaluate(expression, columns, count, enabled);
+            } else {
+                for (var i = 0; i < count; i++) {
+                    row.index = i;
+                    enabled[i] = transition.canTraverse(row);
+                }
+            }
+            final var ordinal = transition.ordinal();
+            for (var i = 0; i < count; i++) {
+                if (enabled[i]) {
+                    next[i] = next[i] == NONE ? ordinal : MULTIPLE;
+                }
+            }
+        }
+    }
+
+    /// The fields of one row, moved over the rows instead of allocating a context per row.
+    private static final class Row implements NumericFields {
+        private final double[][] columns;
+        private int index;
+
+        private Row(final double[][] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public double field(final int field) {
+            return columns[field][index];
+        }
+    }
+
+    private static GuardKernel loadKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return GuardKernel.SCALAR;
+        }
+        try {
+            return (GuardKernel) Class.forName("net.npg.state.VectorGuardKernel").getDeclaredConstructor().newInstance();
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            LOGGER.log(Level.FINE, e, () -> "Vector API not available, using scalar guard evaluation");
+            return GuardKernel.SCALAR;
+        }
+    }
+}
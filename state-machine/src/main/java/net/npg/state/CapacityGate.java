@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Limits the number of tokens in one state, see [StateModel#setCapacity(State, int)].
+///
+/// Admission is a compare-and-set on the occupancy of the state, so threads only contend on the
+/// states they enter. Tokens which could not enter wait in FIFO order; a freed slot is handed to
+/// the oldest waiter directly, and new tokens do not overtake waiting ones.
+final class CapacityGate {
+    private final AtomicInteger occupancy = new AtomicInteger();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private volatile int capacity;
+
+    /// A parked token, admitted at most once.
+    abstract static class Waiter {
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        /// Called with an acquired slot when the waiter is admitted. Runs on the thread which freed
+        /// the slot, so it must only hand the token over and never execute it itself.
+        abstract void admit();
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    CapacityGate(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void setCapacity(final int capacity) {
+        this.capacity = capacity;
+        admitWaiters();
+    }
+
+    void setOccupancy(final int occupancy) {
+        this.occupancy.set(occupancy);
+    }
+
+    int occupancy() {
+        return occupancy.get();
+    }
+
+    int waiting() {
+        return waiters.size();
+    }
+
+    /// Acquires a slot unless the state is full or other tokens are waiting for it. A slot taken
+    /// while a waiter was enqueued is handed to the waiters again.
+    ///
+    /// @return `true` if a slot was acquired
+    boolean tryAcquire() {
+        if (!waiters.isEmpty() || !acquire()) {
+            return false;
+        }
+        if (waiters.isEmpty()) {
+            return true;
+        }
+        release();
+        return false;
+    }
+
+    /// Counts a token which is already in the state, even if this exceeds the capacity.
+    void add() {
+        occupancy.incrementAndGet();
+    }
+
+    /// Frees a slot and hands it to the oldest waiter.
+    ///
+    /// @return `false` if no token was counted, the occupancy never drops below zero
+    boolean release() {
+        var current = occupancy.get();
+        while (current > 0) {
+            final var witness = occupancy.compareAndExchange(current, current - 1);
+            if (witness == current) {
+                admitWaiters();
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    /// Parks a waiter until a slot is free.
+    ///
+    /// A slot freed while the waiter is being enqueued is never lost: either the parking thread
+    /// hands it to the oldest waiter or the releasing thread sees the waiter. Only the oldest
+    /// waiter acquires a slot for itself, so waiters are admitted in FIFO order.
+    ///
+    /// @return `true` if the waiter acquired a slot right away and must continue itself,
+    ///         `false` if it is admitted later by [Waiter#admit()]
+    boolean park(final Waiter waiter) {
+        waiters.add(waiter);
+        if (waiters.peek() != waiter || !acquire()) {
+            admitWaiters();
+            return false;
+        }
+        if (waiter.claim()) {
+            waiters.remove(waiter);
+            return true;
+        }
+        release();
+        return false;
+    }
+
+    private boolean acquire() {
+        final var limit = capacity;
+        var current = occupancy.get();
+        while (current < limit) {
+            final var witness = occupancy.compareAndExchange(current, current + 1);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
+    private void admitWaiters() {
+        Waiter waiter;
+        while ((waiter = waiters.peek()) != null && acquire()) {
+            final var claimed = waiter.claim();
+            waiters.remove(waiter);
+            if (claimed) {
+                waiter.admit();
+            } else {
+                occupancy.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.List;
+import java.util.Objects;
+
+/// A token of a model with parallel states, holding the position in the parent model and one
+/// position per orthogonal region of the current parallel state.
+///
+/// If the parent token is not in a parallel state the list of regions is empty.
+///
+/// @param <I>     The type of the state identifier (e.g., String, Integer)
+/// @param token   the position in the parent model
+/// @param regions the positions in the regions of the current parallel state, in region order
+/// @see StateMachine#execute(CompositeToken, Object)
+/// @see Region
+public record CompositeToken<I>(Token<I> token, List<Token<I>> regions) {
+
+    /// Ensure that all fields are set and match the regions of the current state
+    public CompositeToken {
+        Objects.requireNonNull(token, "token cannot be null");
+        regions = List.copyOf(regions);
+        final var expected = token.model().regions(token.state());
+        if (!regions.isEmpty() && regions.size() != expected.size()) {
+            throw new IllegalArgumentException("State " + token.state() + " has " + expected.size() + " regions, got " + regions.size());
+        }
+        for (var i = 0; i < regions.size(); i++) {
+            if (regions.get(i).model() != expected.get(i).model()) {
+                throw new IllegalArgumentException("Token " + regions.get(i) + " is not part of region " + expected.get(i));
+            }
+        }
+    }
+
+    /// @return the current state in the parent model
+    public State<I> state() {
+        return token.state();
+    }
+
+    @Override
+    public String toString() {
+        return "CompositeToken{" +
+                "state=" + token.state() +
+                ", regions=" + regions +
+                '}';
+    }
+}
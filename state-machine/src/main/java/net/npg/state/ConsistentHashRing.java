@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/// Assigns entity keys to nodes by consistent hashing.
+///
+/// Every node is placed at several virtual positions on a ring of 64 bit hashes, a key belongs to
+/// the first node at or after its own hash. Adding or removing a node only moves the keys between
+/// this node and its neighbours. The positions are derived from the full node id; if two
+/// positions collide, the node which sorts later probes for the next free one, so every node
+/// always has all its positions and the ring is the same on every JVM. The ring is immutable.
+public final class ConsistentHashRing {
+    /// Default number of virtual positions per node
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes;
+
+    /// Creates a ring with [#DEFAULT_VIRTUAL_NODES] positions per node.
+    ///
+    /// @param nodes the node ids
+    public ConsistentHashRing(final Collection<String> nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /// Creates a ring.
+    ///
+    /// @param nodes        the node ids
+    /// @param virtualNodes the number of positions per node
+    /// @throws IllegalArgumentException if there are no nodes or the number of positions is not positive
+    public ConsistentHashRing(final Collection<String> nodes, final int virtualNodes) {
+        Objects.requireNonNull(nodes, "nodes must not be null");
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        this.nodes = nodes.stream().distinct().sorted().toList();
+        for (final var node : this.nodes) {
+            final var hash = hash(node);
+            for (var i = 0; i < virtualNodes; i++) {
+                var position = mix(hash + i * 0x9E3779B97F4A7C15L);
+                while (ring.putIfAbsent(position, node) != null) {
+                    position = mix(position);
+                }
+            }
+        }
+    }
+
+    /// @return the sorted node ids
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /// @param key an entity key
+    /// @return the id of the node owning the key
+    public String owner(final long key) {
+        final var entry = ring.ceilingEntry(mix(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /// 64 bit FNV-1a hash of the UTF-8 bytes of a node id, so ids with equal [String#hashCode()]
+    /// get different positions.
+    private static long hash(final String node) {
+        var hash = 0xCBF29CE484222325L;
+        for (final var b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long mix(final long value) {
+        var z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+/// Finds the enabled transition of a state, the inner loop of [StateMachine].
+///
+/// Implementations are either the [InterpretedDispatcher], which walks the outgoing transitions
+/// of a state, or a class generated by [DispatcherGenerator] for one model.
+///
+/// @see ExecutionBackend
+interface Dispatcher {
+    /// Result if no transition is enabled
+    int NONE = -1;
+    /// Result if more than one transition is enabled
+    int MULTIPLE = -2;
+
+    /// Evaluates the guards of all outgoing transitions of a state.
+    ///
+    /// @param stateOrdinal the ordinal of the current state
+    /// @param context      the context passed to the guards, may be null
+    /// @return the ordinal of the only enabled transition, [#NONE] or [#MULTIPLE]
+    int next(int stateOrdinal, Object context);
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.ClassHierarchyResolver;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.instruction.SwitchCase;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/// Generates a [Dispatcher] for one [StateModel] as a hidden class with the `java.lang.classfile` API.
+///
+/// The generated `next` method is a `tableswitch` over the state ordinals, or a `lookupswitch`
+/// over the states with outgoing transitions if most states have none, so the size of the method
+/// only grows with the number of transitions. Every case calls the
+/// guards of the outgoing transitions of that state directly, each from its own call site:
+///
+/// ```
+/// case 3:
+///     found = NONE;
+///     if (guards[7].test(context)) { found = 7; }
+///     if (suppliers[9].getAsBoolean()) { if (found >= 0) return MULTIPLE; found = 9; }
+///     return found;
+/// ```
+///
+/// A call site only ever sees one guard class, so the JIT can inline the guard. Guards added as
+/// [BooleanSupplier] are called without their context adapter, which would otherwise be the
+/// only receiver class of all their call sites. The generated
+/// code is a snapshot, the model has to regenerate it after a transition is added.
+final class DispatcherGenerator {
+    private static final Logger LOGGER = Logger.getLogger(DispatcherGenerator.class.getName());
+
+    /// Upper bound of transitions to stay below the 64k byte code limit of a method. A transition
+    /// takes up to 29 bytes and its case up to 14 bytes including the switch entry, the number of
+    /// states does not matter.
+    static final int MAX_TRANSITIONS = 1400;
+
+    private static final ClassDesc CD_DISPATCHER = ClassDesc.of(Dispatcher.class.getName());
+    private static final ClassDesc CD_PREDICATE = ClassDesc.of(Predicate.class.getName());
+    private static final ClassDesc CD_PREDICATE_ARRAY = CD_PREDICATE.arrayType();
+    private static final ClassDesc CD_SUPPLIER = ClassDesc.of(BooleanSupplier.class.getName());
+    private static final ClassDesc CD_SUPPLIER_ARRAY = CD_SUPPLIER.arrayType();
+    private static final ClassDesc CD_GENERATED = ClassDesc.of(Dispatcher.class.getPackageName(), "GeneratedDispatcher");
+    private static final MethodTypeDesc MTD_INIT = MethodTypeDesc.of(ConstantDescs.CD_void, CD_PREDICATE_ARRAY, CD_SUPPLIER_ARRAY);
+    private static final MethodTypeDesc MTD_NEXT = MethodTypeDesc.of(ConstantDescs.CD_int, ConstantDescs.CD_int, ConstantDescs.CD_Object);
+    private static final MethodTypeDesc MTD_TEST = MethodTypeDesc.of(ConstantDescs.CD_boolean, ConstantDescs.CD_Object);
+    private static final MethodTypeDesc MTD_GET_AS_BOOLEAN = MethodTypeDesc.of(ConstantDescs.CD_boolean);
+    private static final String GUARDS = "guards";
+    private static final String SUPPLIERS = "suppliers";
+    private static final int SLOT_CONTEXT = 2;
+    private static final int SLOT_FOUND = 3;
+
+    private DispatcherGenerator() {
+    }
+
+    /// Generates a dispatcher for the current states and transitions of a model.
+    ///
+    /// @param model the model
+    /// @return the generated dispatcher, or an [InterpretedDispatcher] if the model is too large
+    ///         or the class cannot be generated
+    static <I> Dispatcher generate(final StateModel<I> model) {
+        final var transitions = model.transitions();
+        if (transitions.size() > MAX_TRANSITIONS) {
+            return new InterpretedDispatcher<>(model);
+        }
+        try {
+            final var guards = new Predicate<?>[transitions.size()];
+            final var suppliers = new BooleanSupplier[transitions.size()];
+            for (final var transition : transitions) {
+                final var supplier = transition.contextFreeGuard();
+                if (supplier.isPresent()) {
+                    suppliers[transition.ordinal()] = supplier.get();
+                } else {
+                    guards[transition.ordinal()] = transition.guard();
+                }
+            }
+            final var hidden = MethodHandles.lookup().defineHiddenClass(generateClass(model), true);
+            return (Dispatcher) hidden.lookupClass()
+                    .getConstructor(Predicate[].class, BooleanSupplier[].class)
+                    .newInstance(guards, suppliers);
+        } catch (final RuntimeException | LinkageError | ReflectiveOperationException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot generate dispatcher for model " + model.id() + ", using the interpreter");
+            return new InterpretedDispatcher<>(model);
+        }
+    }
+
+    private static byte[] generateClass(final StateModel<?> model) {
+        final var resolver = ClassHierarchyResolver.defaultResolver()
+                .orElse(ClassHierarchyResolver.of(List.of(), Map.of(CD_GENERATED, ConstantDescs.CD_Object)));
+        return ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver)).build(CD_GENERATED, clb -> clb
+                .withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC)
+                .withInterfaceSymbols(CD_DISPATCHER)
+                .withField(GUARDS, CD_PREDICATE_ARRAY, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL)
+                .withField(SUPPLIERS, CD_SUPPLIER_ARRAY, ClassFile.ACC_PRIVATE | ClassFile.ACC_FINAL)
+                .withMethodBody(ConstantDescs.INIT_NAME, MTD_INIT, ClassFile.ACC_PUBLIC, cb -> cb
+                        .aload(0)
+                        .invokespecial(ConstantDescs.CD_Object, ConstantDescs.INIT_NAME, ConstantDescs.MTD_void)
+                        .aload(0)
+                        .aload(1)
+                        .putfield(CD_GENERATED, GUARDS, CD_PREDICATE_ARRAY)
+                        .aload(0)
+                        .aload(2)
+                        .putfield(CD_GENERATED, SUPPLIERS, CD_SUPPLIER_ARRAY)
+                        .return_())
+                .withMethodBody("next", MTD_NEXT, ClassFile.ACC_PUBLIC | ClassFile.ACC_FINAL, cb -> generateNext(cb, model)));
+    }
+
+    private static void generateNext(final CodeBuilder cb, final StateModel<?> model) {
+        final var states = List.copyOf(model.states());
+        final var defaultLabel = cb.newLabel();
+        final var cases = new ArrayList<SwitchCase>();
+        for (final var state : states) {
+            if (!state.outgoingTransitions().isEmpty()) {
+                cases.add(SwitchCase.of(state.ordinal(), cb.newLabel()));
+            }
+        }
+        if (!cases.isEmpty()) {
+            cb.iload(1);
+            // a table has an entry for every state, a lookup only one per state with transitions
+            if (states.size() <= 2 * cases.size()) {
+                cb.tableswitch(0, states.size() - 1, defaultLabel, cases);
+            } else {
+                cb.lookupswitch(defaultLabel, cases);
+            }
+            for (final var switchCase : cases) {
+                cb.labelBinding(switchCase.target());
+                generateCase(cb, states.get(switchCase.caseValue()));
+            }
+        }
+        cb.labelBinding(defaultLabel);
+        cb.loadConstant(Dispatcher.NONE);
+        cb.ireturn();
+    }
+
+    private static void generateCase(final CodeBuilder cb, final State<?> state) {
+        cb.loadConstant(Dispatcher.NONE);
+        cb.istore(SLOT_FOUND);
+        for (final var transition : state.outgoingTransitions()) {
+            final var disabled = cb.newLabel();
+            final var first = cb.newLabel();
+            cb.aload(0);
+            if (transition.contextFreeGuard().isPresent()) {
+                cb.getfield(CD_GENERATED, SUPPLIERS, CD_SUPPLIER_ARRAY);
+                cb.loadConstant(transition.ordinal());
+                cb.aaload();
+                cb.invokeinterface(CD_SUPPLIER, "getAsBoolean", MTD_GET_AS_BOOLEAN);
+            } else {
+                cb.getfield(CD_GENERATED, GUARDS, CD_PREDICATE_ARRAY);
+                cb.loadConstant(transition.ordinal());
+                cb.aaload();
+                cb.aload(SLOT_CONTEXT);
+                cb.invokeinterface(CD_PREDICATE, "test", MTD_TEST);
+            }
+            cb.ifeq(disabled);
+            cb.iload(SLOT_FOUND);
+            cb.iflt(first);
+            cb.loadConstant(Dispatcher.MULTIPLE);
+            cb.ireturn();
+            cb.labelBinding(first);
+            cb.loadConstant(transition.ordinal());
+            cb.istore(SLOT_FOUND);
+            cb.labelBinding(disabled);
+        }
+        cb.iload(SLOT_FOUND);
+        cb.ireturn();
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+
+/// Finds tokens of a [TokenPopulation] which stay in a state longer than a threshold.
+///
+/// The population must record entry times, see [TokenPopulation#trackEntryTimes(java.util.function.LongSupplier)].
+/// For every state with a threshold the watchdog keeps the slots in the order they entered the
+/// state. [#sweep()] only looks at the oldest entries of each queue and stops at the first one
+/// which is not overdue, so it touches the overdue tokens and no others. Entries of tokens which
+/// left the state are dropped lazily when they reach the head of the queue.
+///
+/// Every overdue token is reported once per stay to the [OverdueListener]s and as a JFR event.
+/// The dwell times of all tokens leaving a watched state are recorded in a [LatencyHistogram].
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class DwellWatchdog<I> {
+    private final TokenPopulation<I> population;
+    private volatile AtomicReferenceArray<Watch> watches;
+    private final List<OverdueListener<I>> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder overdue = new LongAdder();
+
+    /// Called for every token found overdue by [#sweep()].
+    ///
+    /// @param <I> The type of the state identifier (e.g., String, Integer)
+    @FunctionalInterface
+    public interface OverdueListener<I> {
+
+        /// @param slot      the slot of the token
+        /// @param state     the state of the token
+        /// @param dwellTime how long the token has been in the state
+        void onOverdue(long slot, State<I> state, Duration dwellTime);
+    }
+
+    /// The threshold, the entry queue and the dwell times of a watched state.
+    private static final class Watch {
+        private final long threshold;
+        private final LatencyHistogram dwellTimes = new LatencyHistogram();
+        private long[] slots = new long[16];
+        private long[] times = new long[16];
+        private int head;
+        private int size;
+
+        private Watch(final long threshold) {
+            this.threshold = threshold;
+        }
+
+        private void add(final long slot, final long time) {
+            if (size == slots.length) {
+                slots = unwrap(slots);
+                times = unwrap(times);
+                head = 0;
+            }
+            final var tail = (head + size) % slots.length;
+            slots[tail] = slot;
+            times[tail] = time;
+            size++;
+        }
+
+        private long[] unwrap(final long[] ring) {
+            final var grown = new long[ring.length * 2];
+            final var first = ring.length - head;
+            System.arraycopy(ring, head, grown, 0, first);
+            System.arraycopy(ring, 0, grown, first, head);
+            return grown;
+        }
+
+        private void poll() {
+            head = (head + 1) % slots.length;
+            size--;
+        }
+
+        private void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+
+    /// Creates a watchdog for a population, there can be only one per population.
+    ///
+    /// @param population a population which records entry times
+    /// @throws IllegalStateException if the population does not record entry times or has a watchdog
+    public DwellWatchdog(final TokenPopulation<I> population) {
+        this.population = Objects.requireNonNull(population, "population must not be null");
+        this.watches = new AtomicReferenceArray<>(population.model().states().size());
+        population.attach(this);
+    }
+
+    /// Watches a state. The tokens which are already in the state are queued by their entry time.
+    ///
+    /// @param state     a state of the model
+    /// @param threshold the maximum time a token may stay in the state
+    /// @throws IllegalArgumentException if the state is not part of the model or the threshold is not positive
+    /// @throws IllegalStateException    if the state is already watched
+    public void setThreshold(final State<I> state, final Duration threshold) {
+        Objects.requireNonNull(state, "state must not be null");
+        Objects.requireNonNull(threshold, "threshold must not be null");
+        if (!population.model().contains(state)) {
+            throw new IllegalArgumentException("State " + state + " not part of model " + population.model());
+        }
+        if (threshold.isNegative() || threshold.isZero()) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        final var watch = new Watch(threshold.toNanos());
+        synchronized (watch) {
+            synchronized (this) {
+                if (!grow(state.ordinal()).compareAndSet(state.ordinal(), null, watch)) {
+                    throw new IllegalStateException("State " + state + " is already watched");
+                }
+            }
+            fill(state.ordinal(), watch);
+        }
+    }
+
+    /// @param listener called for every overdue token on the sweeping thread
+    public void addListener(final OverdueListener<I> listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    /// @param listener a listener added before
+    /// @return `true` if the listener was removed
+    public boolean removeListener(final OverdueListener<I> listener) {
+        return listeners.remove(listener);
+    }
+
+    /// Reports all tokens which exceeded the threshold of their state since the last sweep.
+    ///
+    /// @return the number of newly overdue tokens
+    public int sweep() {
+        final var model = population.model();
+        final var watches = this.watches;
+        var found = 0;
+        for (var ordinal = 0; ordinal < watches.length(); ordinal++) {
+            final var watch = watches.get(ordinal);
+            if (watch == null) {
+                continue;
+            }
+            final var state = model.state(ordinal);
+            while (true) {
+                final long slot;
+                final long dwellTime;
+                synchronized (watch) {
+                    if (watch.size == 0) {
+                        break;
+                    }
+                    slot = watch.slots[watch.head];
+                    final var time = watch.times[watch.head];
+                    dwellTime = population.now() - time;
+                    final var current = population.ordinal(slot) == ordinal && population.entryTime(slot) == time;
+                    if (current && dwellTime <= watch.threshold) {
+                        break;
+                    }
+                    watch.poll();
+                    if (!current) {
+                        continue;
+                    }
+                }
+                found++;
+                overdue.increment();
+                final var duration = Duration.ofNanos(dwellTime);
+                new FlightRecorderEvents.TokenOverdue().commit(model.id(), state, slot, duration);
+                for (final var listener : listeners) {
+                    listener.onOverdue(slot, state, duration);
+                }
+            }
+        }
+        return found;
+    }
+
+    /// @return the number of overdue tokens found by all sweeps
+    public long overdue() {
+        return overdue.sum();
+    }
+
+    /// Returns the dwell times of the tokens which left a watched state.
+    ///
+    /// @param state a watched state
+    /// @return the histogram of the dwell times in nanoseconds
+    /// @throws IllegalArgumentException if the state is not watched
+    public LatencyHistogram dwellTimes(final State<I> state) {
+        Objects.requireNonNull(state, "state must not be null");
+        final var watch = watch(state.ordinal());
+        if (watch == null || !population.model().contains(state)) {
+            throw new IllegalArgumentException("State " + state + " is not watched");
+        }
+        return watch.dwellTimes;
+    }
+
+    /// Writes the entry time of a slot which entered a state and queues it if the state is watched.
+    void entered(final int ordinal, final long slot) {
+        final var watch = watch(ordinal);
+        if (watch == null) {
+            population.writeEntryTime(slot, population.now());
+            return;
+        }
+        synchronized (watch) {
+            final var now = population.now();
+            population.writeEntryTime(slot, now);
+            watch.add(slot, now);
+        }
+    }
+
+    /// Records the dwell time of a slot which left a state.
+    void left(final int ordinal, final long dwellTime) {
+        final var watch = watch(ordinal);
+        if (watch != null) {
+            watch.dwellTimes.record(dwellTime);
+        }
+    }
+
+    /// Rebuilds all queues after the population was restored.
+    void rebuild() {
+        final var watches = this.watches;
+        for (var ordinal = 0; ordinal < watches.length(); ordinal++) {
+            final var watch = watches.get(ordinal);
+            if (watch != null) {
+                synchronized (watch) {
+                    watch.clear();
+                    fill(ordinal, watch);
+                }
+            }
+        }
+    }
+
+    private Watch watch(final int ordinal) {
+        final var current = watches;
+        return ordinal < current.length() ? current.get(ordinal) : null;
+    }
+
+    /// Grows the table for states added to the model after the watchdog was created. The table is
+    /// only written while holding the watchdog, so no watch is lost by the copy.
+    ///
+    /// @return the table containing the ordinal
+    private AtomicReferenceArray<Watch> grow(final int ordinal) {
+        final var current = watches;
+        if (ordinal < current.length()) {
+            return current;
+        }
+        final var grown = new AtomicReferenceArray<Watch>(Math.max(ordinal + 1, population.model().states().size()));
+        for (var i = 0; i < current.length(); i++) {
+            grown.set(i, current.get(i));
+        }
+        watches = grown;
+        return grown;
+    }
+
+    /// Queues the tokens in a state ordered by their entry time.
+    private void fill(final int ordinal, final Watch watch) {
+        final var slots = population.isIndexed()
+                ? population.slots(population.model().state(ordinal))
+                : LongStream.range(0, population.capacity()).filter(slot -> population.ordinal(slot) == ordinal);
+        slots.boxed()
+                .sorted((a, b) -> Long.compare(population.entryTime(a), population.entryTime(b)))
+                .forEach(slot -> watch.add(slot, population.entryTime(slot)));
+    }
+}
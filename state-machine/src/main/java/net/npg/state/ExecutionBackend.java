@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.logging.Logger;
+
+/// Selects how [StateMachine] evaluates the guards of a [StateModel].
+///
+/// The default backend of new models can be set with the system property
+/// `net.npg.state.backend`, e.g. `-Dnet.npg.state.backend=generated`. The name is not case
+/// sensitive; an unknown name is logged and the interpreter is used.
+///
+/// @see StateModel#setBackend(ExecutionBackend)
+public enum ExecutionBackend {
+    /// Walks the outgoing transitions of the current state, works for every model
+    INTERPRETER,
+    /// Generates a hidden class per model with a `switch` over the state ordinals and one call
+    /// site per guard, so every guard call is monomorphic for the JIT. The class is generated on
+    /// the first execution after the model changed. Models which are too large fall back to the
+    /// interpreter.
+    GENERATED;
+
+    /// Name of the system property selecting the default backend
+    public static final String PROPERTY = "net.npg.state.backend";
+
+    /// @return the backend configured by [#PROPERTY], [#INTERPRETER] if not set or unknown
+    static ExecutionBackend defaultBackend() {
+        return parse(System.getProperty(PROPERTY));
+    }
+
+    /// Parses the name of a backend ignoring case.
+    ///
+    /// @param name the name, may be null
+    /// @return the backend, [#INTERPRETER] if the name is null or unknown
+    static ExecutionBackend parse(final String name) {
+        if (name == null) {
+            return INTERPRETER;
+        }
+        for (final var backend : values()) {
+            if (backend.name().equalsIgnoreCase(name.strip())) {
+                return backend;
+            }
+        }
+        Logger.getLogger(ExecutionBackend.class.getName()).warning(() -> "Unknown backend " + name + " in " + PROPERTY + ", using " + INTERPRETER);
+        return INTERPRETER;
+    }
+}
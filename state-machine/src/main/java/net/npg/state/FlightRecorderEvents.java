@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/// The JDK Flight Recorder events of the state machine.
+///
+/// The events are cheap enough to keep a recording running in production: an event object which
+/// is not enabled is removed by the JIT, and the id fields are only converted to strings if the
+/// event is actually committed. Guard and listener events have a threshold, so only slow calls
+/// are recorded by default; lower it in the recording settings to analyze all calls in JMC. Guards
+/// are only timed on a sample of the steps, see [#sampleGuards()].
+final class FlightRecorderEvents {
+    private static final String CATEGORY = "State Machine";
+
+    private static volatile int guardSampleInterval = 64;
+
+    private FlightRecorderEvents() {
+    }
+
+    /// Decides if the guards of one step are timed for the [GuardEvaluated] event.
+    ///
+    /// Only one step in [#guardSampleInterval(int)] is sampled while the event is enabled, so a
+    /// running recording keeps most steps on the dispatcher of the model.
+    ///
+    /// @return `true` if the guards of this step should be evaluated one by one and timed
+    static boolean sampleGuards() {
+        final var interval = guardSampleInterval;
+        return GuardType.TYPE.isEnabled() && (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0);
+    }
+
+    /// Sets how many steps share one timed step while [GuardEvaluated] is enabled.
+    ///
+    /// @param interval the sampling interval, 1 times every step
+    /// @throws IllegalArgumentException if the interval is not positive
+    static void guardSampleInterval(final int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        guardSampleInterval = interval;
+    }
+
+    /// Holds the type of [GuardEvaluated], registered on first use instead of with the machine.
+    private static final class GuardType {
+        private static final EventType TYPE = EventType.getEventType(GuardEvaluated.class);
+    }
+
+    @Name("net.npg.state.TransitionTaken")
+    @Label("Transition Taken")
+    @Description("A token moved along a transition")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TransitionTaken extends Event {
+        @Label("Model")
+        String model;
+        @Label("Transition")
+        String transition;
+        @Label("Source State")
+        String source;
+        @Label("Target State")
+        String target;
+
+        void commit(final Object modelId, final Transition<?> taken) {
+            if (shouldCommit()) {
+                model = String.valueOf(modelId);
+                transition = String.valueOf(taken.id());
+                source = String.valueOf(taken.source().id());
+                target = String.valueOf(taken.target().id());
+                commit();
+            }
+        }
+    }
+
+    @Name("net.npg.state.GuardEvaluated")
+    @Label("Guard Evaluated")
+    @Description("The guard of a transition was evaluated, the duration is the cost of the guard")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class GuardEvaluated extends Event {
+        @Label("Model")
+        String model;
+        @Label("Transition")
+        String transition;
+        @Label("State")
+        String state;
+        @Label("Result")
+        boolean result;
+
+        void commit(final Object modelId, final Transition<?> evaluated, final boolean enabled) {
+            end();
+            if (shouldCommit()) {
+                model = String.valueOf(modelId);
+                transition = String.valueOf(evaluated.id());
+                state = String.valueOf(evaluated.source().id());
+                result = enabled;
+                commit();
+            }
+        }
+    }
+
+    @Name("net.npg.state.ListenerInvoked")
+    @Label("Listener Invoked")
+    @Description("An entry, exit or transition listener was called")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("1 ms")
+    static final class ListenerInvoked extends Event {
+        @Label("Model")
+        String model;
+        @Label("Transition")
+        String transition;
+        @Label("Kind")
+        String kind;
+        @Label("Listener Class")
+        Class<?> listenerClass;
+
+        void commit(final Object modelId, final Transition<?> fired, final String listenerKind, final Object listener) {
+            end();
+            if (shouldCommit()) {
+                model = String.valueOf(modelId);
+                transition = String.valueOf(fired.id());
+                kind = listenerKind;
+                listenerClass = listener.getClass();
+                commit();
+            }
+        }
+    }
+
+    @Name("net.npg.state.TransitionConflict")
+    @Label("Transition Conflict")
+    @Description("Multiple transitions were enabled from the same state")
+    @Category(CATEGORY)
+    static final class TransitionConflict extends Event {
+        @Label("Model")
+        String model;
+        @Label("State")
+        String state;
+
+        void commit(final Object modelId, final State<?> conflicting) {
+            if (shouldCommit()) {
+                model = String.valueOf(modelId);
+                state = String.valueOf(conflicting.id());
+                commit();
+            }
+        }
+    }
+
+    @Name("net.npg.state.TokenOverdue")
+    @Label("Token Overdue")
+    @Description("A token stayed in a state longer than the threshold of its DwellWatchdog")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TokenOverdue extends Event {
+        @Label("Model")
+        String model;
+        @Label("State")
+        String state;
+        @Label("Slot")
+        long slot;
+        @Label("Dwell Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long dwellTime;
+
+        void commit(final Object modelId, final State<?> overdue, final long tokenSlot, final Duration dwell) {
+            if (shouldCommit()) {
+                model = String.valueOf(modelId);
+                state = String.valueOf(overdue.id());
+                slot = tokenSlot;
+                dwellTime = dwell.toNanos();
+                commit();
+            }
+        }
+    }
+}
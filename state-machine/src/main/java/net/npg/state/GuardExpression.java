@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/// A restricted guard comparing numeric fields of an entity with constants, e.g. `amount > 100`
+/// or `retries < 3 and amount > 100`.
+///
+/// An expression is a normal guard for [StateModel#addTransition(State, State, Predicate, Object)]
+/// which expects a [NumericFields] context. As its structure is known, it can also be evaluated for
+/// a whole population at once over columnar arrays, see [BatchGuardEvaluator].
+public sealed interface GuardExpression extends Predicate<Object> {
+
+    /// The comparison of a field with a constant.
+    enum Operator {
+        /// `field < constant`
+        LT,
+        /// `field <= constant`
+        LE,
+        /// `field > constant`
+        GT,
+        /// `field >= constant`
+        GE,
+        /// `field == constant`
+        EQ,
+        /// `field != constant`
+        NE;
+
+        boolean test(final double value, final double constant) {
+            return switch (this) {
+                case LT -> value < constant;
+                case LE -> value <= constant;
+                case GT -> value > constant;
+                case GE -> value >= constant;
+                case EQ -> value == constant;
+                case NE -> value != constant;
+            };
+        }
+    }
+
+    /// Compares a field with a constant.
+    ///
+    /// @param field    the field index
+    /// @param operator the comparison
+    /// @param constant the constant
+    record Comparison(int field, Operator operator, double constant) implements GuardExpression {
+
+        /// Ensure that all fields are set
+        public Comparison {
+            if (field < 0) {
+                throw new IllegalArgumentException("field must not be negative: " + field);
+            }
+            Objects.requireNonNull(operator, "operator must not be null");
+        }
+
+        @Override
+        public boolean evaluate(final double[][] columns, final int row) {
+            return operator.test(columns[field][row], constant);
+        }
+
+        @Override
+        public boolean test(final NumericFields fields) {
+            return operator.test(fields.field(field), constant);
+        }
+    }
+
+    /// Both expressions must be true.
+    ///
+    /// @param left  the first expression
+    /// @param right the second expression
+    record And(GuardExpression left, GuardExpression right) implements GuardExpression {
+
+        /// Ensure that all fields are set
+        public And {
+            Objects.requireNonNull(left, "left must not be null");
+            Objects.requireNonNull(right, "right must not be null");
+        }
+
+        @Override
+        public boolean evaluate(final double[][] columns, final int row) {
+            return left.evaluate(columns, row) && right.evaluate(columns, row);
+        }
+
+        @Override
+        public boolean test(final NumericFields fields) {
+            return left.test(fields) && right.test(fields);
+        }
+    }
+
+    /// At least one expression must be true.
+    ///
+    /// @param left  the first expression
+    /// @param right the second expression
+    record Or(GuardExpression left, GuardExpression right) implements GuardExpression {
+
+        /// Ensure that all fields are set
+        public Or {
+            Objects.requireNonNull(left, "left must not be null");
+            Objects.requireNonNull(right, "right must not be null");
+        }
+
+        @Override
+        public boolean evaluate(final double[][] columns, final int row) {
+            return left.evaluate(columns, row) || right.evaluate(columns, row);
+        }
+
+        @Override
+        public boolean test(final NumericFields fields) {
+            return left.test(fields) || right.test(fields);
+        }
+    }
+
+    /// @param field    the field index
+    /// @param operator the comparison
+    /// @param constant the constant
+    /// @return the expression `field operator constant`
+    static GuardExpression compare(final int field, final Operator operator, final double constant) {
+        return new Comparison(field, operator, constant);
+    }
+
+    /// @param other another expression
+    /// @return an expression which is true if both are true
+    default GuardExpression and(final GuardExpression other) {
+        return new And(this, other);
+    }
+
+    /// @param other another expression
+    /// @return an expression which is true if at least one is true
+    default GuardExpression or(final GuardExpression other) {
+        return new Or(this, other);
+    }
+
+    /// Evaluates the expression for one row of columnar data.
+    ///
+    /// @param columns the values of field `i` are stored in `columns[i]`
+    /// @param row     the row index
+    /// @return the result
+    boolean evaluate(double[][] columns, int row);
+
+    /// Evaluates the expression for the fields of one entity.
+    ///
+    /// @param fields the fields
+    /// @return the result
+    boolean test(NumericFields fields);
+
+    /// Evaluates the expression for the context passed to the state machine.
+    ///
+    /// @param context a [NumericFields] instance
+    /// @return the result
+    /// @throws ClassCastException if the context is no [NumericFields]
+    @Override
+    default boolean test(final Object context) {
+        return test((NumericFields) context);
+    }
+}
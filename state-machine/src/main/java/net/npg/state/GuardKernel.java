@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+/// Evaluates a [GuardExpression] for many rows of columnar data.
+interface GuardKernel {
+
+    /// @param expression the expression
+    /// @param columns    the values of field `i` are stored in `columns[i]`
+    /// @param count      the number of rows, starting at row 0
+    /// @param result     receives the result of every row
+    void evaluate(GuardExpression expression, double[][] columns, int count, boolean[] result);
+
+    /// The fallback evaluating one row after the other.
+    GuardKernel SCALAR = (expression, columns, count, result) -> {
+        for (var row = 0; row < count; row++) {
+            result[row] = expression.evaluate(columns, row);
+        }
+    };
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/// A sampling profiler attributing the cost of the guards to their transitions.
+///
+/// Install it with [StateModel#setGuardProfiler(GuardProfiler)]. Every n-th guard evaluation is
+/// timed, by default with [System#nanoTime()], and recorded in a [LatencyHistogram] per transition ordinal. The
+/// sampling counter is updated without synchronization, so under concurrent execution the rate is
+/// only approximate. While a profiler is installed the model is executed by the interpreting
+/// dispatcher, as generated dispatchers evaluate the guards inline.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see RenderPlantUML#generate(StateModel, GuardProfiler)
+public final class GuardProfiler<I> {
+
+    /// The sampled cost of one guard.
+    ///
+    /// @param <I>           The type of the state identifier (e.g., String, Integer)
+    /// @param transition    the transition of the guard
+    /// @param samples       the number of timed evaluations
+    /// @param meanNanos     the mean duration of an evaluation
+    /// @param p99Nanos      the 99th percentile of the duration of an evaluation
+    /// @param estimatedNanos the estimated total time of all evaluations, the sampled time times the sample rate
+    public record GuardCost<I>(Transition<I> transition, long samples, double meanNanos, long p99Nanos, long estimatedNanos) {
+    }
+
+    private final StateModel<I> model;
+    private final int sampleRate;
+    private final LongSupplier clock;
+    private volatile LatencyHistogram[] histograms = new LatencyHistogram[0];
+    private int countdown;
+
+    /// Creates a profiler timing the guards with [System#nanoTime()].
+    ///
+    /// @param model      the profiled model
+    /// @param sampleRate time one in `sampleRate` guard evaluations, 1 times all
+    /// @throws IllegalArgumentException if the sample rate is not positive
+    public GuardProfiler(final StateModel<I> model, final int sampleRate) {
+        this(model, sampleRate, System::nanoTime);
+    }
+
+    /// Creates a profiler.
+    ///
+    /// @param model      the profiled model
+    /// @param sampleRate time one in `sampleRate` guard evaluations, 1 times all
+    /// @param clock      the time source in nanoseconds
+    /// @throws IllegalArgumentException if the sample rate is not positive
+    public GuardProfiler(final StateModel<I> model, final int sampleRate, final LongSupplier clock) {
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        this.clock = Objects.requireNonNull(clock, "clock must not be null");
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.countdown = sampleRate;
+    }
+
+    /// @return the profiled model
+    public StateModel<I> model() {
+        return model;
+    }
+
+    /// @return one in how many guard evaluations is timed
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /// Evaluates a guard, timing the evaluation if it is sampled.
+    boolean evaluate(final Transition<I> transition, final Object context) {
+        if (--countdown > 0) {
+            return transition.canTraverse(context);
+        }
+        countdown = sampleRate;
+        final var start = clock.getAsLong();
+        final var result = transition.canTraverse(context);
+        histogram(transition.ordinal()).record(clock.getAsLong() - start);
+        return result;
+    }
+
+    /// @param transition a transition of the model
+    /// @return the sampled durations of the guard of the transition in nanoseconds
+    public LatencyHistogram histogram(final Transition<I> transition) {
+        Objects.requireNonNull(transition, "transition must not be null");
+        if (!model.contains(transition)) {
+            throw new IllegalArgumentException("Transition " + transition + " not part of model " + model);
+        }
+        return histogram(transition.ordinal());
+    }
+
+    /// Returns the guards with the highest estimated total time, most expensive first.
+    ///
+    /// @param n the maximum number of guards
+    /// @return the costs of the sampled guards
+    public List<GuardCost<I>> top(final int n) {
+        final var costs = new ArrayList<GuardCost<I>>();
+        final var current = histograms;
+        for (var ordinal = 0; ordinal < current.length; ordinal++) {
+            final var histogram = current[ordinal];
+            if (histogram != null && histogram.count() > 0) {
+                costs.add(new GuardCost<>(model.transition(ordinal), histogram.count(), histogram.mean(),
+                        histogram.percentile(99), histogram.total() * sampleRate));
+            }
+        }
+        return costs.stream()
+                .sorted(Comparator.comparingLong(GuardCost<I>::estimatedNanos).reversed())
+                .limit(n)
+                .toList();
+    }
+
+    /// @param n the maximum number of guards
+    /// @return a table of the [#top(int)] guards
+    public String report(final int n) {
+        final var text = new StringBuilder();
+        text.append(String.format("%-20s %10s %12s %12s %14s%n", "transition", "samples", "mean ns", "p99 ns", "estimated ns"));
+        for (final var cost : top(n)) {
+            text.append(String.format("%-20s %10d %12.0f %12d %14d%n", cost.transition().id(), cost.samples(),
+                    cost.meanNanos(), cost.p99Nanos(), cost.estimatedNanos()));
+        }
+        return text.toString();
+    }
+
+    /// Discards all samples.
+    public void reset() {
+        for (final var histogram : histograms) {
+            if (histogram != null) {
+                histogram.reset();
+            }
+        }
+    }
+
+    private LatencyHistogram histogram(final int ordinal) {
+        var current = histograms;
+        if (ordinal >= current.length || current[ordinal] == null) {
+            synchronized (this) {
+                current = histograms;
+                if (ordinal >= current.length) {
+                    current = Arrays.copyOf(current, Math.max(ordinal + 1, model.transitions().size()));
+                }
+                if (current[ordinal] == null) {
+                    current[ordinal] = new LatencyHistogram();
+                }
+                histograms = current;
+            }
+        }
+        return current[ordinal];
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+
+/// A transition taken by a token of a [TokenPopulation], see [TokenPopulation#lastTransitions(long, int)].
+///
+/// @param <I>        The type of the state identifier (e.g., String, Integer)
+/// @param transition the transition
+/// @param time       the time the transition was taken, in nanoseconds of the clock of the history
+public record HistoryEntry<I>(Transition<I> transition, long time) {
+
+    /// Ensure that all fields are set
+    public HistoryEntry {
+        Objects.requireNonNull(transition, "transition must not be null");
+    }
+}
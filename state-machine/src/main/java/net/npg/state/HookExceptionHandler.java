@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+/// Handles exceptions thrown by the listeners and hooks called during [StateMachine#execute(Token, Object)].
+///
+/// The handler is called on the executing thread. If the handler throws, the exception is
+/// propagated to the caller of `execute`; otherwise the execution continues with the next hook.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see StateModel#setHookExceptionHandler(HookExceptionHandler)
+@FunctionalInterface
+public interface HookExceptionHandler<I> {
+
+    /// Called when a hook throws an exception.
+    ///
+    /// @param transition the transition being processed when the hook failed
+    /// @param exception  the exception thrown by the hook
+    void onException(Transition<I> transition, Exception exception);
+
+    /// Returns the default handler, which logs the exception as a warning. The log message is only
+    /// built if the warning is actually logged.
+    ///
+    /// @param <I> The type of the state identifier
+    /// @return the logging handler
+    static <I> HookExceptionHandler<I> logging() {
+        return ModelHooks.loggingHandler();
+    }
+}
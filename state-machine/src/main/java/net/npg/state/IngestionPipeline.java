@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/// A pipeline stage which executes the tokens of a [TokenPopulation] for a stream of entity updates.
+///
+/// Producers submit updates, i.e. a slot and a context for the guards, into a bounded queue and
+/// block while it is full. A dispatcher thread collects the updates of a short time window into a
+/// batch. Several updates of the same slot inside a batch are coalesced into one: the latest
+/// context wins and the latency is measured from the earliest update. The batch is then split
+/// between the workers of an [Executor] and [StateMachine#execute(TokenPopulation, long, Object)] is
+/// called once per slot. The next batch is collected only after the current one is finished, so one
+/// slot is never executed by two threads at the same time.
+///
+/// The time from submitting an update until its token was executed is recorded in [#latency()].
+/// A chunk the executor rejects is executed on the dispatcher thread, and a batch which fails with
+/// an error is counted in [#failures()]; the dispatcher keeps running until the pipeline is closed.
+/// Closing the pipeline waits for producers which are queueing an update, then rejects new ones
+/// and processes all updates accepted so far; no accepted update is lost.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class IngestionPipeline<I> implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(IngestionPipeline.class.getName());
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /// Default capacity of the queue of pending updates
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    /// Default time window in which updates are coalesced
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(1);
+    /// Default maximum number of slots executed in one batch
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private record Update(long slot, Object context, long submitted) {
+    }
+
+    private final TokenPopulation<I> population;
+    private final BlockingQueue<Update> queue;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Executor executor;
+    private final int parallelism;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Thread dispatcher;
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    /// Creates a pipeline with default settings which executes the batches on the common [ForkJoinPool].
+    ///
+    /// @param population the population holding the tokens
+    public IngestionPipeline(final TokenPopulation<I> population) {
+        this(population, DEFAULT_QUEUE_CAPACITY, DEFAULT_WINDOW, DEFAULT_BATCH_SIZE,
+                ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /// Creates a pipeline.
+    ///
+    /// @param population    the population holding the tokens
+    /// @param queueCapacity the maximum number of pending updates before producers block
+    /// @param window        the time window in which updates are collected into one batch
+    /// @param maxBatchSize  the maximum number of slots in one batch
+    /// @param executor      the executor running the workers
+    /// @param parallelism   the number of workers a batch is split between
+    /// @throws IllegalArgumentException if a size is not positive or the window is negative
+    public IngestionPipeline(final TokenPopulation<I> population, final int queueCapacity, final Duration window,
+                             final int maxBatchSize, final Executor executor, final int parallelism) {
+        this.population = Objects.requireNonNull(population, "population must not be null");
+        Objects.requireNonNull(window, "window must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        if (queueCapacity <= 0 || maxBatchSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("queueCapacity, maxBatchSize and parallelism must be positive");
+        }
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("window must not be negative: " + window);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.parallelism = parallelism;
+        this.dispatcher = Thread.ofPlatform().name("ingestion-" + population.model().id()).daemon().start(this::dispatch);
+    }
+
+    /// Submits an update, waiting while the queue is full.
+    ///
+    /// @param slot    the slot of the token to execute
+    /// @param context the context passed to the guards, may be null
+    /// @throws InterruptedException if interrupted while waiting
+    /// @throws IllegalStateException if the pipeline is closed
+    public void submit(final long slot, final Object context) throws InterruptedException {
+        final var lock = open();
+        try {
+            queue.put(new Update(slot, context, System.nanoTime()));
+            received.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// Submits an update, waiting at most `timeout` while the queue is full.
+    ///
+    /// @param slot    the slot of the token to execute
+    /// @param context the context passed to the guards, may be null
+    /// @param timeout the maximum time to wait
+    /// @return `false` if the queue stayed full
+    /// @throws InterruptedException if interrupted while waiting
+    /// @throws IllegalStateException if the pipeline is closed
+    public boolean offer(final long slot, final Object context, final Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(timeout, "timeout must not be null");
+        final var lock = open();
+        try {
+            if (!queue.offer(new Update(slot, context, System.nanoTime()), timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            received.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /// @return the time from submitting an update until its token was executed in nanoseconds
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    /// @return the number of accepted updates
+    public long received() {
+        return received.get();
+    }
+
+    /// @return the number of updates merged into an earlier update of the same slot
+    public long coalesced() {
+        return coalesced.get();
+    }
+
+    /// @return the number of executions and batches which failed with an exception or an error
+    public long failures() {
+        return failures.get();
+    }
+
+    /// @return the number of updates waiting in the queue
+    public int pending() {
+        return queue.size();
+    }
+
+    /// Stops accepting updates and waits until all submitted updates are processed.
+    @Override
+    public void close() {
+        final var lock = closing.writeLock();
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            dispatcher.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        final var batch = new LinkedHashMap<Long, Update>();
+        Update update;
+        while ((update = queue.poll()) != null) {
+            coalesce(batch, update);
+        }
+        process(batch);
+    }
+
+    /// Locks out [#close()] until the caller has queued its update.
+    ///
+    /// @return the held read lock
+    private Lock open() throws InterruptedException {
+        final var lock = closing.readLock();
+        lock.lockInterruptibly();
+        if (closed) {
+            lock.unlock();
+            throw new IllegalStateException("Pipeline is closed");
+        }
+        return lock;
+    }
+
+    private void dispatch() {
+        final var batch = new LinkedHashMap<Long, Update>();
+        try {
+            while (!closed || !queue.isEmpty()) {
+                final var first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                coalesce(batch, first);
+                final var deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatchSize) {
+                    final var remaining = deadline - System.nanoTime();
+                    final var next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    coalesce(batch, next);
+                    if (remaining <= 0) {
+                        break;
+                    }
+                }
+                try {
+                    process(batch);
+                } catch (final RuntimeException | Error e) {
+                    failures.incrementAndGet();
+                    LOGGER.log(Level.SEVERE, e, () -> "Batch of " + batch.size() + " updates failed");
+                } finally {
+                    batch.clear();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void coalesce(final Map<Long, Update> batch, final Update update) {
+        batch.merge(update.slot(), update, (previous, latest) -> {
+            coalesced.incrementAndGet();
+            return new Update(latest.slot(), latest.context(), previous.submitted());
+        });
+    }
+
+    private void process(final Map<Long, Update> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final var updates = batch.values().toArray(Update[]::new);
+        final var chunk = (updates.length + parallelism - 1) / parallelism;
+        if (chunk == updates.length) {
+            execute(updates, 0, updates.length);
+            return;
+        }
+        final var tasks = new CompletableFuture<?>[(updates.length + chunk - 1) / chunk];
+        for (var i = 0; i < tasks.length; i++) {
+            final var from = i * chunk;
+            final var to = Math.min(updates.length, from + chunk);
+            try {
+                tasks[i] = CompletableFuture.runAsync(() -> execute(updates, from, to), executor);
+            } catch (final RejectedExecutionException e) {
+                LOGGER.log(Level.FINE, "Executor rejected a chunk, executing it on the dispatcher", e);
+                execute(updates, from, to);
+                tasks[i] = CompletableFuture.completedFuture(null);
+            }
+        }
+        CompletableFuture.allOf(tasks).join();
+    }
+
+    private void execute(final Update[] updates, final int from, final int to) {
+        for (var i = from; i < to; i++) {
+            final var update = updates[i];
+            try {
+                StateMachine.execute(population, update.slot(), update.context());
+            } catch (final RuntimeException e) {
+                failures.incrementAndGet();
+                LOGGER.log(Level.WARNING, e, () -> "Execution of slot " + update.slot() + " failed");
+            }
+            latency.record(System.nanoTime() - update.submitted());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/// A shared model of a [TopologyInterner] together with the guards of one instance.
+///
+/// Tokens are created on the shared model, so tokens of all instances of a topology are
+/// interchangeable; which guards decide the next transition is chosen by the instance which
+/// executes the token. The guards are bound for the duration of [#execute(Token, Object)] only,
+/// so tokens of the shared model cannot be executed by [StateMachine] directly, by a
+/// [TokenPopulation] or be parked at a full state.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class InternedModel<I> {
+    private final StateModel<I> model;
+    private final Map<I, State<I>> states;
+    private final Predicate<Object>[] guards;
+
+    /// The guards of the instance executing a token of a shared model on the current thread
+    private static final ScopedValue<Predicate<Object>[]> GUARDS = ScopedValue.newInstance();
+
+    InternedModel(final StateModel<I> model, final Map<I, State<I>> states, final Predicate<Object>[] guards) {
+        this.model = model;
+        this.states = states;
+        this.guards = guards;
+    }
+
+    /// @return the shared model, identical for all instances of the same topology
+    public StateModel<I> model() {
+        return model;
+    }
+
+    /// @param id a state id
+    /// @return a token of the shared model at the state
+    /// @throws IllegalArgumentException if the model has no such state
+    public Token<I> createToken(final I id) {
+        Objects.requireNonNull(id, "id must not be null");
+        final var state = states.get(id);
+        if (state == null) {
+            throw new IllegalArgumentException("State " + id + " not part of model " + model.id());
+        }
+        return model.createToken(state);
+    }
+
+    /// Executes a token with the guards of this instance, see [StateMachine#execute(Token)].
+    ///
+    /// @param token a token of the shared model
+    /// @return the final token
+    public Token<I> execute(final Token<I> token) {
+        return execute(token, null);
+    }
+
+    /// Executes a token with the guards of this instance, see [StateMachine#execute(Token, Object)].
+    ///
+    /// @param token   a token of the shared model
+    /// @param context the context passed to the guards of this instance, may be null
+    /// @return the final token
+    /// @throws IllegalArgumentException if the token belongs to another model
+    public Token<I> execute(final Token<I> token, final Object context) {
+        Objects.requireNonNull(token, "token must not be null");
+        if (token.model() != model) {
+            throw new IllegalArgumentException("Token " + token + " not part of model " + model.id());
+        }
+        @SuppressWarnings("unchecked") final Token<I>[] result = new Token[1];
+        ScopedValue.where(GUARDS, guards).run(() -> result[0] = StateMachine.execute(token, context));
+        return result[0];
+    }
+
+    /// Evaluates the guard of a transition of a shared model with the guards bound by [#execute(Token, Object)].
+    ///
+    /// @throws IllegalStateException if the shared model is executed outside of an [InternedModel]
+    static boolean test(final int ordinal, final Object context) {
+        if (!GUARDS.isBound()) {
+            throw new IllegalStateException("A shared model can only be executed through InternedModel.execute");
+        }
+        return GUARDS.get()[ordinal].test(context);
+    }
+}
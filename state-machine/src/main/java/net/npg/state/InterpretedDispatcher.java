@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/// The default [Dispatcher], evaluating the guards of the outgoing transitions of a state one
+/// after the other.
+///
+/// It reads the model on every call, so it never needs to be rebuilt when the model changes. It is
+/// also used for the steps sampled for the [FlightRecorderEvents.GuardEvaluated] event or while a
+/// [GuardProfiler] is installed, as it can time every guard.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+final class InterpretedDispatcher<I> implements Dispatcher {
+    private final StateModel<I> model;
+
+    InterpretedDispatcher(final StateModel<I> model) {
+        this.model = model;
+    }
+
+    @Override
+    public int next(final int stateOrdinal, final Object context) {
+        return next(stateOrdinal, context, FlightRecorderEvents.sampleGuards());
+    }
+
+    /// @param timed `true` to record a [FlightRecorderEvents.GuardEvaluated] event for every guard
+    int next(final int stateOrdinal, final Object context, final boolean timed) {
+        final var profiler = model.guardProfiler();
+        return select(model.state(stateOrdinal).outgoingTransitions(), transition -> {
+            if (!timed) {
+                return profiler == null ? transition.canTraverse(context) : profiler.evaluate(transition, context);
+            }
+            final var event = new FlightRecorderEvents.GuardEvaluated();
+            event.begin();
+            final var enabled = profiler == null ? transition.canTraverse(context) : profiler.evaluate(transition, context);
+            event.commit(model.id(), transition, enabled);
+            return enabled;
+        }, Transition::ordinal);
+    }
+
+    /// Evaluates the guards of the outgoing transitions of a state one after the other and stops at
+    /// the second enabled one. Shared by all models which interpret their guards.
+    ///
+    /// @param transitions the outgoing transitions
+    /// @param enabled     evaluates the guard of a transition
+    /// @param ordinal     the ordinal reported for the enabled transition
+    /// @return the ordinal of the only enabled transition, [#NONE] or [#MULTIPLE]
+    static <T> int select(final Iterable<T> transitions, final Predicate<? super T> enabled, final ToIntFunction<? super T> ordinal) {
+        T found = null;
+        for (final var transition : transitions) {
+            if (enabled.test(transition)) {
+                if (found != null) {
+                    return MULTIPLE;
+                }
+                found = transition;
+            }
+        }
+        return found == null ? NONE : ordinal.applyAsInt(found);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/// A fixed size histogram of non-negative values, e.g. durations in nanoseconds.
+///
+/// Values below 64 are counted exactly, larger values in 32 logarithmic sub-buckets per power of
+/// two, so every percentile is accurate to about 3 % (HDR style). The histogram has a constant
+/// size of about 15 KB and [#record(long)] never allocates. Recording is thread safe.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+    private static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /// Counts one value.
+    ///
+    /// @param value the value, negative values are counted as 0
+    public void record(final long value) {
+        final var v = Math.max(0, value);
+        counts.incrementAndGet(bucket(v));
+        count.incrementAndGet();
+        total.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /// @return the number of recorded values
+    public long count() {
+        return count.get();
+    }
+
+    /// @return the largest recorded value, 0 if empty
+    public long max() {
+        return max.get();
+    }
+
+    /// @return the sum of all recorded values
+    public long total() {
+        return total.get();
+    }
+
+    /// @return the arithmetic mean of all recorded values, 0 if empty
+    public double mean() {
+        final var n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /// Returns an upper bound of the value below which the given percentage of values fall.
+    ///
+    /// @param percentile the percentile between 0 and 100
+    /// @return the value at the percentile, 0 if empty
+    /// @throws IllegalArgumentException if the percentile is out of range
+    public long percentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        }
+        final var n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        final var target = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /// Adds all values of another histogram to this one.
+    ///
+    /// @param other the other histogram
+    public void add(final LatencyHistogram other) {
+        for (var i = 0; i < BUCKETS; i++) {
+            final var c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        count.addAndGet(other.count.get());
+        total.addAndGet(other.total.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /// Removes all recorded values.
+    public void reset() {
+        for (var i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    static int bucket(final long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        final var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final var mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + mantissa;
+    }
+
+    static long upperBound(final int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        final var exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+        final var mantissa = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        final var shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + mantissa) << shift) + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{" +
+                "count=" + count() +
+                ", p50=" + percentile(50) +
+                ", p99=" + percentile(99) +
+                ", max=" + max() +
+                '}';
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// A model whose states are loaded on demand from a [StateSource] and kept in a bounded cache.
+///
+/// Huge generated models may have millions of states while one deployment only visits a small
+/// working set of them. A lazy model only keeps the outgoing transitions of the recently used
+/// states in memory. Tokens of a lazy model are plain state ids, see
+/// [StateMachine#execute(LazyStateModel, Object, Object)].
+///
+/// The cache is a [ConcurrentHashMap] with CLOCK eviction: a hit only sets the referenced bit of
+/// the entry, so concurrent executions never share a lock. When the cache is full the clock hand
+/// evicts the first entry which was not referenced since its last visit, an approximation of the
+/// least recently used state. A state may be loaded twice by concurrent executions. Tokens,
+/// listeners, capacities, parallel states and generated dispatchers are only available for
+/// [StateModel].
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class LazyStateModel<I> {
+    /// Default maximum number of cached states
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+
+    private final I id;
+    private final StateSource<I> source;
+    private final int cacheSize;
+    private final ConcurrentHashMap<I, Entry<I>> cache = new ConcurrentHashMap<>();
+    private final Queue<I> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /// Creates a model with a cache of [#DEFAULT_CACHE_SIZE] states.
+    ///
+    /// @param id     the model id
+    /// @param source the source of the states
+    public LazyStateModel(final I id, final StateSource<I> source) {
+        this(id, source, DEFAULT_CACHE_SIZE);
+    }
+
+    /// Creates a model.
+    ///
+    /// @param id        the model id
+    /// @param source    the source of the states
+    /// @param cacheSize the maximum number of cached states
+    /// @throws IllegalArgumentException if the cache size is not positive
+    public LazyStateModel(final I id, final StateSource<I> source, final int cacheSize) {
+        this.id = Objects.requireNonNull(id, "id must not be null");
+        this.source = Objects.requireNonNull(source, "source must not be null");
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("cacheSize must be positive: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    /// A cached state with the referenced bit of the clock.
+    private static final class Entry<I> {
+        private final List<LazyTransition<I>> transitions;
+        private volatile boolean referenced;
+
+        Entry(final List<LazyTransition<I>> transitions) {
+            this.transitions = transitions;
+        }
+    }
+
+    /// @return the model id
+    public I id() {
+        return id;
+    }
+
+    /// Returns the outgoing transitions of a state, loading the state if it is not cached.
+    ///
+    /// @param state the state id
+    /// @return the outgoing transitions
+    /// @throws IllegalArgumentException if the source does not know the state
+    public List<LazyTransition<I>> outgoingTransitions(final I state) {
+        Objects.requireNonNull(state, "state must not be null");
+        final var cached = cache.get(state);
+        if (cached != null) {
+            if (!cached.referenced) {
+                cached.referenced = true;
+            }
+            hits.incrementAndGet();
+            return cached.transitions;
+        }
+        final var loaded = new Entry<>(List.copyOf(source.load(state)
+                .orElseThrow(() -> new IllegalArgumentException("State " + state + " not part of model " + id))));
+        loads.incrementAndGet();
+        final var raced = cache.putIfAbsent(state, loaded);
+        if (raced != null) {
+            return raced.transitions;
+        }
+        clock.add(state);
+        if (size.incrementAndGet() > cacheSize) {
+            evict();
+        }
+        return loaded.transitions;
+    }
+
+    /// Advances the clock hand until the cache fits, giving referenced entries a second chance.
+    private void evict() {
+        while (size.get() > cacheSize) {
+            final var state = clock.poll();
+            if (state == null) {
+                return;
+            }
+            final var entry = cache.get(state);
+            if (entry.referenced) {
+                entry.referenced = false;
+                clock.add(state);
+            } else if (cache.remove(state, entry)) {
+                size.decrementAndGet();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /// @param state the state id
+    /// @return `true` if the state is currently cached
+    public boolean isCached(final I state) {
+        return cache.containsKey(state);
+    }
+
+    /// @return the number of cached states
+    public int cachedStates() {
+        return size.get();
+    }
+
+    /// @return the number of lookups answered by the cache
+    public long hits() {
+        return hits.get();
+    }
+
+    /// @return the number of states loaded from the source
+    public long loads() {
+        return loads.get();
+    }
+
+    /// @return the number of states evicted from the cache
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LazyStateModel{" +
+                "id=" + id +
+                ", cacheSize=" + cacheSize +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/// An outgoing transition of a state of a [LazyStateModel], loaded from a [StateSource].
+///
+/// In contrast to [Transition] the target is referenced by its id, so loading a state does not
+/// load its neighbours.
+///
+/// @param <I>    The type of the state identifier (e.g., String, Integer)
+/// @param id     the id of the transition
+/// @param target the id of the target state
+/// @param guard  the guard, receives the context passed to the state machine
+public record LazyTransition<I>(I id, I target, Predicate<Object> guard) {
+
+    /// Ensure that all fields are set
+    public LazyTransition {
+        Objects.requireNonNull(id, "id must not be null");
+        Objects.requireNonNull(target, "target must not be null");
+        Objects.requireNonNull(guard, "guard must not be null");
+    }
+}
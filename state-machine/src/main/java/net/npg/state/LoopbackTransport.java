@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/// An in-process [PartitionTransport] which delivers every message synchronously to the receiver.
+///
+/// Several [PartitionNode]s in one JVM can use the same loopback transport to simulate a cluster.
+public final class LoopbackTransport implements PartitionTransport {
+    private final Map<String, Consumer<PartitionMessage>> receivers = new ConcurrentHashMap<>();
+    private final AtomicLong messages = new AtomicLong();
+
+    @Override
+    public void register(final String node, final Consumer<PartitionMessage> receiver) {
+        Objects.requireNonNull(node, "node must not be null");
+        Objects.requireNonNull(receiver, "receiver must not be null");
+        if (receivers.putIfAbsent(node, receiver) != null) {
+            throw new IllegalArgumentException("Node " + node + " already registered");
+        }
+    }
+
+    @Override
+    public void unregister(final String node) {
+        receivers.remove(node);
+    }
+
+    /// @throws IllegalStateException if no receiver is registered for the node
+    @Override
+    public void send(final String node, final PartitionMessage message) {
+        Objects.requireNonNull(message, "message must not be null");
+        final var receiver = receivers.get(node);
+        if (receiver == null) {
+            throw new IllegalStateException("Unknown node " + node);
+        }
+        messages.incrementAndGet();
+        receiver.accept(message);
+    }
+
+    /// @return the number of delivered messages
+    public long messages() {
+        return messages.get();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Map;
+import java.util.Objects;
+
+/// The result of [StateModelMinimizer#minimize(StateModel)]: the smaller model and the mapping of
+/// the states of the original model to their replacements.
+///
+/// @param <I>      The type of the state identifier (e.g., String, Integer)
+/// @param model    the minimized model
+/// @param original the original model
+/// @param mapping  the state of the minimized model for every state id of the original model
+public record MinimizedModel<I>(StateModel<I> model, StateModel<I> original, Map<I, State<I>> mapping) {
+
+    /// Ensure that all fields are set
+    public MinimizedModel {
+        Objects.requireNonNull(model, "model must not be null");
+        Objects.requireNonNull(original, "original must not be null");
+        mapping = Map.copyOf(mapping);
+    }
+
+    /// @param originalId the id of a state of the original model
+    /// @return the state of the minimized model which replaces it
+    /// @throws IllegalArgumentException if the id is not a state of the original model
+    public State<I> state(final I originalId) {
+        final var state = mapping.get(originalId);
+        if (state == null) {
+            throw new IllegalArgumentException("State " + originalId + " not part of model " + original.id());
+        }
+        return state;
+    }
+
+    /// Converts a token of the original model into a token of the minimized model.
+    ///
+    /// @param token a token of the original model
+    /// @return a token at the replacing state
+    /// @throws IllegalArgumentException if the token belongs to another model
+    public Token<I> token(final Token<I> token) {
+        Objects.requireNonNull(token, "token must not be null");
+        if (token.model() != original) {
+            throw new IllegalArgumentException("Token " + token + " not part of model " + original.id());
+        }
+        return model.createToken(state(token.state().id()));
+    }
+
+    /// @return how many states were removed
+    public int removedStates() {
+        return original.states().size() - model.states().size();
+    }
+}
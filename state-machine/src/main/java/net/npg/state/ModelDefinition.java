@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/// Declares a stable model which is compiled at build time.
+///
+/// The annotation processor of the `model-compiler` module validates the definition while
+/// compiling and generates a class next to the annotated type. The generated class has
+/// ordinal constants for every state (`STATE_<ID>`) and transition (`TRANSITION_<ID>`), a
+/// `Guards` interface with one method per transition and a `create(Guards)` method which builds
+/// the model with [StateModelBuilder#compiled] without any validation at runtime.
+///
+/// State and transition ids are strings, transition ids must be valid Java identifiers as they
+/// name the guard methods.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ModelDefinition {
+
+    /// @return the id of the model
+    String id();
+
+    /// @return the state ids in ordinal order
+    String[] states();
+
+    /// @return the transitions in ordinal order
+    TransitionDefinition[] transitions();
+
+    /// @return the simple name of the generated class, `<annotated type>Compiled` if empty
+    String className() default "";
+}
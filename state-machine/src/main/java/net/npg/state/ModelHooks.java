@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/// The listeners of a [StateModel], stored as arrays indexed by state and transition ordinal.
+///
+/// A state or transition without listeners has a `null` slot, so [StateMachine] pays one array
+/// read per step and never unwraps an [java.util.Optional] or allocates a lambda. All arrays are
+/// replaced on modification and can be read without locking.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+final class ModelHooks<I> {
+    private static final Logger LOGGER = Logger.getLogger(StateMachine.class.getName());
+    private static final HookExceptionHandler<?> LOGGING_HANDLER = (transition, exception) ->
+            LOGGER.log(Level.WARNING, exception, () -> "Caught exception in listener while processing " + transition);
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<State<I>>[] noStateListeners = new Consumer[0];
+    @SuppressWarnings("unchecked")
+    private final TransitionListener<I>[] noTransitionListeners = new TransitionListener[0];
+
+    @SuppressWarnings("unchecked")
+    private volatile Consumer<State<I>>[][] entryListeners = new Consumer[0][];
+    @SuppressWarnings("unchecked")
+    private volatile Consumer<State<I>>[][] exitListeners = new Consumer[0][];
+    @SuppressWarnings("unchecked")
+    private volatile TransitionListener<I>[][] transitionListeners = new TransitionListener[0][];
+    private volatile TransitionListener<I>[] modelListeners = noTransitionListeners;
+    private volatile HookExceptionHandler<I> exceptionHandler = loggingHandler();
+    private final Object modelId;
+
+    ModelHooks(final Object modelId) {
+        this.modelId = modelId;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <I> HookExceptionHandler<I> loggingHandler() {
+        return (HookExceptionHandler<I>) LOGGING_HANDLER;
+    }
+
+    synchronized void addEntryListener(final int stateOrdinal, final Consumer<State<I>> listener) {
+        entryListeners = append(entryListeners, stateOrdinal, noStateListeners, listener);
+    }
+
+    synchronized void addExitListener(final int stateOrdinal, final Consumer<State<I>> listener) {
+        exitListeners = append(exitListeners, stateOrdinal, noStateListeners, listener);
+    }
+
+    synchronized void addTransitionListener(final int transitionOrdinal, final TransitionListener<I> listener) {
+        transitionListeners = append(transitionListeners, transitionOrdinal, noTransitionListeners, listener);
+    }
+
+    synchronized void addModelListener(final TransitionListener<I> listener) {
+        final var listeners = Arrays.copyOf(modelListeners, modelListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        modelListeners = listeners;
+    }
+
+    synchronized boolean removeModelListener(final TransitionListener<I> listener) {
+        final var list = new ArrayList<>(Arrays.asList(modelListeners));
+        final var removed = list.remove(listener);
+        if (removed) {
+            modelListeners = list.toArray(noTransitionListeners);
+        }
+        return removed;
+    }
+
+    void setExceptionHandler(final HookExceptionHandler<I> handler) {
+        exceptionHandler = Objects.requireNonNull(handler, "handler must not be null");
+    }
+
+    /// @return the entry listeners of a state, `null` if none
+    Consumer<State<I>>[] entryListeners(final int stateOrdinal) {
+        return row(entryListeners, stateOrdinal);
+    }
+
+    /// @return the exit listeners of a state, `null` if none
+    Consumer<State<I>>[] exitListeners(final int stateOrdinal) {
+        return row(exitListeners, stateOrdinal);
+    }
+
+    /// @return the listeners of a transition, `null` if none
+    TransitionListener<I>[] transitionListeners(final int transitionOrdinal) {
+        return row(transitionListeners, transitionOrdinal);
+    }
+
+    /// @return the listeners of all transitions of the model
+    TransitionListener<I>[] modelListeners() {
+        return modelListeners;
+    }
+
+    HookExceptionHandler<I> exceptionHandler() {
+        return exceptionHandler;
+    }
+
+    /// Calls the exit listeners of the source and the listeners of the transition.
+    void beforeTransition(final Transition<I> transition, final Object context) {
+        final var exit = row(exitListeners, transition.source().ordinal());
+        if (exit != null) {
+            fire(exit, transition.source(), transition, "exit");
+        }
+        final var listeners = row(transitionListeners, transition.ordinal());
+        if (listeners != null) {
+            fire(listeners, transition, context, "transition");
+        }
+    }
+
+    /// Calls the entry listeners of the target and the listeners of the model.
+    void afterTransition(final Transition<I> transition, final Object context) {
+        final var entry = row(entryListeners, transition.target().ordinal());
+        if (entry != null) {
+            fire(entry, transition.target(), transition, "entry");
+        }
+        final var listeners = modelListeners;
+        if (listeners.length > 0) {
+            fire(listeners, transition, context, "model");
+        }
+    }
+
+    private void fire(final Consumer<State<I>>[] listeners, final State<I> state, final Transition<I> transition, final String kind) {
+        for (final var listener : listeners) {
+            final var event = new FlightRecorderEvents.ListenerInvoked();
+            event.begin();
+            try {
+                listener.accept(state);
+            } catch (final Exception e) {
+                exceptionHandler.onException(transition, e);
+            }
+            event.commit(modelId, transition, kind, listener);
+        }
+    }
+
+    private void fire(final TransitionListener<I>[] listeners, final Transition<I> transition, final Object context, final String kind) {
+        for (final var listener : listeners) {
+            final var event = new FlightRecorderEvents.ListenerInvoked();
+            event.begin();
+            try {
+                listener.onTransition(transition, context);
+            } catch (final Exception e) {
+                exceptionHandler.onException(transition, e);
+            }
+            event.commit(modelId, transition, kind, listener);
+        }
+    }
+
+    private static <T> T[] row(final T[][] table, final int ordinal) {
+        return ordinal >= 0 && ordinal < table.length ? table[ordinal] : null;
+    }
+
+    private static <T> T[][] append(final T[][] table, final int ordinal, final T[] empty, final T listener) {
+        Objects.requireNonNull(listener, "listener must not be null");
+        final var result = Arrays.copyOf(table, Math.max(table.length, ordinal + 1));
+        final var row = result[ordinal] == null ? empty : result[ordinal];
+        final var newRow = Arrays.copyOf(row, row.length + 1);
+        newRow[row.length] = listener;
+        result[ordinal] = newRow;
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+/// Gives a [GuardExpression] access to the numeric fields of one entity.
+///
+/// Pass an implementation as context to [StateMachine#execute(Token, Object)] when the model
+/// contains transitions guarded by expressions.
+@FunctionalInterface
+public interface NumericFields {
+
+    /// @param index the field index used in the [GuardExpression]
+    /// @return the value of the field
+    double field(int index);
+
+    /// Returns the fields of one row of columnar data, see [BatchGuardEvaluator].
+    ///
+    /// @param columns the values of field `i` are stored in `columns[i]`
+    /// @param row     the row index
+    /// @return the fields of the row
+    static NumericFields row(final double[][] columns, final int row) {
+        return index -> columns[index][row];
+    }
+}
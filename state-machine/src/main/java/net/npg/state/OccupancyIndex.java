@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/// The per-state occupancy index of a [TokenPopulation].
+///
+/// Every state ordinal owns a bitset with one bit per slot and a striped [LongAdder] counter.
+/// Bits are set and cleared with atomic bitwise operations, so threads working on different slots
+/// of the same word do not lose updates. The tables grow when states are added to the model later.
+final class OccupancyIndex {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int words;
+    private volatile long[][] bits;
+    private volatile LongAdder[] counts;
+
+    OccupancyIndex(final int states, final long capacity) {
+        this.words = Math.toIntExact((capacity + Long.SIZE - 1) >>> 6);
+        this.bits = new long[0][];
+        this.counts = new LongAdder[0];
+        grow(states);
+    }
+
+    void add(final int ordinal, final long slot) {
+        ensureState(ordinal);
+        WORDS.getAndBitwiseOr(bits[ordinal], (int) (slot >>> 6), 1L << slot);
+        counts[ordinal].increment();
+    }
+
+    void remove(final int ordinal, final long slot) {
+        WORDS.getAndBitwiseAnd(bits[ordinal], (int) (slot >>> 6), ~(1L << slot));
+        counts[ordinal].decrement();
+    }
+
+    long count(final int ordinal) {
+        final var current = counts;
+        return ordinal < current.length ? current[ordinal].sum() : 0;
+    }
+
+    /// Iterates the slots of a state in ascending order. Concurrent updates may or may not be visible.
+    LongStream slots(final int ordinal) {
+        final var current = bits;
+        if (ordinal >= current.length) {
+            return LongStream.empty();
+        }
+        final var iterator = new SlotIterator(current[ordinal]);
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.NONNULL), false);
+    }
+
+    /// Removes all slots, used before the index is rebuilt.
+    synchronized void clear() {
+        final var states = bits.length;
+        bits = new long[0][];
+        counts = new LongAdder[0];
+        grow(states);
+    }
+
+    private void ensureState(final int ordinal) {
+        if (ordinal >= counts.length) {
+            synchronized (this) {
+                grow(ordinal + 1);
+            }
+        }
+    }
+
+    private void grow(final int states) {
+        final var oldBits = bits;
+        final var oldCounts = counts;
+        if (states <= oldCounts.length) {
+            return;
+        }
+        final var newBits = Arrays.copyOf(oldBits, states);
+        final var newCounts = Arrays.copyOf(oldCounts, states);
+        for (var i = oldCounts.length; i < states; i++) {
+            newBits[i] = new long[words];
+            newCounts[i] = new LongAdder();
+        }
+        bits = newBits;
+        counts = newCounts;
+    }
+
+    private static final class SlotIterator implements PrimitiveIterator.OfLong {
+        private final long[] words;
+        private int index = -1;
+        private long word;
+
+        SlotIterator(final long[] words) {
+            this.words = words;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (word == 0) {
+                if (++index >= words.length) {
+                    return false;
+                }
+                word = (long) WORDS.getVolatile(words, index);
+            }
+            return true;
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final var bit = Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+            return ((long) index << 6) + bit;
+        }
+    }
+}
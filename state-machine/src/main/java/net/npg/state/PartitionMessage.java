@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+
+/// A message between the [PartitionNode]s of a partitioned runtime, see [PartitionTransport].
+public sealed interface PartitionMessage {
+
+    /// Executes the token of an entity with a context for the guards on its owning node.
+    ///
+    /// @param key     the entity key
+    /// @param context the context passed to the guards, may be null. Remote transports must be able to serialize it.
+    /// @param hops    the number of times the trigger was forwarded to another node
+    record Trigger(long key, Object context, int hops) implements PartitionMessage {
+
+        /// Creates a trigger which was not forwarded yet.
+        ///
+        /// @param key     the entity key
+        /// @param context the context passed to the guards, may be null
+        public Trigger(final long key, final Object context) {
+            this(key, context, 0);
+        }
+
+        /// @return this trigger forwarded once more
+        Trigger forwarded() {
+            return new Trigger(key, context, hops + 1);
+        }
+    }
+
+    /// Hands the positions of tokens over to a new owner in bulk.
+    ///
+    /// @param keys     the entity keys
+    /// @param ordinals the state ordinal of the token of each key
+    record Handoff(long[] keys, int[] ordinals) implements PartitionMessage {
+
+        /// Ensure that both arrays have the same length
+        public Handoff {
+            Objects.requireNonNull(keys, "keys must not be null");
+            Objects.requireNonNull(ordinals, "ordinals must not be null");
+            if (keys.length != ordinals.length) {
+                throw new IllegalArgumentException("keys and ordinals differ in length: " + keys.length + " != " + ordinals.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/// One node of a partitioned runtime which spreads the tokens of a [StateModel] over several JVMs.
+///
+/// The tokens are assigned to the nodes by a [ConsistentHashRing] over their entity key. Each node
+/// stores the state ordinals of the tokens it owns and executes them locally with
+/// [StateMachine#execute(Token, Object)]. Triggers for tokens owned by another node are routed to
+/// it by the [PartitionTransport]. When the members of the cluster change, [#rebalance(Collection)]
+/// hands all tokens which moved to another node over in one [PartitionMessage.Handoff] per node.
+///
+/// The tokens owned by a node are counted against the capacities of the local model, see
+/// [StateModel#setCapacity(State, int)]; tokens handed over to a node are always accepted, even
+/// if this exceeds a capacity.
+///
+/// All nodes must use the same model. The membership views of the nodes are expected to converge;
+/// a node receiving a trigger for a key it does not own forwards it to the owner of its own view,
+/// at most [#MAX_HOPS] times. A token is executed outside of the token map, so listeners may
+/// trigger other keys; if the token of the key changed meanwhile the trigger fails.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class PartitionNode<I> implements AutoCloseable {
+    /// Maximum number of times a trigger is forwarded before it is rejected, e.g. while the
+    /// membership views of the nodes disagree
+    public static final int MAX_HOPS = 8;
+
+    private final String id;
+    private final StateModel<I> model;
+    private final PartitionTransport transport;
+    private final Map<Long, Integer> tokens = new ConcurrentHashMap<>();
+    private volatile ConsistentHashRing ring;
+
+    /// Creates a node and registers it at the transport.
+    ///
+    /// @param id        the node id, unique in the cluster
+    /// @param model     the model of all tokens
+    /// @param transport the transport to the other nodes
+    /// @param members   the ids of all nodes of the cluster including this one
+    /// @throws IllegalArgumentException if this node is not a member
+    public PartitionNode(final String id, final StateModel<I> model, final PartitionTransport transport, final Collection<String> members) {
+        this.id = Objects.requireNonNull(id, "id must not be null");
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        this.transport = Objects.requireNonNull(transport, "transport must not be null");
+        this.ring = createRing(members);
+        transport.register(id, this::receive);
+    }
+
+    /// @return the node id
+    public String id() {
+        return id;
+    }
+
+    /// @return the model of all tokens
+    public StateModel<I> model() {
+        return model;
+    }
+
+    /// @param key an entity key
+    /// @return the id of the node owning the key in the view of this node
+    public String owner(final long key) {
+        return ring.owner(key);
+    }
+
+    /// @return the number of tokens owned by this node
+    public int size() {
+        return tokens.size();
+    }
+
+    /// @param key an entity key
+    /// @return the state of the token if it is owned by this node
+    public Optional<State<I>> localState(final long key) {
+        final var ordinal = tokens.get(key);
+        return ordinal == null ? Optional.empty() : Optional.of(model.state(ordinal));
+    }
+
+    /// Places the token of an entity on its owning node.
+    ///
+    /// @param key   the entity key
+    /// @param state the state of the token
+    /// @throws IllegalArgumentException if the state is not part of the model
+    public void put(final long key, final State<I> state) {
+        Objects.requireNonNull(state, "state must not be null");
+        if (!model.contains(state)) {
+            throw new IllegalArgumentException("State " + state + " not part of model " + model);
+        }
+        route(key, new PartitionMessage.Handoff(new long[]{key}, new int[]{state.ordinal()}));
+    }
+
+    /// Executes the token of an entity on its owning node.
+    ///
+    /// @param key     the entity key
+    /// @param context the context passed to the guards, may be null
+    public void trigger(final long key, final Object context) {
+        route(key, new PartitionMessage.Trigger(key, context));
+    }
+
+    /// Changes the members of the cluster and hands the tokens now owned by other nodes over to them.
+    ///
+    /// @param members the ids of all nodes of the cluster, must include this node
+    /// @throws IllegalArgumentException if this node is not a member
+    public void rebalance(final Collection<String> members) {
+        ring = createRing(members);
+        handoff(ring, false);
+    }
+
+    /// Leaves the cluster: hands all tokens over to the remaining members and unregisters from the transport.
+    ///
+    /// @param remaining the ids of the remaining nodes
+    /// @throws IllegalStateException if the node owns tokens and no other node remains
+    public void leave(final Collection<String> remaining) {
+        Objects.requireNonNull(remaining, "remaining must not be null");
+        final var others = remaining.stream().filter(node -> !node.equals(id)).toList();
+        if (!tokens.isEmpty()) {
+            if (others.isEmpty()) {
+                throw new IllegalStateException("Node " + id + " cannot hand over its tokens to an empty cluster");
+            }
+            handoff(new ConsistentHashRing(others), true);
+        }
+        close();
+    }
+
+    /// Unregisters the node from the transport, the tokens still owned by the node are lost.
+    @Override
+    public void close() {
+        transport.unregister(id);
+    }
+
+    private void handoff(final ConsistentHashRing target, final boolean all) {
+        final var moved = new HashMap<String, List<Long>>();
+        for (final var key : tokens.keySet()) {
+            final var owner = target.owner(key);
+            if (all || !owner.equals(id)) {
+                moved.computeIfAbsent(owner, node -> new ArrayList<>()).add(key);
+            }
+        }
+        moved.forEach((owner, keys) -> {
+            final var keyArray = new long[keys.size()];
+            final var ordinals = new int[keys.size()];
+            var count = 0;
+            for (final var key : keys) {
+                final var ordinal = tokens.remove(key);
+                if (ordinal != null) {
+                    release(ordinal);
+                    keyArray[count] = key;
+                    ordinals[count++] = ordinal;
+                }
+            }
+            transport.send(owner, new PartitionMessage.Handoff(Arrays.copyOf(keyArray, count), Arrays.copyOf(ordinals, count)));
+        });
+    }
+
+    private void route(final long key, final PartitionMessage message) {
+        final var owner = ring.owner(key);
+        if (owner.equals(id)) {
+            receive(message);
+        } else {
+            transport.send(owner, message);
+        }
+    }
+
+    private void receive(final PartitionMessage message) {
+        switch (message) {
+            case PartitionMessage.Trigger trigger -> execute(trigger);
+            case PartitionMessage.Handoff handoff -> {
+                for (var i = 0; i < handoff.keys().length; i++) {
+                    count(handoff.ordinals()[i]);
+                    final var previous = tokens.put(handoff.keys()[i], handoff.ordinals()[i]);
+                    if (previous != null) {
+                        release(previous);
+                    }
+                }
+            }
+        }
+    }
+
+    private void execute(final PartitionMessage.Trigger trigger) {
+        final var key = trigger.key();
+        final var owner = ring.owner(key);
+        if (!owner.equals(id) && !tokens.containsKey(key)) {
+            if (trigger.hops() >= MAX_HOPS) {
+                throw new IllegalStateException("Trigger for key " + key + " not delivered after " + MAX_HOPS + " hops, node " + id
+                        + " forwards it to " + owner);
+            }
+            transport.send(owner, trigger.forwarded());
+            return;
+        }
+        final var ordinal = tokens.get(key);
+        if (ordinal == null) {
+            throw new IllegalStateException("No token for key " + key + " on node " + id);
+        }
+        final var next = StateMachine.execute(new Token<>(model.state(ordinal), model), trigger.context()).state().ordinal();
+        if (next != ordinal && !tokens.replace(key, ordinal, next)) {
+            release(next);
+            count(ordinal);
+            throw new IllegalStateException("Token of key " + key + " changed on node " + id + " during the trigger, the result is discarded");
+        }
+    }
+
+    /// Counts a token which arrived at this node.
+    private void count(final int ordinal) {
+        final var gate = model.gate(model.state(ordinal));
+        if (gate != null) {
+            gate.add();
+        }
+    }
+
+    /// Frees the slot of a token which left this node.
+    private void release(final int ordinal) {
+        final var gate = model.gate(model.state(ordinal));
+        if (gate != null) {
+            gate.release();
+        }
+    }
+
+    private ConsistentHashRing createRing(final Collection<String> members) {
+        Objects.requireNonNull(members, "members must not be null");
+        if (!members.contains(id)) {
+            throw new IllegalArgumentException("Node " + id + " is not a member of " + members);
+        }
+        return new ConsistentHashRing(members);
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionNode{" +
+                "id=" + id +
+                ", model=" + model.id() +
+                ", tokens=" + tokens.size() +
+                '}';
+    }
+}
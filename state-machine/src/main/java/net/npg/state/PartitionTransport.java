@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.function.Consumer;
+
+/// Delivers [PartitionMessage]s between the nodes of a partitioned runtime.
+///
+/// Implementations may deliver messages synchronously or asynchronously, but must keep the order
+/// of the messages sent from one node to another.
+///
+/// @see LoopbackTransport
+/// @see PartitionNode
+public interface PartitionTransport {
+
+    /// Registers the receiver of the messages for a node.
+    ///
+    /// @param node     the node id
+    /// @param receiver the receiver
+    void register(String node, Consumer<PartitionMessage> receiver);
+
+    /// Removes the receiver of a node.
+    ///
+    /// @param node the node id
+    void unregister(String node);
+
+    /// Sends a message to a node.
+    ///
+    /// @param node    the id of the receiving node
+    /// @param message the message
+    void send(String node, PartitionMessage message);
+}
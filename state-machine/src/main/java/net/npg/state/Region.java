@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+
+/// An orthogonal region of a parallel state: an independent sub-workflow which runs while the
+/// token of the parent model stays in the parallel state.
+///
+/// A region is a [StateModel] of its own with an initial and a final state. When a token enters
+/// the parallel state every region starts at its initial state. The transitions leaving the
+/// parallel state are join transitions, they are only enabled once all regions reached their
+/// final states.
+///
+/// @param <I>          The type of the state identifier (e.g., String, Integer)
+/// @param model        the model of the sub-workflow
+/// @param initialState the state in which the region starts
+/// @param finalState   the state which completes the region
+/// @see StateModel#addParallelState(Object, java.util.List)
+/// @see CompositeToken
+public record Region<I>(StateModel<I> model, State<I> initialState, State<I> finalState) {
+
+    /// Ensure that all fields are set and the states are part of the model
+    public Region {
+        Objects.requireNonNull(model, "model must not be null");
+        Objects.requireNonNull(initialState, "initialState must not be null");
+        Objects.requireNonNull(finalState, "finalState must not be null");
+        if (!model.contains(initialState) || !model.contains(finalState)) {
+            throw new IllegalArgumentException("Both states (" + initialState + ", " + finalState + ") must be from the region model: " + model.id());
+        }
+    }
+
+    /// @param token a token of this region
+    /// @return `true` if the token reached the final state of this region
+    boolean isFinished(final Token<I> token) {
+        return token.state() == finalState;
+    }
+
+    @Override
+    public String toString() {
+        return "Region{" +
+                "model=" + model.id() +
+                '}';
+    }
+}
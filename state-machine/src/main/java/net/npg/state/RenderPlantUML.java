@@ -17,9 +17,6 @@
  */
 package net.npg.state;
 
-import java.util.Collection;
-import java.util.stream.Collectors;
-
 /// Utility class for generating PlantUML diagrams and markdown representations of state models.
 /// This class provides static methods to convert [StateModel] instances into PlantUML syntax
 /// and markdown-formatted PlantUML code blocks.
@@ -34,35 +31,61 @@ public final class RenderPlantUML {
     ///
     /// This method constructs a UML state diagram by:
     /// 1. Adding state nodes for each state in the model
-    /// 2. Creating transition arrows between states with transition IDs as labels
+    /// 2. Creating transition arrows between states with transition IDs as labels, in ordinal order
     /// 3. Wrapping the diagram in PlantUML syntax (`@startuml`/`@enduml`)
     ///
     /// @param model The state model to convert to a diagram
     /// @return A string containing the PlantUML diagram syntax
     public static String generate(final StateModel<?> model) {
+        return generate(model, null);
+    }
+
+    /// Generates a PlantUML diagram in which the transitions are colored by the cost of their guards.
+    ///
+    /// The transition with the highest estimated guard time of the [GuardProfiler] is red, cheaper
+    /// transitions fade to yellow, transitions without samples keep the default color. The label of
+    /// a sampled transition shows the mean guard time.
+    ///
+    /// @param model    The state model to convert to a diagram
+    /// @param profiler The profiler of the model, `null` for a plain diagram
+    /// @param <I>      The type of the state identifier
+    /// @return A string containing the PlantUML diagram syntax
+    public static <I> String generate(final StateModel<I> model, final GuardProfiler<I> profiler) {
         final var diagram = new StringBuilder();
         diagram.append("@startuml").append("\n");
 
         model.states()
                 .forEach(state -> diagram.append("state ").append(state.id()).append("\n"));
-        final var transitions = model.states().stream()
-                .map(State::outgoingTransitions)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toSet());
-
-        for (final var transition : transitions) {
+        final var costs = new GuardProfiler.GuardCost<?>[model.transitions().size()];
+        var maxCost = 0L;
+        if (profiler != null) {
+            for (final var cost : profiler.top(Integer.MAX_VALUE)) {
+                costs[cost.transition().ordinal()] = cost;
+                maxCost = Math.max(maxCost, cost.estimatedNanos());
+            }
+        }
+        for (final var transition : model.transitions()) {
+            final var cost = costs[transition.ordinal()];
             diagram.append(transition.source().id())
-                    .append(" --> ")
+                    .append(cost == null ? " --> " : " -[" + heatColor(cost.estimatedNanos(), maxCost) + ",bold]-> ")
                     .append(transition.target().id())
                     .append(" : ")
-                    .append(transition.id())
-                    .append("\n");
+                    .append(transition.id());
+            if (cost != null) {
+                diagram.append("\\n").append(Math.round(cost.meanNanos())).append(" ns");
+            }
+            diagram.append("\n");
         }
 
         diagram.append("@enduml").append("\n");
         return diagram.toString();
     }
 
+    private static String heatColor(final long cost, final long maxCost) {
+        final var heat = maxCost == 0 ? 0.0 : (double) cost / maxCost;
+        return String.format("#FF%02X00", Math.round(255 * (1 - heat)));
+    }
+
     /// Generates a markdown-formatted PlantUML diagram from the provided state model.
     ///
     /// This method:
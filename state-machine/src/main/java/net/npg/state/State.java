@@ -33,19 +33,29 @@ import java.util.function.Consumer;
 /// the record itself is immutable, the transition collections provide mutable operations
 /// for adding transitions dynamically.
 ///
+/// A state is identified by its model and its ordinal. As a [StateModel] creates exactly one
+/// instance per ordinal, [#equals(Object)] is a reference comparison and [#hashCode()] does not
+/// depend on the transitions, so states are cheap and stable keys for hash maps.
+///
 /// @param <I>                 The type of the state identifier (e.g., String, Integer)
 /// @param id                  a unique identifier for this state
 /// @param outgoingTransitions a collection of outgoing transitions
 /// @param incomingTransitions a collection of incoming transitions
-/// @param stateListener       an optional state listener which is called if a token reaches this state
+/// @param stateListener       an optional state listener which is called if a token reaches this state, it is the first
+///                            entry listener of the state, see [StateModel#addEntryListener(State, Consumer)]
+/// @param ordinal             the dense index of this state inside its [StateModel], or [#UNASSIGNED]
 /// @see Transition
 /// @see StateModel
 public record State<I>(
         I id,
         Collection<Transition<I>> outgoingTransitions,
         Collection<Transition<I>> incomingTransitions,
-        Optional<Consumer<State<I>>> stateListener
+        Optional<Consumer<State<I>>> stateListener,
+        int ordinal
 ) {
+    /// Ordinal of a state which was not created by a [StateModel]
+    public static final int UNASSIGNED = -1;
+
     /// Constructs a new state with the specified identifier and empty transition collections.
     ///
     /// The resulting state has no outgoing or incoming transitions by default. Transitions
@@ -55,7 +65,16 @@ public record State<I>(
     /// @param id The unique identifier for the state
     /// @throws NullPointerException if the provided identifier is null
     State(final I id) {
-        this(Objects.requireNonNull(id), new ArrayList<>(), new ArrayList<>(), Optional.empty());
+        this(id, UNASSIGNED);
+    }
+
+    /// Constructs a new state with the specified identifier and ordinal and empty transition collections.
+    ///
+    /// @param id      The unique identifier for the state
+    /// @param ordinal the ordinal assigned by the [StateModel]
+    /// @throws NullPointerException if the provided identifier is null
+    State(final I id, final int ordinal) {
+        this(Objects.requireNonNull(id), new ArrayList<>(), new ArrayList<>(), Optional.empty(), ordinal);
     }
 
     /// Constructs a new state with the specified identifier, empty transition collections and a state listener.
@@ -68,7 +87,17 @@ public record State<I>(
     /// @param id            The unique identifier for the state
     /// @throws NullPointerException if the provided identifier is null
     State(final I id, final Consumer<State<I>> stateListener) {
-        this(Objects.requireNonNull(id), new ArrayList<>(), new ArrayList<>(), Optional.of(Objects.requireNonNull(stateListener)));
+        this(id, stateListener, UNASSIGNED);
+    }
+
+    /// Constructs a new state with the specified identifier, ordinal, empty transition collections and a state listener.
+    ///
+    /// @param id            The unique identifier for the state
+    /// @param stateListener a stateListener which is called when a token reaches this state
+    /// @param ordinal       the ordinal assigned by the [StateModel]
+    /// @throws NullPointerException if the provided identifier or listener is null
+    State(final I id, final Consumer<State<I>> stateListener, final int ordinal) {
+        this(Objects.requireNonNull(id), new ArrayList<>(), new ArrayList<>(), Optional.of(Objects.requireNonNull(stateListener)), ordinal);
     }
 
     /// Ensure that all fields are set
@@ -77,6 +106,9 @@ public record State<I>(
         Objects.requireNonNull(outgoingTransitions, "outgoingTransitions cannot be null");
         Objects.requireNonNull(incomingTransitions, "incomingTransitions cannot be null");
         Objects.requireNonNull(stateListener, "stateListener cannot be null");
+        if (ordinal < UNASSIGNED) {
+            throw new IllegalArgumentException("ordinal must be >= 0 or UNASSIGNED: " + ordinal);
+        }
     }
 
     /// Adds an outgoing transition to this state.
@@ -88,7 +120,7 @@ public record State<I>(
     /// @throws NullPointerException if the provided transition is null
     void addOutgoingTransition(final Transition<I> transition) {
         Objects.requireNonNull(transition, "Transition cannot be null");
-        if (!equals(transition.source())) {
+        if (transition.source() != this) {
             throw new IllegalArgumentException("Transition " + transition + "  must start in this state:" + this);
         }
         outgoingTransitions.add(transition);
@@ -103,12 +135,24 @@ public record State<I>(
     /// @throws NullPointerException if the provided transition is null
     void addIncomingTransition(final Transition<I> transition) {
         Objects.requireNonNull(transition, "Transition cannot be null");
-        if (!equals(transition.target())) {
+        if (transition.target() != this) {
             throw new IllegalArgumentException("Transition " + transition + "  must end in this state:" + this);
         }
         incomingTransitions.add(transition);
     }
 
+    /// States are only equal to themselves, the transitions are never compared.
+    @Override
+    public boolean equals(final Object o) {
+        return this == o;
+    }
+
+    /// Stable hash based on the id and the ordinal, the transitions are never hashed
+    @Override
+    public int hashCode() {
+        return 31 * id.hashCode() + ordinal;
+    }
+
     @Override
     public String toString() {
         return "State{" +
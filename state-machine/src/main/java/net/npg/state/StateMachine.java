@@ -18,7 +18,14 @@
 
 package net.npg.state;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,8 +60,18 @@ public class StateMachine<I> {
     /// @return The final state after all enabled transitions have been processed
     /// @throws IllegalStateException if multiple transitions are enabled from the same state
     public State<I> execute() {
+        return execute((Object) null);
+    }
+
+    ///  Executes the state machine from the current state with a context for the guards, processing
+    ///      enabled transitions until a state is reached which has no enabled transitions.
+    ///
+    /// @param context the context passed to every guard, may be null
+    /// @return The final state after all enabled transitions have been processed
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public State<I> execute(final Object context) {
         assert token != null;
-        token = execute(token);
+        token = execute(token, context);
         return token.state();
     }
 
@@ -65,8 +82,10 @@ public class StateMachine<I> {
     /// This method:
     /// 1. Validates the input token
     /// 2. Continuously checks for enabled transitions from the current state
-    /// 3. Processes the first enabled transition, updating the token's state
-    /// 4. Returns when no more transitions are enabled
+    /// 3. Processes the first enabled transition, updating the token's state and calling the exit
+    ///    listeners of the source, the listeners of the transition, the entry listeners of the target
+    ///    and the listeners of the model in this order
+    /// 4. Returns when no more transitions are enabled or a parallel state is reached
     /// 5. Throws an exception if multiple transitions are enabled simultaneously
     ///
     /// @param token The starting point for execution, containing the current state and model
@@ -74,41 +93,443 @@ public class StateMachine<I> {
     /// @throws IllegalStateException if multiple transitions are enabled from the same state
     /// @throws NullPointerException  if the input token is null
     public static <I> Token<I> execute(final Token<I> token) {
+        return execute(token, null);
+    }
+
+    /// Executes the state machine from the given token, passing a context to every guard.
+    ///
+    /// The context lets one [StateModel] be shared by many entities: the guards added with
+    /// [StateModel#addTransition(State, State, java.util.function.Predicate, Object)] read the
+    /// entity data from the context instead of capturing it.
+    ///
+    /// @param token   The starting point for execution, containing the current state and model
+    /// @param context the context passed to every guard, may be null
+    /// @return The final token after all enabled transitions have been processed
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    /// @throws NullPointerException  if the input token is null
+    /// @see #execute(Token)
+    public static <I> Token<I> execute(final Token<I> token, final Object context) {
         Objects.requireNonNull(token, "token cannot be null");
+        return run(token, context, null, null, 0);
+    }
+
+    /// Executes the state machine from the given token and parks it if a transition leads into a
+    /// full state, see [StateModel#setCapacity(State, int)].
+    ///
+    /// A parked token is resumed in FIFO order as soon as the state has a free slot: it takes the
+    /// transition it was parked at without evaluating the guard again, continues executing on the
+    /// common [ForkJoinPool] and is passed to `resumed`. Until then the returned token must not be
+    /// executed again.
+    ///
+    /// @param token   The starting point for execution
+    /// @param context the context passed to every guard, may be null
+    /// @param resumed called with the final token of a parked token once it was resumed
+    /// @return The final token, or the parked token if a transition leads into a full state
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public static <I> Token<I> execute(final Token<I> token, final Object context, final Consumer<Token<I>> resumed) {
+        return execute(token, context, resumed, ForkJoinPool.commonPool());
+    }
+
+    /// Executes the state machine from the given token and parks it if a transition leads into a
+    /// full state, see [#execute(Token, Object, Consumer)].
+    ///
+    /// A resumed token continues on the executor, never on the thread which freed the slot. If it
+    /// fails there the failure is logged and the token stays in the state it was resumed into.
+    ///
+    /// @param token    The starting point for execution
+    /// @param context  the context passed to every guard, may be null
+    /// @param resumed  called with the final token of a parked token once it was resumed
+    /// @param executor runs the parked tokens once they are resumed
+    /// @return The final token, or the parked token if a transition leads into a full state
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public static <I> Token<I> execute(final Token<I> token, final Object context, final Consumer<Token<I>> resumed,
+                                       final Executor executor) {
+        Objects.requireNonNull(token, "token cannot be null");
+        Objects.requireNonNull(resumed, "resumed cannot be null");
+        Objects.requireNonNull(executor, "executor cannot be null");
+        return run(token, context, new Parked<>(resumed, executor), null, 0);
+    }
+
+    /// The continuation of a parked token.
+    private record Parked<I>(Consumer<Token<I>> resumed, Executor executor) {
+    }
+
+    /// Executes a token, parks it at a full state if a continuation is given and stores every
+    /// taken transition in the slot of a population if one is given.
+    private static <I> Token<I> run(final Token<I> token, final Object context, final Parked<I> parked,
+                                    final TokenPopulation<I> population, final long slot) {
         if (LOGGER.isLoggable(Level.FINEST)) {
             LOGGER.finest("Starting execution from state: " + token.state());
         }
+        final var model = token.model();
         var workToken = token;
         while (true) {
-            // Check for enabled transitions
-            final var enabledTransitions = workToken.state().outgoingTransitions()
-                    .stream()
-                    .filter(Transition::canTraverse)
-                    .toList();
-
-            if (enabledTransitions.isEmpty()) {
+            if (model.isParallel(workToken.state())) {
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.finest("Stopped at parallel state: " + workToken.state());
+                }
+                return workToken;
+            }
+            final var enabledTransition = findEnabledTransition(model, workToken.state(), context);
+            if (enabledTransition == null) {
                 if (LOGGER.isLoggable(Level.FINEST)) {
                     LOGGER.finest("No currently enabled transitions from state: " + workToken.state());
                 }
                 return workToken;
             }
-            if (enabledTransitions.size() > 1) {
-                throw new IllegalStateException("Multiple transitions enabled from state: " + workToken.state());
+            final var nextToken = enter(workToken, enabledTransition, context);
+            if (nextToken == null) {
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.finest("Target state is full: " + enabledTransition.target());
+                }
+                if (parked != null) {
+                    park(workToken, enabledTransition, context, parked.executor(),
+                            moved -> parked.resumed().accept(run(moved, context, parked, null, 0)),
+                            failure -> LOGGER.log(Level.WARNING, "Resumed token failed", failure));
+                }
+                return workToken;
             }
-            final var enabledTransition = enabledTransitions.getFirst();
-            if (LOGGER.isLoggable(Level.FINEST)) {
-                LOGGER.finest("Transition found from state " + workToken.state() + " : " + enabledTransition);
+            workToken = nextToken;
+            if (population != null) {
+                population.transitionTaken(slot, enabledTransition);
+            }
+        }
+    }
+
+    /// Parks a token at the full target state of a transition.
+    ///
+    /// Once a slot is free the token takes the transition on the executor and is passed to
+    /// `admitted`; if the transition or `admitted` fails, the failure is passed to `failed`.
+    /// Neither runs on the thread which freed the slot.
+    static <I> void park(final Token<I> token, final Transition<I> transition, final Object context, final Executor executor,
+                         final Consumer<Token<I>> admitted, final Consumer<RuntimeException> failed) {
+        final var gate = token.model().gate(transition.target());
+        final var waiter = new CapacityGate.Waiter() {
+            @Override
+            void admit() {
+                try {
+                    executor.execute(() -> {
+                        try {
+                            admitted.accept(move(token, transition, context, gate));
+                        } catch (final RuntimeException e) {
+                            failed.accept(e);
+                        }
+                    });
+                } catch (final RejectedExecutionException e) {
+                    gate.release();
+                    failed.accept(e);
+                }
+            }
+        };
+        if (gate.park(waiter)) {
+            waiter.admit();
+        }
+    }
+
+    /// Takes at most one transition, see [#step(Token, Object)].
+    ///
+    /// @param token the current token
+    /// @return the token after the transition, or the given token itself if no transition is
+    ///         enabled or the target state is full
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public static <I> Token<I> step(final Token<I> token) {
+        return step(token, null);
+    }
+
+    /// Takes at most one transition with a context for the guards.
+    ///
+    /// This is the cooperative counterpart of [#execute(Token, Object)]: a caller can interleave
+    /// many tokens and decide after every transition whether to continue, see [StepScheduler].
+    /// Calling `step` until it returns its argument is equivalent to `execute`. The argument is
+    /// also returned if the target state of the enabled transition is full, use
+    /// [#tryStep(Token, Object)] to tell a blocked token from a finished one.
+    ///
+    /// @param token   the current token
+    /// @param context the context passed to every guard, may be null
+    /// @return the token after the transition, or the given token itself if no transition is
+    ///         enabled, the token is at a parallel state or the target state is full
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public static <I> Token<I> step(final Token<I> token, final Object context) {
+        return tryStep(token, context).token();
+    }
+
+    /// Takes at most one transition with a context for the guards and reports what happened.
+    ///
+    /// @param token   the current token
+    /// @param context the context passed to every guard, may be null
+    /// @return the moved token, the given token if it is done, or the given token and the enabled
+    ///         transition if its target state is full
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public static <I> StepResult<I> tryStep(final Token<I> token, final Object context) {
+        Objects.requireNonNull(token, "token cannot be null");
+        final var model = token.model();
+        if (model.isParallel(token.state())) {
+            return new StepResult<>(token, null, StepResult.Outcome.DONE);
+        }
+        final var enabledTransition = findEnabledTransition(model, token.state(), context);
+        if (enabledTransition == null) {
+            return new StepResult<>(token, null, StepResult.Outcome.DONE);
+        }
+        return enterStep(token, enabledTransition, context);
+    }
+
+    /// Takes an enabled transition if the target state has a free slot.
+    static <I> StepResult<I> enterStep(final Token<I> token, final Transition<I> transition, final Object context) {
+        final var nextToken = enter(token, transition, context);
+        return nextToken == null
+                ? new StepResult<>(token, transition, StepResult.Outcome.BLOCKED)
+                : new StepResult<>(nextToken, transition, StepResult.Outcome.MOVED);
+    }
+
+    /// Moves a token along a transition if the target state has a free slot.
+    ///
+    /// @return the token after the transition or `null` if the target state is full
+    static <I> Token<I> enter(final Token<I> token, final Transition<I> transition, final Object context) {
+        final var gate = token.model().gate(transition.target());
+        if (gate == null || transition.source().equals(transition.target())) {
+            return move(token, transition, context, null);
+        }
+        if (!gate.tryAcquire()) {
+            return null;
+        }
+        return move(token, transition, context, gate);
+    }
+
+    /// Moves a token along a transition and frees the slot of the source state.
+    ///
+    /// @param acquired the gate of the target state whose slot was acquired for the token, freed
+    ///                 again if the transition fails, or `null`
+    private static <I> Token<I> move(final Token<I> token, final Transition<I> transition, final Object context,
+                                     final CapacityGate acquired) {
+        final Token<I> nextToken;
+        try {
+            nextToken = traverse(token, transition, context);
+        } catch (final RuntimeException e) {
+            if (acquired != null) {
+                acquired.release();
+            }
+            throw e;
+        }
+        if (!transition.source().equals(transition.target())) {
+            final var gate = token.model().gate(transition.source());
+            if (gate != null) {
+                gate.release();
+            }
+        }
+        return nextToken;
+    }
+
+    /// Moves a token along a transition and calls the listeners.
+    private static <I> Token<I> traverse(final Token<I> token, final Transition<I> transition, final Object context) {
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.finest("Transition found from state " + token.state() + " : " + transition);
+        }
+        final var hooks = token.model().hooks();
+        hooks.beforeTransition(transition, context);
+        final var newToken = token.update(transition.target());
+        if (LOGGER.isLoggable(Level.FINEST)) {
+            LOGGER.finest("Moved to state: " + newToken.state());
+        }
+        new FlightRecorderEvents.TransitionTaken().commit(token.model().id(), transition);
+        hooks.afterTransition(transition, context);
+        return newToken;
+    }
+
+    /// Executes the state machine from the given composite token, advancing the orthogonal regions
+    /// of parallel states one after the other.
+    ///
+    /// @param token   The starting point for execution
+    /// @param context the context passed to every guard, may be null
+    /// @return The final token after all enabled transitions have been processed
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    /// @see #execute(CompositeToken, Object, ForkJoinPool)
+    public static <I> CompositeToken<I> execute(final CompositeToken<I> token, final Object context) {
+        return execute(token, context, null);
+    }
+
+    /// Executes the state machine from the given composite token.
+    ///
+    /// This method:
+    /// 1. Executes the parent model until it reaches a parallel state or no transition is enabled
+    /// 2. Starts the regions of a newly entered parallel state at their initial states
+    /// 3. Executes every region, concurrently on the given pool if one is given
+    /// 4. Takes a join transition once all regions reached their final states and continues with 1.
+    ///
+    /// With a pool the guards of different regions are evaluated on different threads at the same
+    /// time, they must not share unsynchronized state. This pays off if the guards are expensive.
+    ///
+    /// @param token   The starting point for execution
+    /// @param context the context passed to every guard, may be null
+    /// @param pool    the pool advancing the regions in parallel, or `null` to advance them sequentially
+    /// @return The final token after all enabled transitions have been processed
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    public static <I> CompositeToken<I> execute(final CompositeToken<I> token, final Object context, final ForkJoinPool pool) {
+        Objects.requireNonNull(token, "token cannot be null");
+        final var model = token.token().model();
+        var parent = token.token();
+        var regions = token.regions();
+        while (true) {
+            if (!model.isParallel(parent.state())) {
+                parent = execute(parent, context);
+                if (!model.isParallel(parent.state())) {
+                    return new CompositeToken<>(parent, List.of());
+                }
+                regions = List.of();
+            }
+            final var definitions = model.regions(parent.state());
+            if (regions.isEmpty()) {
+                regions = model.startRegions(parent.state());
+            }
+            regions = advance(regions, context, pool);
+            for (var i = 0; i < regions.size(); i++) {
+                if (!definitions.get(i).isFinished(regions.get(i))) {
+                    return new CompositeToken<>(parent, regions);
+                }
+            }
+            final var join = findEnabledTransition(model, parent.state(), context);
+            if (join == null) {
+                return new CompositeToken<>(parent, regions);
+            }
+            final var joined = enter(parent, join, context);
+            if (joined == null) {
+                return new CompositeToken<>(parent, regions);
+            }
+            parent = joined;
+            regions = List.of();
+        }
+    }
+
+    private static <I> List<Token<I>> advance(final List<Token<I>> regions, final Object context, final ForkJoinPool pool) {
+        if (pool == null || regions.size() < 2) {
+            return regions.stream().map(region -> execute(region, context)).toList();
+        }
+        final var tasks = regions.stream()
+                .map(region -> pool.submit(() -> execute(region, context)))
+                .toList();
+        return tasks.stream().map(ForkJoinTask::join).toList();
+    }
+
+    /// Executes a [LazyStateModel] from a state until no transition is enabled. States are loaded
+    /// on demand and cached by the model.
+    ///
+    /// @param model   the lazy model
+    /// @param state   the id of the current state
+    /// @param context the context passed to every guard, may be null
+    /// @return the id of the final state after all enabled transitions have been processed
+    /// @throws IllegalStateException    if multiple transitions are enabled from the same state
+    /// @throws IllegalArgumentException if a state is not part of the model
+    public static <I> I execute(final LazyStateModel<I> model, final I state, final Object context) {
+        Objects.requireNonNull(model, "model cannot be null");
+        Objects.requireNonNull(state, "state cannot be null");
+        var current = state;
+        while (true) {
+            final var transitions = model.outgoingTransitions(current);
+            final var enabled = enabledTransition(InterpretedDispatcher.select(transitions,
+                    transition -> transition.guard().test(context), transitions::indexOf), transitions::get, current);
+            if (enabled == null) {
+                return current;
             }
-            final var newState = enabledTransition.target();
-            workToken = workToken.update(newState);
             if (LOGGER.isLoggable(Level.FINEST)) {
-                LOGGER.finest("Moved to state: " + workToken.state());
+                LOGGER.finest("Traversing lazy transition: " + enabled);
             }
-            try {
-                newState.stateListener().ifPresent(l -> l.accept(newState));
-            } catch (final Exception e) {
-                LOGGER.log(Level.WARNING, "Caught exception while processing state transition: " + workToken.state(), e);
+            current = enabled.target();
+        }
+    }
+
+    /// Evaluates all guards of the outgoing transitions of a state with the dispatcher of the model.
+    /// Steps sampled for the guard profiler or the flight recorder are evaluated by the interpreter,
+    /// which times every guard.
+    ///
+    /// @return the only enabled transition or `null` if no transition is enabled
+    /// @throws IllegalStateException if multiple transitions are enabled
+    private static <I> Transition<I> findEnabledTransition(final StateModel<I> model, final State<I> state, final Object context) {
+        final var sampled = FlightRecorderEvents.sampleGuards();
+        final var ordinal = sampled || model.guardProfiler() != null
+                ? model.interpreter().next(state.ordinal(), context, sampled)
+                : model.dispatcher().next(state.ordinal(), context);
+        if (ordinal == Dispatcher.MULTIPLE) {
+            new FlightRecorderEvents.TransitionConflict().commit(model.id(), state);
+        }
+        return enabledTransition(ordinal, model::transition, state);
+    }
+
+    /// Resolves the result of a [Dispatcher].
+    ///
+    /// @param ordinal     the ordinal of the enabled transition, [Dispatcher#NONE] or [Dispatcher#MULTIPLE]
+    /// @param transitions the transitions by ordinal
+    /// @param state       the current state, for the error message
+    /// @return the enabled transition or `null` if no transition is enabled
+    /// @throws IllegalStateException if multiple transitions are enabled
+    private static <T> T enabledTransition(final int ordinal, final IntFunction<T> transitions, final Object state) {
+        if (ordinal == Dispatcher.NONE) {
+            return null;
+        }
+        if (ordinal == Dispatcher.MULTIPLE) {
+            throw new IllegalStateException("Multiple transitions enabled from state: " + state);
+        }
+        return transitions.apply(ordinal);
+    }
+
+    /// Executes the state machine for the token stored in one slot of a [TokenPopulation] and
+    /// writes the resulting state back into the slot.
+    ///
+    /// @param population the population holding the token
+    /// @param slot       the slot index
+    /// @return The final state after all enabled transitions have been processed
+    /// @throws IllegalStateException if the slot is empty or multiple transitions are enabled from the same state
+    /// @see #execute(Token)
+    public static <I> State<I> execute(final TokenPopulation<I> population, final long slot) {
+        return execute(population, slot, null);
+    }
+
+    /// Executes the state machine for the token stored in one slot of a [TokenPopulation] with a
+    /// context for the guards and writes every state the token enters into the slot. The taken
+    /// transitions are added to the history of the slot, see [TokenPopulation#recordHistory(int, java.util.function.LongSupplier)],
+    /// and every transition, including a self loop, resets the entry time of the token.
+    ///
+    /// @param population the population holding the token
+    /// @param slot       the slot index
+    /// @param context    the context passed to every guard, may be null
+    /// @return The final state after all enabled transitions have been processed
+    /// @throws IllegalStateException if the slot is empty or multiple transitions are enabled from the same state
+    /// @see #execute(Token, Object)
+    public static <I> State<I> execute(final TokenPopulation<I> population, final long slot, final Object context) {
+        Objects.requireNonNull(population, "population cannot be null");
+        return run(population.token(slot), context, null, population, slot).state();
+    }
+
+    /// Executes the token of a slot whose first transition is already known, e.g. from a batch
+    /// evaluation of the guards.
+    ///
+    /// @param first the enabled transition out of the state of the token
+    /// @return `false` if the token stayed in its state because the target of `first` is full
+    static <I> boolean execute(final TokenPopulation<I> population, final long slot, final Transition<I> first, final Object context) {
+        final var moved = enter(population.token(slot), first, context);
+        if (moved == null) {
+            return false;
+        }
+        population.transitionTaken(slot, first);
+        run(moved, context, null, population, slot);
+        return true;
+    }
+
+    /// Executes the state machine for all non-empty slots in the range `[fromSlot, toSlot)` of a
+    /// [TokenPopulation].
+    ///
+    /// Named apart from [#execute(TokenPopulation, long, Object)], which a call with a numeric
+    /// context would otherwise silently resolve to.
+    ///
+    /// @param population the population holding the tokens
+    /// @param fromSlot   the first slot index, inclusive
+    /// @param toSlot     the last slot index, exclusive
+    /// @throws IllegalStateException if multiple transitions are enabled from the same state
+    /// @see #execute(TokenPopulation, long)
+    public static <I> void executeRange(final TokenPopulation<I> population, final long fromSlot, final long toSlot) {
+        Objects.requireNonNull(population, "population cannot be null");
+        for (var slot = fromSlot; slot < toSlot; slot++) {
+            if (!population.isEmpty(slot)) {
+                execute(population, slot);
             }
         }
     }
-}
\ No newline at end of file
+}
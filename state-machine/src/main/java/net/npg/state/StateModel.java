@@ -19,29 +19,45 @@
 package net.npg.state;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.OptionalInt;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /// Represents a state machine model, encapsulating its unique identifier, states, and transitions.
-/// This record serves as the core structure for defining state machines, providing methods to
+/// This class serves as the core structure for defining state machines, providing methods to
 /// add states and transitions while ensuring null safety and validation.
 ///
-/// Classes in this package are designed to be used as immutable data containers. The
-/// `StateModel` record ensures null safety for all fields and provides utility methods
-/// for managing state and transition relationships.
+/// Every [State] and [Transition] added to the model gets a dense ordinal (`0..states().size()-1`,
+/// `0..transitions().size()-1`) in the order of creation. The ordinals are stable for the lifetime
+/// of the model and can be used to key arrays instead of hash maps, see [#state(int)] and
+/// [#transition(int)].
 ///
-/// @param <I>    The type of the state identifier (e.g., String, Integer)
-/// @param states a collection of all states in this model
-/// @param id     a unique identifier
+/// A model is identified by its instance, two models with the same id are not equal.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
 /// @see State
 /// @see Transition
 /// @see Token
-public record StateModel<I>(
-        I id,
-        Collection<State<I>> states
-) {
+public final class StateModel<I> {
+    private static final int KEEP_OCCUPANCY = -1;
+
+    private final I id;
+    private final List<State<I>> states;
+    private final List<Transition<I>> transitions;
+    private final List<List<Region<I>>> regions;
+    private final ModelHooks<I> hooks;
+    private final InterpretedDispatcher<I> interpreter = new InterpretedDispatcher<>(this);
+    private volatile ExecutionBackend backend = ExecutionBackend.defaultBackend();
+    private volatile Dispatcher dispatcher;
+    private volatile GuardProfiler<I> guardProfiler;
+    private volatile CapacityGate[] gates;
+
     /// Constructs a new state model with the specified identifier and empty state/transition collections.
     ///
     /// This constructor initializes the model with the given ID and empty collections for states
@@ -50,13 +66,285 @@ public record StateModel<I>(
     /// @param id The unique identifier for the state model
     /// @throws NullPointerException if the provided ID is null
     public StateModel(final I id) {
-        this(id, new ArrayList<>());
+        this(id, 10, 10);
     }
 
-    /// Ensure that all fields are set
-    public StateModel {
-        Objects.requireNonNull(id, "id must not be null");
-        Objects.requireNonNull(states, "states must not be null");
+    /// Constructs an empty model with presized collections, see [StateModelBuilder].
+    ///
+    /// @param id                  The unique identifier for the state model
+    /// @param expectedStates      the expected number of states
+    /// @param expectedTransitions the expected number of transitions
+    StateModel(final I id, final int expectedStates, final int expectedTransitions) {
+        this.id = Objects.requireNonNull(id, "id must not be null");
+        this.hooks = new ModelHooks<>(id);
+        this.states = new ArrayList<>(expectedStates);
+        this.transitions = new ArrayList<>(expectedTransitions);
+        this.regions = new ArrayList<>(expectedStates);
+    }
+
+    /// @return the unique identifier of this model
+    public I id() {
+        return id;
+    }
+
+    /// @return an unmodifiable view of all states in this model, indexed by their ordinal
+    public Collection<State<I>> states() {
+        return Collections.unmodifiableList(states);
+    }
+
+    /// Returns the state with the given ordinal.
+    ///
+    /// @param ordinal the ordinal assigned by this model
+    /// @return the state
+    /// @throws IndexOutOfBoundsException if no state with this ordinal exists
+    public State<I> state(final int ordinal) {
+        return states.get(ordinal);
+    }
+
+    /// @return an unmodifiable view of all transitions in this model, indexed by their ordinal
+    public List<Transition<I>> transitions() {
+        return Collections.unmodifiableList(transitions);
+    }
+
+    /// Returns the transition with the given ordinal.
+    ///
+    /// @param ordinal the ordinal assigned by this model
+    /// @return the transition
+    /// @throws IndexOutOfBoundsException if no transition with this ordinal exists
+    public Transition<I> transition(final int ordinal) {
+        return transitions.get(ordinal);
+    }
+
+    /// Registers a listener which is called after every transition taken by a token of this model.
+    ///
+    /// @param listener the listener
+    /// @throws NullPointerException if the listener is null
+    /// @see TransitionPublisher
+    public void addTransitionListener(final TransitionListener<I> listener) {
+        Objects.requireNonNull(listener, "listener must not be null");
+        hooks.addModelListener(listener);
+    }
+
+    /// Removes a listener registered with [#addTransitionListener(TransitionListener)].
+    ///
+    /// @param listener the listener
+    /// @return `true` if the listener was registered
+    public boolean removeTransitionListener(final TransitionListener<I> listener) {
+        return hooks.removeModelListener(listener);
+    }
+
+    /// Registers a listener which is called when a token takes the given transition, before the
+    /// token enters the target state.
+    ///
+    /// @param transition a transition of this model
+    /// @param listener   the listener
+    /// @throws IllegalArgumentException if the transition is not part of this model
+    public void addTransitionListener(final Transition<I> transition, final TransitionListener<I> listener) {
+        Objects.requireNonNull(transition, "transition must not be null");
+        if (!contains(transition)) {
+            throw new IllegalArgumentException("model must contain transition " + transition);
+        }
+        hooks.addTransitionListener(transition.ordinal(), listener);
+    }
+
+    /// Registers a listener which is called when a token enters the given state.
+    ///
+    /// A state can have any number of entry listeners, they are called in registration order.
+    ///
+    /// @param state    a state of this model
+    /// @param listener the listener
+    /// @throws IllegalArgumentException if the state is not part of this model
+    public void addEntryListener(final State<I> state, final Consumer<State<I>> listener) {
+        checkContains(state);
+        hooks.addEntryListener(state.ordinal(), listener);
+    }
+
+    /// Registers a listener which is called when a token leaves the given state.
+    ///
+    /// A state can have any number of exit listeners, they are called in registration order.
+    ///
+    /// @param state    a state of this model
+    /// @param listener the listener
+    /// @throws IllegalArgumentException if the state is not part of this model
+    public void addExitListener(final State<I> state, final Consumer<State<I>> listener) {
+        checkContains(state);
+        hooks.addExitListener(state.ordinal(), listener);
+    }
+
+    /// Replaces the handler for exceptions thrown by listeners, the default is [HookExceptionHandler#logging()].
+    ///
+    /// @param handler the new handler
+    public void setHookExceptionHandler(final HookExceptionHandler<I> handler) {
+        hooks.setExceptionHandler(handler);
+    }
+
+    /// @return the listeners of this model
+    ModelHooks<I> hooks() {
+        return hooks;
+    }
+
+    /// Selects how the state machine evaluates the guards of this model.
+    ///
+    /// @param backend the backend
+    public void setBackend(final ExecutionBackend backend) {
+        this.backend = Objects.requireNonNull(backend, "backend must not be null");
+        dispatcher = null;
+    }
+
+    /// @return the backend evaluating the guards of this model
+    public ExecutionBackend backend() {
+        return backend;
+    }
+
+    /// Returns the dispatcher of the selected backend, a generated dispatcher is created on the
+    /// first call after the model changed.
+    ///
+    /// @return the dispatcher
+    Dispatcher dispatcher() {
+        if (backend == ExecutionBackend.INTERPRETER) {
+            return interpreter;
+        }
+        var result = dispatcher;
+        if (result == null) {
+            result = DispatcherGenerator.generate(this);
+            dispatcher = result;
+        }
+        return result;
+    }
+
+    /// Installs a sampling profiler of the guards, or removes it.
+    ///
+    /// @param profiler the profiler of this model, `null` to stop profiling
+    /// @throws IllegalArgumentException if the profiler belongs to another model
+    public void setGuardProfiler(final GuardProfiler<I> profiler) {
+        if (profiler != null && profiler.model() != this) {
+            throw new IllegalArgumentException("Profiler " + profiler + " belongs to another model");
+        }
+        guardProfiler = profiler;
+    }
+
+    /// @return the installed profiler of the guards, `null` if none
+    public GuardProfiler<I> guardProfiler() {
+        return guardProfiler;
+    }
+
+    /// @return the interpreting dispatcher, independent of the backend
+    InterpretedDispatcher<I> interpreter() {
+        return interpreter;
+    }
+
+    private void checkContains(final State<I> state) {
+        Objects.requireNonNull(state, "state must not be null");
+        if (!contains(state)) {
+            throw new IllegalArgumentException("model must contain state " + state);
+        }
+    }
+
+    /// Limits the number of tokens which can be in a state at the same time.
+    ///
+    /// Tokens are counted when they are created with [#createToken(State)], stored with
+    /// [TokenPopulation#set(long, State)] or enter the state by a transition, and when they leave
+    /// it or are [released][#release(Token)]. A transition into a full state is treated as
+    /// disabled: [StateMachine#execute(Token, Object)] stops before it,
+    /// [StateMachine#execute(Token, Object, java.util.function.Consumer)] parks the token until a
+    /// slot is free. Each token must be executed only once, executing an old token again counts it
+    /// twice.
+    ///
+    /// Tokens which exist before the first capacity of a state is set are not counted, use
+    /// [#setCapacity(State, int, int)] to seed the occupancy with them.
+    ///
+    /// @param state    a state of this model
+    /// @param capacity the maximum number of tokens in the state
+    /// @throws IllegalArgumentException if the state is not part of the model or the capacity is not positive
+    public void setCapacity(final State<I> state, final int capacity) {
+        limit(state, capacity, KEEP_OCCUPANCY);
+    }
+
+    /// Limits the number of tokens in a state and sets the number of tokens currently in it, e.g.
+    /// [TokenPopulation#count(State)] of an indexed population.
+    ///
+    /// @param state     a state of this model
+    /// @param capacity  the maximum number of tokens in the state
+    /// @param occupancy the number of tokens in the state
+    /// @throws IllegalArgumentException if the state is not part of the model, the capacity is not
+    ///                                  positive or the occupancy is negative
+    public void setCapacity(final State<I> state, final int capacity, final int occupancy) {
+        if (occupancy < 0) {
+            throw new IllegalArgumentException("occupancy must not be negative: " + occupancy);
+        }
+        limit(state, capacity, occupancy);
+    }
+
+    /// @param occupancy the number of tokens in the state, [#KEEP_OCCUPANCY] to keep the count of an existing gate
+    private void limit(final State<I> state, final int capacity, final int occupancy) {
+        Objects.requireNonNull(state, "state must not be null");
+        if (!contains(state)) {
+            throw new IllegalArgumentException("model must contain state " + state);
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        synchronized (states) {
+            var current = gates;
+            if (current == null || current.length <= state.ordinal()) {
+                current = Arrays.copyOf(current == null ? new CapacityGate[0] : current, states.size());
+            }
+            if (current[state.ordinal()] == null) {
+                final var gate = new CapacityGate(capacity);
+                gate.setOccupancy(Math.max(occupancy, 0));
+                current[state.ordinal()] = gate;
+                gates = current;
+            } else {
+                if (occupancy >= 0) {
+                    current[state.ordinal()].setOccupancy(occupancy);
+                }
+                current[state.ordinal()].setCapacity(capacity);
+            }
+        }
+    }
+
+    /// @param state a state of this model
+    /// @return the capacity of the state, empty if it is unlimited
+    public OptionalInt capacity(final State<I> state) {
+        final var gate = gate(state);
+        return gate == null ? OptionalInt.empty() : OptionalInt.of(gate.capacity());
+    }
+
+    /// @param state a state of this model
+    /// @return the number of tokens in a state with a capacity, `0` for unlimited states
+    public int occupancy(final State<I> state) {
+        final var gate = gate(state);
+        return gate == null ? 0 : gate.occupancy();
+    }
+
+    /// @param state a state of this model
+    /// @return the number of tokens parked until the state has a free slot
+    public int parked(final State<I> state) {
+        final var gate = gate(state);
+        return gate == null ? 0 : gate.waiting();
+    }
+
+    /// Removes a token from the occupancy of its state, e.g. when its entity is deleted.
+    ///
+    /// @param token a token of this model which is not used anymore
+    /// @throws IllegalStateException if the state of the token has a capacity but no token is counted in it
+    public void release(final Token<I> token) {
+        Objects.requireNonNull(token, "token must not be null");
+        final var gate = gate(token.state());
+        if (gate != null && !gate.release()) {
+            throw new IllegalStateException("No token counted in state " + token.state());
+        }
+    }
+
+    /// @return `true` if at least one state has a capacity
+    boolean hasCapacities() {
+        return gates != null;
+    }
+
+    /// @return the gate of a state or `null` if the state is unlimited
+    CapacityGate gate(final State<I> state) {
+        final var current = gates;
+        return current == null || state.ordinal() >= current.length ? null : current[state.ordinal()];
     }
 
     /// Adds a new state to this state model.
@@ -70,11 +358,58 @@ public record StateModel<I>(
     public State<I> addState(final I id) {
         Objects.requireNonNull(id, "id must not be null");
         checkStateIdExists(id);
-        final var state = new State<>(id);
+        final var state = new State<>(id, states.size());
         states.add(state);
+        regions.add(null);
         return state;
     }
 
+    /// Adds a new parallel state with orthogonal regions to this state model.
+    ///
+    /// A token entering this state starts every region at its initial state. The regions advance
+    /// independently, see [StateMachine#execute(CompositeToken, Object, java.util.concurrent.ForkJoinPool)].
+    /// The transitions leaving this state are join transitions: they are only enabled when all
+    /// regions reached their final state and their guard allows it.
+    ///
+    /// [StateMachine#execute(Token, Object)] stops when a plain [Token] reaches a parallel state,
+    /// use a [CompositeToken] to run through it.
+    ///
+    /// @param id      The identifier for the new state
+    /// @param regions the orthogonal regions, at least one
+    /// @return The newly created state
+    /// @throws IllegalArgumentException if no region is given or a region uses this model
+    public State<I> addParallelState(final I id, final List<Region<I>> regions) {
+        Objects.requireNonNull(id, "id must not be null");
+        final var copy = List.copyOf(regions);
+        if (copy.isEmpty()) {
+            throw new IllegalArgumentException("A parallel state needs at least one region: " + id);
+        }
+        if (copy.stream().anyMatch(region -> region.model() == this)) {
+            throw new IllegalArgumentException("A region must not use its parent model: " + id);
+        }
+        checkStateIdExists(id);
+        final var state = new State<>(id, states.size());
+        states.add(state);
+        this.regions.add(copy);
+        return state;
+    }
+
+    /// Returns the orthogonal regions of a state.
+    ///
+    /// @param state a state of this model
+    /// @return the regions, an empty list if the state is not a parallel state
+    public List<Region<I>> regions(final State<I> state) {
+        final var result = isParallel(state) ? regions.get(state.ordinal()) : null;
+        return result == null ? List.of() : result;
+    }
+
+    /// @param state a state of this model
+    /// @return `true` if the state has orthogonal regions
+    boolean isParallel(final State<I> state) {
+        final var ordinal = state.ordinal();
+        return ordinal >= 0 && ordinal < regions.size() && regions.get(ordinal) != null;
+    }
+
     /// Adds a new state to this state model.
     ///
     /// This method creates a new [State] with the specified ID, ensures it is non-null,
@@ -84,15 +419,29 @@ public record StateModel<I>(
     /// @param stateListener a stateListener which is called when a token reaches this state
     /// @return The newly created state
     /// @throws NullPointerException if the provided ID is null
+    /// @see #addEntryListener(State, Consumer)
     public State<I> addState(final I id, final Consumer<State<I>> stateListener) {
         Objects.requireNonNull(id, "id must not be null");
         Objects.requireNonNull(stateListener, "stateListener must not be null");
         checkStateIdExists(id);
-        final var state = new State<>(id, stateListener);
+        final var state = new State<>(id, stateListener, states.size());
         states.add(state);
+        regions.add(null);
+        hooks.addEntryListener(state.ordinal(), stateListener);
         return state;
     }
-    
+
+    /// Adds states and transitions which were validated and wired by a [StateModelBuilder].
+    ///
+    /// The states must be numbered from the current number of states on, the transitions from the
+    /// current number of transitions on, and reference only states of this model.
+    void addAll(final List<State<I>> newStates, final List<Transition<I>> newTransitions) {
+        states.addAll(newStates);
+        regions.addAll(Collections.nCopies(newStates.size(), null));
+        transitions.addAll(newTransitions);
+        dispatcher = null;
+    }
+
     private void checkStateIdExists(final I id) {
         if (states.stream().map(State::id).anyMatch(x -> x.equals(id))) {
             throw new IllegalArgumentException("State with id " + id + " already exists");
@@ -106,7 +455,7 @@ public record StateModel<I>(
     /// 1. Validates that all parameters are non-null
     /// 2. Creates a new [Transition] with the specified properties
     /// 3. Links the transition to the source and target states
-    /// 4. Adds the transition to the model's transition collection
+    /// 4. Adds the transition to the model's transition collection and assigns the next ordinal
     ///
     /// @param fromState    The source state of the transition
     /// @param toState      The target state of the transition
@@ -115,6 +464,25 @@ public record StateModel<I>(
     /// @return The newly created transition
     /// @throws NullPointerException if any parameter is null
     public Transition<I> addTransition(final State<I> fromState, final State<I> toState, final BooleanSupplier guard, final I transitionId) {
+        return addTransition(fromState, toState, Transition.ignoreContext(guard), transitionId);
+    }
+
+    /// Adds a new transition with a guard which is evaluated against the context passed to
+    /// [StateMachine#execute(Token, Object)].
+    ///
+    /// Such a guard does not need to capture per-entity state, so one model can be shared by
+    /// all entities. The guard is called with whatever context is passed to the state machine,
+    /// a guard expecting another type will fail with a [ClassCastException].
+    ///
+    /// @param fromState    The source state of the transition
+    /// @param toState      The target state of the transition
+    /// @param guard        A [Predicate] on the context that determines if the transition is allowed
+    /// @param transitionId The unique identifier for the transition
+    /// @param <C>          The type of the context
+    /// @return The newly created transition
+    /// @throws NullPointerException if any parameter is null
+    @SuppressWarnings("unchecked")
+    public <C> Transition<I> addTransition(final State<I> fromState, final State<I> toState, final Predicate<? super C> guard, final I transitionId) {
         Objects.requireNonNull(fromState, "fromState must not be null");
         Objects.requireNonNull(toState, "toState must not be null");
         Objects.requireNonNull(guard, "guard must not be null");
@@ -123,18 +491,33 @@ public record StateModel<I>(
             throw new IllegalArgumentException("Both states (" + fromState + " -> " + toState + ") must be from the current model: " + id);
         }
         checkTransitionIdExists(transitionId);
-        final var transition = new Transition<>(transitionId, fromState, toState, guard);
+        final var transition = new Transition<>(transitionId, fromState, toState, (Predicate<Object>) guard, transitions.size());
         fromState.addOutgoingTransition(transition);
         toState.addIncomingTransition(transition);
+        transitions.add(transition);
+        dispatcher = null;
         return transition;
     }
 
+    /// Adds a new transition with an asynchronous guard.
+    ///
+    /// [AsyncGuardEvaluator] resolves the guards of all outgoing transitions of a state
+    /// concurrently, [StateMachine] waits for the guard like for any other guard.
+    ///
+    /// @param fromState    The source state of the transition
+    /// @param toState      The target state of the transition
+    /// @param guard        An [AsyncGuard] on the context that determines if the transition is allowed
+    /// @param transitionId The unique identifier for the transition
+    /// @param <C>          The type of the context
+    /// @return The newly created transition
+    /// @throws NullPointerException if any parameter is null
+    @SuppressWarnings("unchecked")
+    public <C> Transition<I> addAsyncTransition(final State<I> fromState, final State<I> toState, final AsyncGuard<? super C> guard, final I transitionId) {
+        return addTransition(fromState, toState, Transition.blocking((AsyncGuard<Object>) guard), transitionId);
+    }
+
     private void checkTransitionIdExists(final I transitionId) {
-        if (states().stream().flatMap(s -> s.outgoingTransitions().stream()).anyMatch(t -> t.id().equals(transitionId))) {
-            throw new IllegalArgumentException("Transition with id " + transitionId + " already exists");
-        }
-        // should be not necessary, all incoming transitions should have exactly one outgoing transition
-        if (states().stream().flatMap(s -> s.incomingTransitions().stream()).anyMatch(t -> t.id().equals(transitionId))) {
+        if (transitions.stream().anyMatch(t -> t.id().equals(transitionId))) {
             throw new IllegalArgumentException("Transition with id " + transitionId + " already exists");
         }
     }
@@ -143,23 +526,57 @@ public record StateModel<I>(
     ///
     /// @param startState an existing state in this model
     /// @return a newly created [Token]
+    /// @throws IllegalStateException if the state is full, see [#setCapacity(State, int)]
     public Token<I> createToken(final State<I> startState) {
         Objects.requireNonNull(startState, "startState must not be null");
         if (!contains(startState)) {
             throw new IllegalArgumentException("model must contain state " + startState);
         }
+        final var gate = gate(startState);
+        if (gate != null && !gate.tryAcquire()) {
+            throw new IllegalStateException("State " + startState + " is full");
+        }
         return new Token<>(startState, this);
     }
 
+    /// Creates an initial [CompositeToken] starting at a given state in this [StateModel].
+    ///
+    /// If the start state is a parallel state every region starts at its initial state.
+    ///
+    /// @param startState an existing state in this model
+    /// @return a newly created [CompositeToken]
+    public CompositeToken<I> createCompositeToken(final State<I> startState) {
+        final var token = createToken(startState);
+        return new CompositeToken<>(token, startRegions(startState));
+    }
+
+    /// @return new tokens at the initial states of the regions of a state
+    List<Token<I>> startRegions(final State<I> state) {
+        return regions(state).stream()
+                .map(region -> region.model().createToken(region.initialState()))
+                .toList();
+    }
+
     /// Checks if the specified state is part of this model.
     ///
     /// This method is used to validate state existence before updating tokens or
-    /// performing operations that require state-to-model association.
+    /// performing operations that require state-to-model association. It is a constant time
+    /// lookup by the ordinal of the state.
     ///
     /// @param state The state to check for membership in this model
     /// @return `true` if the state is part of the model, `false` otherwise
     public boolean contains(final State<I> state) {
-        return states.contains(state);
+        final var ordinal = state.ordinal();
+        return ordinal >= 0 && ordinal < states.size() && states.get(ordinal) == state;
+    }
+
+    /// Checks if the specified transition is part of this model.
+    ///
+    /// @param transition The transition to check for membership in this model
+    /// @return `true` if the transition is part of the model, `false` otherwise
+    public boolean contains(final Transition<I> transition) {
+        final var ordinal = transition.ordinal();
+        return ordinal >= 0 && ordinal < transitions.size() && transitions.get(ordinal) == transition;
     }
 
     @Override
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/// Builds a [StateModel] from states and transitions added in bulk, e.g. by a generator.
+///
+/// In contrast to [StateModel#addState(Object)] and [StateModel#addTransition(State, State, BooleanSupplier, Object)]
+/// nothing is validated while adding. [#build()] validates everything once with hash lookups:
+/// duplicate state ids are merged, a transition id added twice with the same endpoints and guard is
+/// merged, all other duplicates and unknown endpoints fail. The transitions are then sorted by
+/// source and target state with a counting sort, every transition list is allocated with its final
+/// size and, if enabled, the states are wired in parallel.
+///
+/// The result is an ordinary model; states are numbered in the order they were first added,
+/// transitions in the order they were added. Listeners and parallel states can be added to the
+/// built model as usual.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class StateModelBuilder<I> {
+    /// Models with fewer transitions are always wired sequentially
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    /// A transition added to the builder.
+    ///
+    /// @param <I>    The type of the state identifier (e.g., String, Integer)
+    /// @param id     the transition id
+    /// @param source the id of the source state
+    /// @param target the id of the target state
+    /// @param guard  the guard, receives the context passed to the state machine
+    public record Edge<I>(I id, I source, I target, Predicate<Object> guard) {
+
+        /// Ensure that all fields are set
+        public Edge {
+            Objects.requireNonNull(id, "id must not be null");
+            Objects.requireNonNull(source, "source must not be null");
+            Objects.requireNonNull(target, "target must not be null");
+            Objects.requireNonNull(guard, "guard must not be null");
+        }
+    }
+
+    private final I modelId;
+    private final List<I> stateIds = new ArrayList<>();
+    private final List<Edge<I>> edges = new ArrayList<>();
+    private boolean parallel;
+
+    /// @param modelId the id of the built model
+    public StateModelBuilder(final I modelId) {
+        this.modelId = Objects.requireNonNull(modelId, "modelId must not be null");
+    }
+
+    /// Adds states, a state id added twice is only created once.
+    ///
+    /// @param ids the state ids
+    /// @return this builder
+    public StateModelBuilder<I> addStates(final Collection<? extends I> ids) {
+        stateIds.addAll(ids);
+        return this;
+    }
+
+    /// Adds states, a state id added twice is only created once.
+    ///
+    /// @param ids the state ids
+    /// @return this builder
+    @SafeVarargs
+    public final StateModelBuilder<I> addStates(final I... ids) {
+        return addStates(Arrays.asList(ids));
+    }
+
+    /// Adds a transition with a guard which ignores the context.
+    ///
+    /// @param fromState    the id of the source state
+    /// @param toState      the id of the target state
+    /// @param guard        the guard
+    /// @param transitionId the transition id
+    /// @return this builder
+    public StateModelBuilder<I> addTransition(final I fromState, final I toState, final BooleanSupplier guard, final I transitionId) {
+        return addTransition(fromState, toState, Transition.ignoreContext(guard), transitionId);
+    }
+
+    /// Adds a transition with a guard which is evaluated against the context.
+    ///
+    /// @param fromState    the id of the source state
+    /// @param toState      the id of the target state
+    /// @param guard        the guard
+    /// @param transitionId the transition id
+    /// @return this builder
+    public StateModelBuilder<I> addTransition(final I fromState, final I toState, final Predicate<Object> guard, final I transitionId) {
+        edges.add(new Edge<>(transitionId, fromState, toState, guard));
+        return this;
+    }
+
+    /// Adds transitions, e.g. the flattened adjacency list of a generated model.
+    ///
+    /// @param transitions the transitions
+    /// @return this builder
+    public StateModelBuilder<I> addTransitions(final Collection<Edge<I>> transitions) {
+        edges.addAll(transitions);
+        return this;
+    }
+
+    /// Enables wiring the states on the common [java.util.concurrent.ForkJoinPool] for large models.
+    ///
+    /// @param enabled `true` to wire in parallel
+    /// @return this builder
+    public StateModelBuilder<I> parallel(final boolean enabled) {
+        this.parallel = enabled;
+        return this;
+    }
+
+    /// Validates the states and transitions and creates the model.
+    ///
+    /// @return the new model
+    /// @throws NullPointerException     if a state id is null
+    /// @throws IllegalArgumentException if a transition id is used twice or a transition references an unknown state
+    public StateModel<I> build() {
+        final var ordinals = new HashMap<I, Integer>(Math.max(16, stateIds.size() * 4 / 3 + 1));
+        final var ids = new ArrayList<I>(stateIds.size());
+        for (final var id : stateIds) {
+            Objects.requireNonNull(id, "state id must not be null");
+            if (ordinals.putIfAbsent(id, ids.size()) == null) {
+                ids.add(id);
+            }
+        }
+
+        final var transitionOrdinals = new HashMap<I, Integer>(Math.max(16, edges.size() * 4 / 3 + 1));
+        final var unique = new ArrayList<Edge<I>>(edges.size());
+        final var sources = new int[edges.size()];
+        final var targets = new int[edges.size()];
+        final var outDegree = new int[ids.size() + 1];
+        final var inDegree = new int[ids.size() + 1];
+        for (final var edge : edges) {
+            final var previous = transitionOrdinals.putIfAbsent(edge.id(), unique.size());
+            if (previous != null) {
+                if (!edge.equals(unique.get(previous))) {
+                    throw new IllegalArgumentException("Transition with id " + edge.id() + " already exists");
+                }
+                continue;
+            }
+            final var source = ordinals.get(edge.source());
+            final var target = ordinals.get(edge.target());
+            if (source == null || target == null) {
+                throw new IllegalArgumentException("Both states (" + edge.source() + " -> " + edge.target() + ") must be from the current model: " + modelId);
+            }
+            sources[unique.size()] = source;
+            targets[unique.size()] = target;
+            outDegree[source + 1]++;
+            inDegree[target + 1]++;
+            unique.add(edge);
+        }
+
+        return assemble(modelId, ids, unique.stream().map(Edge::id).toList(), sources, targets,
+                unique.stream().map(Edge::guard).toList(), outDegree, inDegree, parallel);
+    }
+
+    /// Creates a model from definitions which were validated at build time, e.g. by the model
+    /// compiler of the `model-compiler` module.
+    ///
+    /// Nothing is validated or looked up: the states get the ordinals of their position in
+    /// `stateIds`, transition `i` leads from state `sources[i]` to state `targets[i]`.
+    ///
+    /// @param modelId       the id of the model
+    /// @param stateIds      the unique state ids in ordinal order
+    /// @param transitionIds the unique transition ids in ordinal order
+    /// @param sources       the ordinal of the source state of every transition
+    /// @param targets       the ordinal of the target state of every transition
+    /// @param guards        the guard of every transition
+    /// @return the new model
+    public static <I> StateModel<I> compiled(final I modelId, final List<I> stateIds, final List<I> transitionIds,
+                                             final int[] sources, final int[] targets, final List<Predicate<Object>> guards) {
+        final var outDegree = new int[stateIds.size() + 1];
+        final var inDegree = new int[stateIds.size() + 1];
+        for (var ordinal = 0; ordinal < sources.length; ordinal++) {
+            outDegree[sources[ordinal] + 1]++;
+            inDegree[targets[ordinal] + 1]++;
+        }
+        return assemble(modelId, stateIds, transitionIds, sources, targets, guards, outDegree, inDegree, false);
+    }
+
+    /// Creates the states and transitions, `outDegree[state + 1]` and `inDegree[state + 1]` hold
+    /// the number of transitions per state.
+    private static <I> StateModel<I> assemble(final I modelId, final List<I> ids, final List<I> transitionIds,
+                                              final int[] sources, final int[] targets, final List<Predicate<Object>> guards,
+                                              final int[] outDegree, final int[] inDegree, final boolean parallel) {
+        final var count = transitionIds.size();
+        final var outgoing = bucket(sources, count, outDegree);
+        final var incoming = bucket(targets, count, inDegree);
+        final var states = new ArrayList<State<I>>(ids.size());
+        for (var ordinal = 0; ordinal < ids.size(); ordinal++) {
+            states.add(new State<>(ids.get(ordinal),
+                    new ArrayList<>(outDegree[ordinal + 1] - outDegree[ordinal]),
+                    new ArrayList<>(inDegree[ordinal + 1] - inDegree[ordinal]),
+                    Optional.empty(), ordinal));
+        }
+        final var transitions = new ArrayList<Transition<I>>(count);
+        for (var ordinal = 0; ordinal < count; ordinal++) {
+            transitions.add(new Transition<>(transitionIds.get(ordinal), states.get(sources[ordinal]), states.get(targets[ordinal]), guards.get(ordinal), ordinal));
+        }
+
+        var range = IntStream.range(0, states.size());
+        if (parallel && count >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
+        }
+        range.forEach(ordinal -> {
+            final var state = states.get(ordinal);
+            for (var i = outDegree[ordinal]; i < outDegree[ordinal + 1]; i++) {
+                state.outgoingTransitions().add(transitions.get(outgoing[i]));
+            }
+            for (var i = inDegree[ordinal]; i < inDegree[ordinal + 1]; i++) {
+                state.incomingTransitions().add(transitions.get(incoming[i]));
+            }
+        });
+
+        final var model = new StateModel<>(modelId, states.size(), transitions.size());
+        model.addAll(states, transitions);
+        return model;
+    }
+
+    /// Sorts the transition ordinals by state with a stable counting sort. Turns `degree` into the
+    /// start offsets of the buckets, `degree[state]` to `degree[state + 1]`.
+    private static int[] bucket(final int[] states, final int count, final int[] degree) {
+        for (var i = 1; i < degree.length; i++) {
+            degree[i] += degree[i - 1];
+        }
+        final var next = Arrays.copyOf(degree, degree.length);
+        final var sorted = new int[count];
+        for (var ordinal = 0; ordinal < count; ordinal++) {
+            sorted[next[states[ordinal]]++] = ordinal;
+        }
+        return sorted;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/// Shrinks a [StateModel] by merging behaviourally equivalent states.
+///
+/// Two steps reduce the number of states a token walks through:
+/// 1. Chains of [Transition#ALWAYS] transitions are collapsed. A state whose only outgoing
+///    transition is unconditional is left immediately by every token, so transitions into it are
+///    redirected to the end of the chain. This is only done if neither the state, the transition
+///    nor the model have listeners.
+/// 2. The remaining states are merged by partition refinement: starting with one block per set
+///    of outgoing guards, blocks are split until all states of a block have the same guards
+///    leading into the same blocks. Guards are compared with `equals`, i.e. the same guard object
+///    or the same [java.util.function.BooleanSupplier]. States with listeners, transitions with
+///    listeners and parallel states are never merged.
+///
+/// The minimized model is a new model, the original is not modified. Executing a token of the
+/// minimized model ends in the replacement of the state the original model ends in. Listeners
+/// of kept states and transitions are registered on the minimized model as well.
+public final class StateModelMinimizer {
+    private StateModelMinimizer() {
+    }
+
+    /// Minimizes a model.
+    ///
+    /// @param model the model
+    /// @param <I>   The type of the state identifier
+    /// @return the minimized model and the mapping of the original states
+    public static <I> MinimizedModel<I> minimize(final StateModel<I> model) {
+        final var hooks = model.hooks();
+        final var states = new ArrayList<>(model.states());
+        final var count = states.size();
+
+        final var resolved = resolveChains(model, states);
+
+        final var block = new int[count];
+        final var blocks = refine(model, states, resolved, block);
+
+        final var result = new StateModel<I>(model.id(), blocks, model.transitions().size());
+        final var representatives = new ArrayList<State<I>>(blocks);
+        final var replacements = new ArrayList<State<I>>(blocks);
+        for (final var state : states) {
+            if (resolved[state.ordinal()] == state.ordinal() && block[state.ordinal()] == representatives.size()) {
+                representatives.add(state);
+                final var regions = model.regions(state);
+                replacements.add(regions.isEmpty() ? result.addState(state.id()) : result.addParallelState(state.id(), regions));
+            }
+        }
+        for (final var representative : representatives) {
+            final var replacement = replacements.get(block[representative.ordinal()]);
+            copyListeners(hooks.entryListeners(representative.ordinal()), listener -> result.addEntryListener(replacement, listener));
+            copyListeners(hooks.exitListeners(representative.ordinal()), listener -> result.addExitListener(replacement, listener));
+            for (final var transition : representative.outgoingTransitions()) {
+                final var target = replacements.get(block[resolved[transition.target().ordinal()]]);
+                final var copy = result.addTransition(replacement, target, transition.guard(), transition.id());
+                copyListeners(hooks.transitionListeners(transition.ordinal()), listener -> result.addTransitionListener(copy, listener));
+            }
+        }
+        copyListeners(hooks.modelListeners(), result::addTransitionListener);
+        result.setHookExceptionHandler(hooks.exceptionHandler());
+        result.setBackend(model.backend());
+
+        final var mapping = new HashMap<I, State<I>>(count * 4 / 3 + 1);
+        for (final var state : states) {
+            mapping.put(state.id(), replacements.get(block[resolved[state.ordinal()]]));
+        }
+        return new MinimizedModel<>(result, model, mapping);
+    }
+
+    /// Follows the unconditional chains, returns for every state the ordinal of the state a token ends in.
+    private static <I> int[] resolveChains(final StateModel<I> model, final List<State<I>> states) {
+        final var count = states.size();
+        final var resolved = new int[count];
+        final var collapsible = new boolean[count];
+        final var hooks = model.hooks();
+        final var modelListeners = hooks.modelListeners().length > 0;
+        for (final var state : states) {
+            final var ordinal = state.ordinal();
+            resolved[ordinal] = -1;
+            if (modelListeners || state.outgoingTransitions().size() != 1 || hasListeners(model, state)) {
+                continue;
+            }
+            final var transition = state.outgoingTransitions().iterator().next();
+            collapsible[ordinal] = transition.isUnconditional()
+                    && transition.target() != state
+                    && hooks.transitionListeners(transition.ordinal()) == null;
+        }
+        for (var start = 0; start < count; start++) {
+            if (resolved[start] >= 0) {
+                continue;
+            }
+            final var chain = new ArrayList<Integer>();
+            var current = start;
+            while (collapsible[current] && resolved[current] == -1) {
+                resolved[current] = -2;
+                chain.add(current);
+                current = states.get(current).outgoingTransitions().iterator().next().target().ordinal();
+            }
+            final int end;
+            if (resolved[current] >= 0) {
+                end = resolved[current];
+            } else if (resolved[current] == -2) {
+                // a cycle of unconditional transitions is kept as it is
+                for (final var ordinal : chain) {
+                    resolved[ordinal] = ordinal;
+                }
+                continue;
+            } else {
+                end = current;
+                resolved[current] = current;
+            }
+            for (final var ordinal : chain) {
+                resolved[ordinal] = end;
+            }
+        }
+        return resolved;
+    }
+
+    /// Assigns every kept state to a block of equivalent states, blocks are numbered in the order
+    /// of their first state. Returns the number of blocks.
+    private static <I> int refine(final StateModel<I> model, final List<State<I>> states, final int[] resolved, final int[] block) {
+        var blocks = 0;
+        final var initial = new HashMap<Object, Integer>();
+        for (final var state : states) {
+            final var ordinal = state.ordinal();
+            if (resolved[ordinal] != ordinal) {
+                continue;
+            }
+            final Object key = isMergeable(model, state)
+                    ? state.outgoingTransitions().stream().map(Transition::guard).toList()
+                    : state;
+            final var previous = initial.putIfAbsent(key, blocks);
+            block[ordinal] = previous == null ? blocks++ : previous;
+        }
+        while (true) {
+            final var signatures = new HashMap<List<Object>, Integer>();
+            final var refined = new int[block.length];
+            var newBlocks = 0;
+            for (final var state : states) {
+                final var ordinal = state.ordinal();
+                if (resolved[ordinal] != ordinal) {
+                    continue;
+                }
+                final var signature = new ArrayList<Object>(1 + 2 * state.outgoingTransitions().size());
+                signature.add(block[ordinal]);
+                for (final var transition : state.outgoingTransitions()) {
+                    signature.add(transition.guard());
+                    signature.add(block[resolved[transition.target().ordinal()]]);
+                }
+                final var previous = signatures.putIfAbsent(signature, newBlocks);
+                refined[ordinal] = previous == null ? newBlocks++ : previous;
+            }
+            System.arraycopy(refined, 0, block, 0, block.length);
+            if (newBlocks == blocks) {
+                return blocks;
+            }
+            blocks = newBlocks;
+        }
+    }
+
+    private static <I> boolean isMergeable(final StateModel<I> model, final State<I> state) {
+        if (hasListeners(model, state) || model.isParallel(state)) {
+            return false;
+        }
+        final var hooks = model.hooks();
+        return state.outgoingTransitions().stream().allMatch(t -> hooks.transitionListeners(t.ordinal()) == null);
+    }
+
+    private static <I> boolean hasListeners(final StateModel<I> model, final State<I> state) {
+        final var hooks = model.hooks();
+        return hooks.entryListeners(state.ordinal()) != null || hooks.exitListeners(state.ordinal()) != null
+                || model.isParallel(state);
+    }
+
+    private static <T> void copyListeners(final T[] listeners, final Consumer<T> register) {
+        if (listeners != null) {
+            for (final var listener : listeners) {
+                register.accept(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.List;
+import java.util.Optional;
+
+/// Loads the states of a [LazyStateModel] on demand, e.g. from an indexed file or a generator function.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+@FunctionalInterface
+public interface StateSource<I> {
+
+    /// Loads the outgoing transitions of a state. Must return equal transitions every time it is
+    /// called for the same state, as a state may be loaded again after it was evicted.
+    ///
+    /// @param state the state id
+    /// @return the outgoing transitions, empty if the state does not exist
+    Optional<List<LazyTransition<I>>> load(I state);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+
+/// The result of one step of a token, see [StateMachine#tryStep(Token, Object)].
+///
+/// @param <I>        The type of the state identifier (e.g., String, Integer)
+/// @param token      the token after the step, the given token unless it moved
+/// @param transition the transition taken or blocked, `null` if the token is done
+/// @param outcome    what happened in the step
+public record StepResult<I>(Token<I> token, Transition<I> transition, Outcome outcome) {
+
+    /// What happened in a step.
+    public enum Outcome {
+        /// The token took a transition
+        MOVED,
+        /// No transition is enabled or the token is at a parallel state
+        DONE,
+        /// A transition is enabled but its target state is full, see [StateModel#setCapacity(State, int)]
+        BLOCKED
+    }
+
+    /// Ensure that the fields match the outcome
+    public StepResult {
+        Objects.requireNonNull(token, "token must not be null");
+        Objects.requireNonNull(outcome, "outcome must not be null");
+        if ((transition == null) != (outcome == Outcome.DONE)) {
+            throw new IllegalArgumentException("transition " + transition + " does not match outcome " + outcome);
+        }
+    }
+
+    /// @return `true` if no transition is enabled
+    public boolean isDone() {
+        return outcome == Outcome.DONE;
+    }
+
+    /// @return `true` if the token waits for a free slot in the target state of [#transition()]
+    public boolean isBlocked() {
+        return outcome == Outcome.BLOCKED;
+    }
+}
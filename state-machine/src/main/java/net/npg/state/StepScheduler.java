@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/// A fair scheduler which interleaves the execution of many tokens on a fixed number of workers.
+///
+/// [StateMachine#execute(Token, Object)] runs a token to completion, so one token with a long chain
+/// of transitions blocks its thread. This scheduler uses [StateMachine#step(Token, Object)] instead:
+/// a worker takes at most `quota` transitions of a token, then puts it back into the queue. The
+/// queue is ordered by deadline and, for equal deadlines, by the time the token was queued, so
+/// tokens without deadline are served round robin and tokens with an earlier deadline first.
+///
+/// A token whose next transition leads into a full state, see [StateModel#setCapacity(State, int)],
+/// does not occupy the queue: it is parked at the state and queued again once it was admitted.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+public final class StepScheduler<I> implements AutoCloseable {
+    /// Default number of transitions a token may take before it is queued again
+    public static final int DEFAULT_QUOTA = 8;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final PriorityBlockingQueue<Task<I>> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong slices = new AtomicLong();
+    private final AtomicLong missedDeadlines = new AtomicLong();
+    private final Set<Task<I>> parked = ConcurrentHashMap.newKeySet();
+    private final int quota;
+    private final List<Thread> workers;
+    private volatile boolean closed;
+
+    private static final class Task<I> implements Comparable<Task<I>> {
+        private final Object context;
+        private final long deadline;
+        private final CompletableFuture<Token<I>> result = new CompletableFuture<>();
+        private Token<I> token;
+        private long sequence;
+        private Runnable admitted;
+
+        private Task(final Token<I> token, final Object context, final long deadline) {
+            this.token = token;
+            this.context = context;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int compareTo(final Task<I> other) {
+            if (deadline != other.deadline) {
+                if (deadline == NO_DEADLINE || other.deadline == NO_DEADLINE) {
+                    return deadline == NO_DEADLINE ? 1 : -1;
+                }
+                return deadline - other.deadline < 0 ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /// Creates a scheduler with [#DEFAULT_QUOTA] transitions per slice.
+    ///
+    /// @param workers the number of worker threads
+    public StepScheduler(final int workers) {
+        this(workers, DEFAULT_QUOTA);
+    }
+
+    /// Creates a scheduler and starts its workers.
+    ///
+    /// @param workers the number of worker threads
+    /// @param quota   the maximum number of transitions of a token in one slice
+    /// @throws IllegalArgumentException if a parameter is not positive
+    public StepScheduler(final int workers, final int quota) {
+        if (workers <= 0 || quota <= 0) {
+            throw new IllegalArgumentException("workers and quota must be positive: " + workers + ", " + quota);
+        }
+        this.quota = quota;
+        final var threads = new ArrayList<Thread>(workers);
+        for (var i = 0; i < workers; i++) {
+            threads.add(Thread.ofPlatform().name("step-scheduler-" + i).daemon().start(this::work));
+        }
+        this.workers = List.copyOf(threads);
+    }
+
+    /// Schedules a token without deadline.
+    ///
+    /// @param token   the token to execute
+    /// @param context the context passed to the guards, may be null
+    /// @return completes with the final token, see [StateMachine#execute(Token, Object)]
+    public CompletableFuture<Token<I>> submit(final Token<I> token, final Object context) {
+        return enqueue(new Task<>(Objects.requireNonNull(token, "token must not be null"), context, NO_DEADLINE));
+    }
+
+    /// Schedules a token which should be finished within a time. Tokens with an earlier deadline
+    /// are preferred, a token is never dropped because it missed its deadline.
+    ///
+    /// @param token    the token to execute
+    /// @param context  the context passed to the guards, may be null
+    /// @param deadline the time from now in which the token should be finished
+    /// @return completes with the final token, see [StateMachine#execute(Token, Object)]
+    public CompletableFuture<Token<I>> submit(final Token<I> token, final Object context, final Duration deadline) {
+        Objects.requireNonNull(token, "token must not be null");
+        Objects.requireNonNull(deadline, "deadline must not be null");
+        return enqueue(new Task<>(token, context, System.nanoTime() + deadline.toNanos()));
+    }
+
+    /// @return the number of slices run so far
+    public long slices() {
+        return slices.get();
+    }
+
+    /// @return the number of tokens which finished after their deadline
+    public long missedDeadlines() {
+        return missedDeadlines.get();
+    }
+
+    /// @return the number of tokens parked at a full state
+    public int parked() {
+        return parked.size();
+    }
+
+    /// Stops the workers, tokens which are not finished are cancelled.
+    @Override
+    public void close() {
+        closed = true;
+        for (final var worker : workers) {
+            try {
+                worker.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Task<I> task;
+        while ((task = queue.poll()) != null) {
+            task.result.cancel(false);
+        }
+        for (final var waiting : parked) {
+            waiting.result.cancel(false);
+        }
+        parked.clear();
+    }
+
+    private CompletableFuture<Token<I>> enqueue(final Task<I> task) {
+        if (closed) {
+            throw new IllegalStateException("Scheduler is closed");
+        }
+        task.sequence = sequence.getAndIncrement();
+        queue.add(task);
+        return task.result;
+    }
+
+    private void work() {
+        try {
+            while (!closed) {
+                final var task = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (task != null && !task.result.isDone()) {
+                    run(task);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(final Task<I> task) {
+        slices.incrementAndGet();
+        try {
+            final var admitted = task.admitted;
+            if (admitted != null) {
+                task.admitted = null;
+                admitted.run();
+                if (task.result.isDone()) {
+                    return;
+                }
+            }
+            for (var i = 0; i < quota; i++) {
+                final var step = StateMachine.tryStep(task.token, task.context);
+                if (step.isBlocked()) {
+                    park(task, step.transition());
+                    return;
+                }
+                if (step.isDone()) {
+                    if (task.deadline != NO_DEADLINE && System.nanoTime() - task.deadline > 0) {
+                        missedDeadlines.incrementAndGet();
+                    }
+                    task.result.complete(step.token());
+                    return;
+                }
+                task.token = step.token();
+            }
+        } catch (final RuntimeException e) {
+            task.result.completeExceptionally(e);
+            return;
+        }
+        task.sequence = sequence.getAndIncrement();
+        queue.add(task);
+    }
+
+    /// Parks a token at the full target state of a transition; once admitted a worker moves it.
+    private void park(final Task<I> task, final Transition<I> transition) {
+        parked.add(task);
+        StateMachine.park(task.token, transition, task.context, admitted -> {
+            if (closed || !parked.remove(task)) {
+                throw new RejectedExecutionException("Scheduler is closed");
+            }
+            task.admitted = admitted;
+            task.sequence = sequence.getAndIncrement();
+            queue.add(task);
+        }, token -> task.token = token, task.result::completeExceptionally);
+    }
+}
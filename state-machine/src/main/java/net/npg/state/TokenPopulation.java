@@ -0,0 +1,551 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+package net.npg.state;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.stream.LongStream;
+
+/// An off-heap population of tokens for one [StateModel].
+///
+/// Instead of one [Token] object per entity this class stores the ordinal of the current [State]
+/// of every entity in a slot of a [MemorySegment]. A slot costs four bytes and is never scanned by
+/// the garbage collector. Slots are addressed by a `long` index chosen by the caller, e.g. an entity
+/// number. An empty slot contains [#EMPTY].
+///
+/// The whole population can be written to and restored from a file with a single bulk copy, see
+/// [#checkpoint(Path)] and [#restore(Path)]. The file contains a small header followed by the raw
+/// slots in little endian byte order.
+///
+/// An indexed population additionally keeps an occupancy index per state, so [#count(State)] and
+/// [#slots(State)] answer which entities are in a state without scanning all slots. The index is
+/// updated whenever a slot is written, including by [StateMachine#execute(TokenPopulation, long)],
+/// and costs one bit per slot and state.
+///
+/// With [#trackEntryTimes(LongSupplier)] the population also stores the time every token entered
+/// its current state, eight more bytes per slot. A [DwellWatchdog] uses them to find tokens which
+/// stay in a state for too long.
+///
+/// With [#recordHistory(int, LongSupplier)] the population keeps the last transitions of every
+/// token taken by [StateMachine#execute(TokenPopulation, long, Object)] in a fixed size ring
+/// buffer, e.g. for audits.
+///
+/// Reading and writing single slots is thread safe as long as different threads work on different
+/// slots. The population must be closed to release the off-heap memory.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see StateMachine#execute(TokenPopulation, long)
+public final class TokenPopulation<I> implements AutoCloseable {
+    /// Marker of a slot which holds no token
+    public static final int EMPTY = -1;
+
+    private static final ValueLayout.OfInt SLOT = ValueLayout.JAVA_INT.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong ENTRY_TIME = ValueLayout.JAVA_LONG;
+    private static final ValueLayout.OfInt HEADER_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong HEADER_LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final int MAGIC = 0x4E504754;
+    private static final long HEADER_SIZE = 16;
+
+    private final StateModel<I> model;
+    private final long capacity;
+    private final Arena arena;
+    private final MemorySegment slots;
+    private final OccupancyIndex index;
+    private volatile MemorySegment entryTimes;
+    private LongSupplier clock;
+    private volatile DwellWatchdog<I> watchdog;
+    private volatile TransitionHistory history;
+
+    /// Allocates a population with `capacity` empty slots without an occupancy index.
+    ///
+    /// @param model    the model of all tokens in this population
+    /// @param capacity the number of slots
+    /// @throws IllegalArgumentException if the capacity is not positive
+    public TokenPopulation(final StateModel<I> model, final long capacity) {
+        this(model, capacity, false);
+    }
+
+    /// Allocates a population with `capacity` empty slots.
+    ///
+    /// @param model    the model of all tokens in this population
+    /// @param capacity the number of slots
+    /// @param indexed  `true` to maintain the occupancy index of the states
+    /// @throws IllegalArgumentException if the capacity is not positive
+    public TokenPopulation(final StateModel<I> model, final long capacity, final boolean indexed) {
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.arena = Arena.ofShared();
+        this.slots = arena.allocate(capacity * SLOT.byteSize(), SLOT.byteAlignment());
+        slots.fill((byte) 0xFF);
+        this.index = indexed ? new OccupancyIndex(model.states().size(), capacity) : null;
+    }
+
+    /// @return the model of all tokens in this population
+    public StateModel<I> model() {
+        return model;
+    }
+
+    /// @return the number of slots
+    public long capacity() {
+        return capacity;
+    }
+
+    /// @return `true` if this population maintains the occupancy index
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    /// Returns the number of tokens in a state.
+    ///
+    /// @param state a state of the model
+    /// @return the number of slots holding the state
+    /// @throws IllegalStateException if the population is not indexed
+    public long count(final State<I> state) {
+        return index().count(checkState(state).ordinal());
+    }
+
+    /// Returns the slots of all tokens in a state in ascending order.
+    ///
+    /// The stream reads the index lazily, slots written concurrently may or may not be included.
+    ///
+    /// @param state a state of the model
+    /// @return the slot indexes
+    /// @throws IllegalStateException if the population is not indexed
+    public LongStream slots(final State<I> state) {
+        return index().slots(checkState(state).ordinal());
+    }
+
+    /// Starts recording the time every token enters its state. Tokens which are already stored get
+    /// the current time. Writing a slot with the state it already holds keeps its entry time.
+    ///
+    /// Must be called before the population is used concurrently.
+    ///
+    /// @param nanoClock the clock in nanoseconds, e.g. `System::nanoTime`
+    /// @throws IllegalStateException if entry times are already recorded
+    public void trackEntryTimes(final LongSupplier nanoClock) {
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (entryTimes != null) {
+            throw new IllegalStateException("Entry times are already recorded");
+        }
+        final var times = arena.allocate(capacity * ENTRY_TIME.byteSize(), ENTRY_TIME.byteAlignment());
+        final var now = nanoClock.getAsLong();
+        for (var slot = 0L; slot < capacity; slot++) {
+            times.setAtIndex(ENTRY_TIME, slot, now);
+        }
+        this.clock = nanoClock;
+        this.entryTimes = times;
+    }
+
+    /// @return `true` if the entry times of the tokens are recorded
+    public boolean tracksEntryTimes() {
+        return entryTimes != null;
+    }
+
+    /// Returns the time the token in a slot entered its current state.
+    ///
+    /// @param slot the slot index
+    /// @return the entry time in nanoseconds of the clock of [#trackEntryTimes(LongSupplier)]
+    /// @throws IllegalStateException if the slot is empty or entry times are not recorded
+    public long entryTime(final long slot) {
+        state(slot);
+        return entryTimes().getAtIndex(ENTRY_TIME, slot);
+    }
+
+    /// @param slot the slot index
+    /// @return how long the token in a slot has been in its current state
+    /// @throws IllegalStateException if the slot is empty or entry times are not recorded
+    public Duration dwellTime(final long slot) {
+        return Duration.ofNanos(now() - entryTime(slot));
+    }
+
+    /// @return the current time of the clock of [#trackEntryTimes(LongSupplier)]
+    long now() {
+        entryTimes();
+        return clock.getAsLong();
+    }
+
+    /// Connects the watchdog which is notified when tokens enter and leave states.
+    void attach(final DwellWatchdog<I> dwellWatchdog) {
+        entryTimes();
+        if (watchdog != null) {
+            throw new IllegalStateException("Population has already a watchdog");
+        }
+        watchdog = dwellWatchdog;
+    }
+
+    /// Writes the entry time of a slot, called by the watchdog while it queues the slot.
+    void writeEntryTime(final long slot, final long time) {
+        entryTimes.setAtIndex(ENTRY_TIME, slot, time);
+    }
+
+    /// Starts recording the last `depth` transitions of every token. The history of a slot is
+    /// written by [StateMachine#execute(TokenPopulation, long, Object)] and removed by
+    /// [#clear(long)], it costs twelve bytes per slot and entry.
+    ///
+    /// Must be called before the population is used concurrently.
+    ///
+    /// @param depth     the number of transitions kept per token
+    /// @param nanoClock the clock in nanoseconds for the time of the transitions, e.g. `System::nanoTime`
+    /// @throws IllegalArgumentException if the depth is not positive
+    /// @throws IllegalStateException    if the history is already recorded
+    public void recordHistory(final int depth, final LongSupplier nanoClock) {
+        Objects.requireNonNull(nanoClock, "nanoClock must not be null");
+        if (depth <= 0) {
+            throw new IllegalArgumentException("depth must be positive: " + depth);
+        }
+        if (history != null) {
+            throw new IllegalStateException("History is already recorded");
+        }
+        history = new TransitionHistory(arena, capacity, depth, nanoClock);
+    }
+
+    /// @return the number of transitions kept per token, `0` if no history is recorded
+    public int historyDepth() {
+        final var current = history;
+        return current == null ? 0 : current.depth();
+    }
+
+    /// Returns the last transitions of the token in a slot.
+    ///
+    /// @param slot  the slot index
+    /// @param count the maximum number of transitions
+    /// @return up to `count` transitions, the oldest first
+    /// @throws IllegalStateException if no history is recorded
+    public List<HistoryEntry<I>> lastTransitions(final long slot, final int count) {
+        final var current = recordedHistory();
+        return entries(current, slot, Math.min(Math.max(count, 0), current.size(slot)));
+    }
+
+    /// Returns the transitions of the token in a slot taken at or after a time.
+    ///
+    /// Only the transitions still in the history are returned, at most [#historyDepth()].
+    ///
+    /// @param slot the slot index
+    /// @param time the earliest time in nanoseconds of the clock of the history
+    /// @return the transitions, the oldest first
+    /// @throws IllegalStateException if no history is recorded
+    public List<HistoryEntry<I>> transitionsSince(final long slot, final long time) {
+        final var current = recordedHistory();
+        return entries(current, slot, current.countSince(slot, time));
+    }
+
+    /// Stores the target of a transition taken by the token of a slot and records it in the history.
+    ///
+    /// The token re-enters the target even if it is the state it left, e.g. on a self loop, so its
+    /// entry time is reset and the dwell time of its previous stay is recorded.
+    void transitionTaken(final long slot, final Transition<I> transition) {
+        final var current = history;
+        if (current != null) {
+            current.record(slot, transition.ordinal());
+        }
+        store(slot, transition.target().ordinal(), true);
+    }
+
+    private TransitionHistory recordedHistory() {
+        final var current = history;
+        if (current == null) {
+            throw new IllegalStateException("History is not recorded");
+        }
+        return current;
+    }
+
+    private List<HistoryEntry<I>> entries(final TransitionHistory current, final long slot, final int count) {
+        final var entries = new ArrayList<HistoryEntry<I>>(count);
+        for (var age = count - 1; age >= 0; age--) {
+            entries.add(new HistoryEntry<>(model.transition(current.ordinal(slot, age)), current.time(slot, age)));
+        }
+        return entries;
+    }
+
+    /// Returns the ordinal of the state stored in a slot.
+    ///
+    /// @param slot the slot index
+    /// @return the state ordinal or [#EMPTY]
+    public int ordinal(final long slot) {
+        return slots.getAtIndex(SLOT, slot);
+    }
+
+    /// @param slot the slot index
+    /// @return `true` if the slot holds no token
+    public boolean isEmpty(final long slot) {
+        return ordinal(slot) == EMPTY;
+    }
+
+    /// Returns the state of the token stored in a slot.
+    ///
+    /// @param slot the slot index
+    /// @return the current state of the token
+    /// @throws IllegalStateException if the slot is empty
+    public State<I> state(final long slot) {
+        final var ordinal = ordinal(slot);
+        if (ordinal == EMPTY) {
+            throw new IllegalStateException("Slot " + slot + " is empty");
+        }
+        return model.state(ordinal);
+    }
+
+    /// Stores a new token at the given state in a slot, replacing the previous token.
+    ///
+    /// The new token is counted against the capacity of its state and the previous one is
+    /// released, see [StateModel#setCapacity(State, int)].
+    ///
+    /// @param slot  the slot index
+    /// @param state a state of the model
+    /// @throws IllegalArgumentException if the state is not part of the model
+    /// @throws IllegalStateException    if the state is full
+    public void set(final long slot, final State<I> state) {
+        final var ordinal = checkState(state).ordinal();
+        final var previous = ordinal(slot);
+        if (previous != ordinal) {
+            final var gate = model.gate(state);
+            if (gate != null && !gate.tryAcquire()) {
+                throw new IllegalStateException("State " + state + " is full");
+            }
+            release(previous);
+        }
+        store(slot, ordinal, false);
+    }
+
+    /// Stores the state of a token in a slot.
+    ///
+    /// The token is expected to be the current token of the entity of the slot, e.g. a token of
+    /// [#token(long)] after it was executed, so the capacities of the states are not changed: the
+    /// token was counted when it was created or entered its state.
+    ///
+    /// @param slot  the slot index
+    /// @param token a token of the same model
+    /// @throws IllegalArgumentException if the token belongs to another model
+    public void set(final long slot, final Token<I> token) {
+        Objects.requireNonNull(token, "token must not be null");
+        if (token.model() != model) {
+            throw new IllegalArgumentException("Token " + token + " not part of model " + model);
+        }
+        store(slot, token.state().ordinal(), false);
+    }
+
+    /// Creates a token for the state stored in a slot.
+    ///
+    /// @param slot the slot index
+    /// @return a new token
+    /// @throws IllegalStateException if the slot is empty
+    public Token<I> token(final long slot) {
+        return new Token<>(state(slot), model);
+    }
+
+    /// Removes the token and its history from a slot and releases it from the capacity of its state.
+    ///
+    /// @param slot the slot index
+    public void clear(final long slot) {
+        release(ordinal(slot));
+        store(slot, EMPTY, false);
+        final var current = history;
+        if (current != null) {
+            current.clear(slot);
+        }
+    }
+
+    /// Writes a header and all slots into a file, replacing its content.
+    ///
+    /// The slots are copied with one bulk copy into a memory mapped file.
+    ///
+    /// @param file the checkpoint file
+    /// @throws IOException if the file cannot be written
+    public void checkpoint(final Path file) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        try (final var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             final var mapArena = Arena.ofConfined()) {
+            final var mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + slots.byteSize(), mapArena);
+            mapped.set(HEADER_INT, 0, MAGIC);
+            mapped.set(HEADER_INT, 4, model.states().size());
+            mapped.set(HEADER_LONG, 8, capacity);
+            MemorySegment.copy(slots, 0, mapped, HEADER_SIZE, slots.byteSize());
+            mapped.force();
+        }
+    }
+
+    /// Replaces all slots with the content of a file written by [#checkpoint(Path)].
+    ///
+    /// The slots are copied with one bulk copy from a memory mapped file. Entry times and histories
+    /// are not part of the checkpoint, all tokens get the current time and an empty history. The
+    /// restored tokens replace the previous ones in the occupancy of the states with a capacity,
+    /// even if this exceeds a capacity.
+    ///
+    /// @param file the checkpoint file
+    /// @throws IOException              if the file cannot be read
+    /// @throws IllegalArgumentException if the file does not match the capacity or the number of states of the model
+    public void restore(final Path file) throws IOException {
+        Objects.requireNonNull(file, "file must not be null");
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ);
+             final var mapArena = Arena.ofConfined()) {
+            if (channel.size() != HEADER_SIZE + slots.byteSize()) {
+                throw new IllegalArgumentException("Checkpoint " + file + " does not match capacity " + capacity);
+            }
+            final var mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), mapArena);
+            if (mapped.get(HEADER_INT, 0) != MAGIC) {
+                throw new IllegalArgumentException("Not a token checkpoint: " + file);
+            }
+            if (mapped.get(HEADER_INT, 4) != model.states().size() || mapped.get(HEADER_LONG, 8) != capacity) {
+                throw new IllegalArgumentException("Checkpoint " + file + " does not match model " + model);
+            }
+            recount(-1);
+            MemorySegment.copy(mapped, HEADER_SIZE, slots, 0, slots.byteSize());
+            recount(1);
+        }
+        if (index != null) {
+            index.clear();
+            for (var slot = 0L; slot < capacity; slot++) {
+                final var ordinal = ordinal(slot);
+                if (ordinal != EMPTY) {
+                    index.add(ordinal, slot);
+                }
+            }
+        }
+        if (history != null) {
+            history.clear();
+        }
+        if (entryTimes != null) {
+            final var now = clock.getAsLong();
+            for (var slot = 0L; slot < capacity; slot++) {
+                entryTimes.setAtIndex(ENTRY_TIME, slot, now);
+            }
+            if (watchdog != null) {
+                watchdog.rebuild();
+            }
+        }
+    }
+
+    /// Writes a slot; a token which stays in its state only re-enters it if `reentered` is set.
+    private void store(final long slot, final int ordinal, final boolean reentered) {
+        final var times = entryTimes;
+        if (index == null && times == null) {
+            slots.setAtIndex(SLOT, slot, ordinal);
+            return;
+        }
+        final var previous = ordinal(slot);
+        if (previous == ordinal && (!reentered || times == null)) {
+            return;
+        }
+        slots.setAtIndex(SLOT, slot, ordinal);
+        if (index != null && previous != ordinal) {
+            if (previous != EMPTY) {
+                index.remove(previous, slot);
+            }
+            if (ordinal != EMPTY) {
+                index.add(ordinal, slot);
+            }
+        }
+        if (times != null) {
+            final var now = clock.getAsLong();
+            final var dwellWatchdog = watchdog;
+            if (dwellWatchdog == null) {
+                times.setAtIndex(ENTRY_TIME, slot, now);
+                return;
+            }
+            if (previous != EMPTY) {
+                dwellWatchdog.left(previous, now - times.getAtIndex(ENTRY_TIME, slot));
+            }
+            if (ordinal != EMPTY) {
+                dwellWatchdog.entered(ordinal, slot);
+            }
+        }
+    }
+
+    /// Frees the slot of a token in a state with a capacity.
+    private void release(final int ordinal) {
+        if (ordinal != EMPTY) {
+            final var gate = model.gate(model.state(ordinal));
+            if (gate != null) {
+                gate.release();
+            }
+        }
+    }
+
+    /// Adds or removes all tokens to or from the occupancy of the states with a capacity.
+    private void recount(final int direction) {
+        if (!model.hasCapacities()) {
+            return;
+        }
+        for (var slot = 0L; slot < capacity; slot++) {
+            final var ordinal = ordinal(slot);
+            if (ordinal == EMPTY) {
+                continue;
+            }
+            final var gate = model.gate(model.state(ordinal));
+            if (gate == null) {
+                continue;
+            }
+            if (direction > 0) {
+                gate.add();
+            } else {
+                gate.release();
+            }
+        }
+    }
+
+    private MemorySegment entryTimes() {
+        final var times = entryTimes;
+        if (times == null) {
+            throw new IllegalStateException("Entry times are not recorded");
+        }
+        return times;
+    }
+
+    private State<I> checkState(final State<I> state) {
+        Objects.requireNonNull(state, "state must not be null");
+        if (!model.contains(state)) {
+            throw new IllegalArgumentException("State " + state + " not part of model " + model);
+        }
+        return state;
+    }
+
+    private OccupancyIndex index() {
+        if (index == null) {
+            throw new IllegalStateException("Population is not indexed");
+        }
+        return index;
+    }
+
+    /// Releases the off-heap memory, the population must not be used afterwards.
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    @Override
+    public String toString() {
+        return "TokenPopulation{" +
+                "model=" + model.id() +
+                ", capacity=" + capacity +
+                '}';
+    }
+}
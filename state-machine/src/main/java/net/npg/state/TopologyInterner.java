@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/// Shares one state and transition graph between all structurally identical models.
+///
+/// Applications which capture per-entity state in their guards create many models with the same
+/// states and transitions. [#intern(StateModel)] looks up the topology of such a model, i.e. its
+/// id, its state ids and its transitions with their ids and endpoints, by a canonical structure
+/// hash. The first model of a topology is copied into a shared model whose guards delegate to
+/// per-instance guard bindings; every later model only contributes its guards. The per-instance
+/// model can be discarded afterwards, so the heap holds one graph per distinct topology.
+///
+/// Listeners of the interned models are not copied, register them on the shared model if needed;
+/// they receive the context passed to [InternedModel#execute(Token, Object)]. The shared model can
+/// only be executed through an [InternedModel], which binds its guards for the duration of the call.
+/// Models with parallel states cannot be interned.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see InternedModel
+public final class TopologyInterner<I> {
+    private final Map<Structure<I>, Shared<I>> topologies = new ConcurrentHashMap<>();
+
+    /// A shared model with its states by id, built once per topology
+    private record Shared<I>(StateModel<I> model, Map<I, State<I>> states) {
+    }
+
+    /// The canonical structure of a model, compared by value
+    private record Structure<I>(I modelId, List<I> stateIds, List<I> transitionIds, int[] endpoints, int hash) {
+
+        static <I> Structure<I> of(final StateModel<I> model) {
+            final var stateIds = model.states().stream().map(State::id).toList();
+            final var transitionIds = model.transitions().stream().map(Transition::id).toList();
+            final var endpoints = new int[2 * transitionIds.size()];
+            for (final var transition : model.transitions()) {
+                endpoints[2 * transition.ordinal()] = transition.source().ordinal();
+                endpoints[2 * transition.ordinal() + 1] = transition.target().ordinal();
+            }
+            var hash = model.id().hashCode();
+            hash = 31 * hash + stateIds.hashCode();
+            hash = 31 * hash + transitionIds.hashCode();
+            hash = 31 * hash + Arrays.hashCode(endpoints);
+            return new Structure<>(model.id(), stateIds, transitionIds, endpoints, hash);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof final Structure<?> other
+                    && hash == other.hash
+                    && modelId.equals(other.modelId)
+                    && Arrays.equals(endpoints, other.endpoints)
+                    && stateIds.equals(other.stateIds)
+                    && transitionIds.equals(other.transitionIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /// Interns the topology of a model and binds its guards.
+    ///
+    /// @param model a model, it is not modified
+    /// @return the shared model with the guards of the given model
+    /// @throws IllegalArgumentException if the model contains parallel states
+    public InternedModel<I> intern(final StateModel<I> model) {
+        Objects.requireNonNull(model, "model must not be null");
+        for (final var state : model.states()) {
+            if (model.isParallel(state)) {
+                throw new IllegalArgumentException("Parallel state " + state + " cannot be interned");
+            }
+        }
+        final var shared = topologies.computeIfAbsent(Structure.of(model), structure -> share(structure, model.backend()));
+        @SuppressWarnings("unchecked") final Predicate<Object>[] guards = model.transitions().stream()
+                .map(Transition::guard)
+                .toArray(Predicate[]::new);
+        return new InternedModel<>(shared.model(), shared.states(), guards);
+    }
+
+    /// @return the number of distinct topologies
+    public int size() {
+        return topologies.size();
+    }
+
+    /// Forgets all topologies, interned models stay valid.
+    public void clear() {
+        topologies.clear();
+    }
+
+    private static <I> Shared<I> share(final Structure<I> structure, final ExecutionBackend backend) {
+        final var count = structure.transitionIds().size();
+        final var sources = new int[count];
+        final var targets = new int[count];
+        final var guards = new ArrayList<Predicate<Object>>(count);
+        for (var ordinal = 0; ordinal < count; ordinal++) {
+            sources[ordinal] = structure.endpoints()[2 * ordinal];
+            targets[ordinal] = structure.endpoints()[2 * ordinal + 1];
+            final var transition = ordinal;
+            guards.add(context -> InternedModel.test(transition, context));
+        }
+        final var shared = StateModelBuilder.compiled(structure.modelId(), structure.stateIds(), structure.transitionIds(),
+                sources, targets, guards);
+        shared.setBackend(backend);
+        final var states = new HashMap<I, State<I>>();
+        for (final var state : shared.states()) {
+            states.put(state.id(), state);
+        }
+        return new Shared<>(shared, Map.copyOf(states));
+    }
+}
@@ -19,7 +19,9 @@
 package net.npg.state;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /// Represents a transition between states in a state machine, encapsulating the transition's
 /// identifier, source and target states, and a guard condition that determines when the
@@ -29,36 +31,148 @@ import java.util.function.BooleanSupplier;
 /// Public License (LGPL) v3 or later. It provides immutable access to transition properties
 /// and includes validation for all fields.
 ///
+/// The guard receives the context object passed to [StateMachine#execute(Token, Object)], so one
+/// model can be shared by many entities without capturing per-entity state in the guard. Guards
+/// created from a [BooleanSupplier] ignore the context.
+///
 /// @param <I>    The type of the state identifier (e.g., String, Integer)
 /// @param guard  a guard which controls if a [Token] can follow this [Transition] to the target [State]
 /// @param id     a unique identifier
 /// @param source the start [State] of this transition
 /// @param target the end [State] of this transition
+/// @param ordinal the dense index of this transition inside its [StateModel], or [#UNASSIGNED]
 /// @see State
 /// @see StateModel
 public record Transition<I>(
         I id,
         State<I> source,
         State<I> target,
-        BooleanSupplier guard
+        Predicate<Object> guard,
+        int ordinal
 ) {
+    /// Ordinal of a transition which was not created by a [StateModel]
+    public static final int UNASSIGNED = -1;
+
+    /// A guard which is always `true`. Prefer it to `() -> true`, so unconditional transitions can
+    /// be recognized, e.g. by [StateModelMinimizer].
+    public static final BooleanSupplier ALWAYS = () -> true;
+    private static final Predicate<Object> ALWAYS_GUARD = ignoreContext(ALWAYS);
+
     /// Ensure that all fields are set
     public Transition {
         Objects.requireNonNull(id, "id must not be null");
         Objects.requireNonNull(source, "source must not be null");
         Objects.requireNonNull(target, "target must not be null");
         Objects.requireNonNull(guard, "guard must not be null");
+        if (ordinal < UNASSIGNED) {
+            throw new IllegalArgumentException("ordinal must be >= 0 or UNASSIGNED: " + ordinal);
+        }
     }
 
-    /// Determines if the transition can be traversed based on the guard condition.
+    /// Constructs a transition with a guard which does not need a context.
+    ///
+    /// @param id      a unique identifier
+    /// @param source  the start [State] of this transition
+    /// @param target  the end [State] of this transition
+    /// @param guard   a guard which controls if a [Token] can follow this [Transition]
+    /// @param ordinal the dense index of this transition inside its [StateModel], or [#UNASSIGNED]
+    public Transition(final I id, final State<I> source, final State<I> target, final BooleanSupplier guard, final int ordinal) {
+        this(id, source, target, ignoreContext(guard), ordinal);
+    }
+
+    /// Constructs a transition which is not (yet) part of a [StateModel].
+    ///
+    /// @param id     a unique identifier
+    /// @param source the start [State] of this transition
+    /// @param target the end [State] of this transition
+    /// @param guard  a guard which controls if a [Token] can follow this [Transition]
+    public Transition(final I id, final State<I> source, final State<I> target, final BooleanSupplier guard) {
+        this(id, source, target, guard, UNASSIGNED);
+    }
+
+    /// Adapts a [BooleanSupplier] to a guard which ignores the context.
     ///
-    /// This method evaluates the [BooleanSupplier] associated with the transition
-    /// to check if the transition is allowed. The result is determined by calling
-    /// [BooleanSupplier#getAsBoolean()].
+    /// @param guard the guard without context
+    /// @return a guard accepting any context
+    static Predicate<Object> ignoreContext(final BooleanSupplier guard) {
+        Objects.requireNonNull(guard, "guard must not be null");
+        return new IgnoringContext(guard);
+    }
+
+    /// A guard ignoring the context, equal to another one if both wrap the same supplier.
+    private record IgnoringContext(BooleanSupplier guard) implements Predicate<Object> {
+        @Override
+        public boolean test(final Object context) {
+            return guard.getAsBoolean();
+        }
+    }
+
+    /// Adapts an [AsyncGuard] to a guard which waits for the result.
+    ///
+    /// @param guard the asynchronous guard
+    /// @return a blocking guard
+    static Predicate<Object> blocking(final AsyncGuard<Object> guard) {
+        Objects.requireNonNull(guard, "guard must not be null");
+        return new Blocking(guard);
+    }
+
+    /// A guard waiting for an asynchronous guard.
+    private record Blocking(AsyncGuard<Object> guard) implements Predicate<Object> {
+        @Override
+        public boolean test(final Object context) {
+            return guard.test(context).join();
+        }
+    }
+
+    /// @return the guard if it was added as an [AsyncGuard]
+    public Optional<AsyncGuard<Object>> asyncGuard() {
+        return guard instanceof final Blocking blocking ? Optional.of(blocking.guard()) : Optional.empty();
+    }
+
+    /// Returns the guard as a [BooleanSupplier], the type of the `guard` component before guards
+    /// received a context. Code calling `guard().getAsBoolean()` can switch to
+    /// `guardSupplier().getAsBoolean()`.
+    ///
+    /// @return the supplier the transition was created with, or a supplier testing the guard
+    ///         with a `null` context
+    public BooleanSupplier guardSupplier() {
+        return guard instanceof final IgnoringContext ignoring ? ignoring.guard() : () -> guard.test(null);
+    }
+
+    /// @return the guard without the adapter if it was added as a [BooleanSupplier] ignoring the context
+    Optional<BooleanSupplier> contextFreeGuard() {
+        return guard instanceof final IgnoringContext ignoring ? Optional.of(ignoring.guard()) : Optional.empty();
+    }
+
+    /// @return the guard if it is a [GuardExpression], which can be evaluated in batches
+    public Optional<GuardExpression> expression() {
+        return guard instanceof final GuardExpression expression ? Optional.of(expression) : Optional.empty();
+    }
+
+    /// Determines if the guard of this transition is [#ALWAYS].
+    ///
+    /// @return `true` if the transition is always enabled
+    boolean isUnconditional() {
+        return guard.equals(ALWAYS_GUARD);
+    }
+
+    /// Determines if the transition can be traversed without a context.
     ///
     /// @return `true` if the transition is allowed, `false` otherwise
+    /// @see #canTraverse(Object)
     boolean canTraverse() {
-        return guard.getAsBoolean();
+        return canTraverse(null);
+    }
+
+    /// Determines if the transition can be traversed based on the guard condition.
+    ///
+    /// This method evaluates the guard associated with the transition with the given
+    /// context to check if the transition is allowed.
+    ///
+    /// @param context the context passed to the guard, may be null
+    /// @return `true` if the transition is allowed, `false` otherwise
+    boolean canTraverse(final Object context) {
+        return guard.test(context);
     }
 
     @Override
@@ -70,21 +184,26 @@ public record Transition<I>(
                 '}';
     }
 
+    /// The guard is not part of the identity, a transition is identified by its ordinal inside the model
+    /// and its id. The ids of the [State]s are compared to avoid a stackoverflow on call.
     @Override
     public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
         final Transition<?> that = (Transition<?>) o;
-        return Objects.equals(id, that.id)
-                && Objects.equals(source.id(), that.source.id())
-                && Objects.equals(target.id(), that.target.id())
-                && Objects.equals(guard, that.guard);
+        return ordinal == that.ordinal
+                && id.equals(that.id)
+                && source.id().equals(that.source.id())
+                && target.id().equals(that.target.id());
     }
 
-    ///  rely on the id() of the [State] to avoid a stackoverflow on call
+    /// Stable hash based on the ordinal and the id, the guard is never hashed
     @Override
     public int hashCode() {
-        return Objects.hash(id, source.id(), target.id(), guard);
+        return 31 * id.hashCode() + ordinal;
     }
 }
\ No newline at end of file
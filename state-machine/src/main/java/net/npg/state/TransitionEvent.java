@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.Objects;
+
+/// A transition taken by a token, as published by [TransitionPublisher].
+///
+/// @param <I>        The type of the state identifier (e.g., String, Integer)
+/// @param model      the model of the token
+/// @param transition the transition taken
+/// @param context    the context passed to the state machine, may be null
+/// @see TransitionPublisher
+public record TransitionEvent<I>(StateModel<I> model, Transition<I> transition, Object context) {
+
+    /// Ensure that all fields are set
+    public TransitionEvent {
+        Objects.requireNonNull(model, "model must not be null");
+        Objects.requireNonNull(transition, "transition must not be null");
+    }
+
+    /// @return the state the token left
+    public State<I> source() {
+        return transition.source();
+    }
+
+    /// @return the state the token reached
+    public State<I> target() {
+        return transition.target();
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionEvent{" +
+                "model=" + model.id() +
+                ", transition=" + transition.id() +
+                '}';
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.LongSupplier;
+
+/// The last transitions of every slot of a [TokenPopulation] in fixed size off-heap ring buffers.
+///
+/// Each slot has `depth` entries of a transition ordinal and a timestamp plus a write counter, so
+/// recording a transition writes three values and never allocates. A slot must only be written
+/// by one thread at a time, like the population itself.
+final class TransitionHistory {
+    private static final ValueLayout.OfInt ORDINAL = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+
+    private final int depth;
+    private final LongSupplier clock;
+    private final MemorySegment writes;
+    private final MemorySegment ordinals;
+    private final MemorySegment times;
+
+    TransitionHistory(final Arena arena, final long capacity, final int depth, final LongSupplier clock) {
+        this.depth = depth;
+        this.clock = clock;
+        this.writes = arena.allocate(capacity * LONG.byteSize(), LONG.byteAlignment());
+        this.ordinals = arena.allocate(capacity * depth * ORDINAL.byteSize(), ORDINAL.byteAlignment());
+        this.times = arena.allocate(capacity * depth * LONG.byteSize(), LONG.byteAlignment());
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    /// Appends a transition, overwriting the oldest entry if the ring buffer is full.
+    void record(final long slot, final int transitionOrdinal) {
+        final var written = writes.getAtIndex(LONG, slot);
+        final var entry = slot * depth + written % depth;
+        ordinals.setAtIndex(ORDINAL, entry, transitionOrdinal);
+        times.setAtIndex(LONG, entry, clock.getAsLong());
+        writes.setAtIndex(LONG, slot, written + 1);
+    }
+
+    /// @return the number of entries of a slot, at most the depth
+    int size(final long slot) {
+        return (int) Math.min(writes.getAtIndex(LONG, slot), depth);
+    }
+
+    /// @param age `0` for the newest entry of the slot, up to `size(slot) - 1` for the oldest
+    /// @return the index of the entry
+    private long entry(final long slot, final int age) {
+        return slot * depth + (writes.getAtIndex(LONG, slot) - 1 - age) % depth;
+    }
+
+    int ordinal(final long slot, final int age) {
+        return ordinals.getAtIndex(ORDINAL, entry(slot, age));
+    }
+
+    long time(final long slot, final int age) {
+        return times.getAtIndex(LONG, entry(slot, age));
+    }
+
+    /// @return the number of the newest entries of a slot recorded at or after a time
+    int countSince(final long slot, final long time) {
+        final var size = size(slot);
+        var count = 0;
+        while (count < size && time(slot, count) >= time) {
+            count++;
+        }
+        return count;
+    }
+
+    void clear(final long slot) {
+        writes.setAtIndex(LONG, slot, 0);
+    }
+
+    void clear() {
+        writes.fill((byte) 0);
+    }
+}
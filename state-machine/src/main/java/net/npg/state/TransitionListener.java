@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+/// Listener which is notified about every transition taken by a token of a [StateModel].
+///
+/// The listener is called synchronously by [StateMachine#execute(Token, Object)] after the token
+/// moved to the target state. Exceptions are logged and do not stop the execution.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see StateModel#addTransitionListener(TransitionListener)
+@FunctionalInterface
+public interface TransitionListener<I> {
+
+    /// Called after a token followed a transition.
+    ///
+    /// @param transition the transition taken
+    /// @param context    the context passed to the state machine, may be null
+    void onTransition(Transition<I> transition, Object context);
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/// A [Flow.Publisher] of all transitions taken by the tokens of a [StateModel].
+///
+/// Register the publisher on a model with [StateModel#addTransitionListener(TransitionListener)].
+/// Every subscriber gets its own bounded buffer and receives events only as requested. Events are
+/// delivered in batches on the [Executor] of the publisher, so [StateMachine#execute(Token, Object)]
+/// only appends to the buffers and never waits for a subscriber. If a buffer is full the
+/// [OverflowPolicy] of the subscription decides which event is discarded.
+///
+/// Closing the publisher completes all subscriptions after their buffers are drained.
+///
+/// @param <I> The type of the state identifier (e.g., String, Integer)
+/// @see TransitionEvent
+/// @see TransitionListener
+public final class TransitionPublisher<I> implements Flow.Publisher<TransitionEvent<I>>, TransitionListener<I>, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(TransitionPublisher.class.getName());
+
+    /// Default capacity of the buffer of a subscription
+    public static final int DEFAULT_BUFFER_SIZE = Flow.defaultBufferSize();
+
+    /// Behaviour of a subscription if an event arrives while its buffer is full.
+    public enum OverflowPolicy {
+        /// discard the new event
+        DROP_NEWEST,
+        /// discard the oldest buffered event
+        DROP_OLDEST,
+        /// discard the buffered event with the same coalescing key as the new event, so only the
+        /// latest transition per entity is kept. Keys are compared with [Object#equals(Object)],
+        /// events without a key never coalesce. Discards the oldest event if no key matches.
+        COALESCE
+    }
+
+    private final StateModel<I> model;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final Function<? super TransitionEvent<I>, ?> coalescingKey;
+    private final List<BufferedSubscription<I>> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile boolean closed;
+
+    /// Creates a publisher which delivers events on the common [ForkJoinPool].
+    ///
+    /// @param model the model whose transitions are published
+    public TransitionPublisher(final StateModel<I> model) {
+        this(model, ForkJoinPool.commonPool(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /// Creates a publisher which coalesces events by their context.
+    ///
+    /// @param model        the model whose transitions are published
+    /// @param executor     the executor delivering the events to the subscribers
+    /// @param maxBatchSize the maximum number of events delivered to one subscriber in one task
+    /// @throws IllegalArgumentException if the batch size is not positive
+    public TransitionPublisher(final StateModel<I> model, final Executor executor, final int maxBatchSize) {
+        this(model, executor, maxBatchSize, TransitionEvent::context);
+    }
+
+    /// Creates a publisher.
+    ///
+    /// @param model         the model whose transitions are published
+    /// @param executor      the executor delivering the events to the subscribers
+    /// @param maxBatchSize  the maximum number of events delivered to one subscriber in one task
+    /// @param coalescingKey extracts the entity of an event for [OverflowPolicy#COALESCE], may return null
+    /// @throws IllegalArgumentException if the batch size is not positive
+    public TransitionPublisher(final StateModel<I> model, final Executor executor, final int maxBatchSize,
+                               final Function<? super TransitionEvent<I>, ?> coalescingKey) {
+        this.model = Objects.requireNonNull(model, "model must not be null");
+        this.executor = Objects.requireNonNull(executor, "executor must not be null");
+        this.coalescingKey = Objects.requireNonNull(coalescingKey, "coalescingKey must not be null");
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /// Subscribes with a buffer of [#DEFAULT_BUFFER_SIZE] events which drops the oldest events on overflow.
+    ///
+    /// @param subscriber the subscriber
+    @Override
+    public void subscribe(final Flow.Subscriber<? super TransitionEvent<I>> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, OverflowPolicy.DROP_OLDEST);
+    }
+
+    /// Subscribes with a bounded buffer and an overflow policy.
+    ///
+    /// @param subscriber the subscriber
+    /// @param bufferSize the maximum number of buffered events
+    /// @param policy     the behaviour if the buffer is full
+    /// @throws IllegalArgumentException if the buffer size is not positive
+    public void subscribe(final Flow.Subscriber<? super TransitionEvent<I>> subscriber, final int bufferSize, final OverflowPolicy policy) {
+        Objects.requireNonNull(subscriber, "subscriber must not be null");
+        Objects.requireNonNull(policy, "policy must not be null");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+        final var subscription = new BufferedSubscription<>(this, subscriber, bufferSize, policy);
+        if (subscriptions.stream().anyMatch(s -> s.subscriber == subscriber)) {
+            subscriber.onSubscribe(subscription);
+            subscription.fail(new IllegalStateException("Already subscribed: " + subscriber));
+            return;
+        }
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+        }
+    }
+
+    /// Buffers the transition for all subscribers, called by the state machine.
+    ///
+    /// @param transition the transition taken
+    /// @param context    the context passed to the state machine, may be null
+    @Override
+    public void onTransition(final Transition<I> transition, final Object context) {
+        if (closed || subscriptions.isEmpty()) {
+            return;
+        }
+        final var event = new TransitionEvent<>(model, transition, context);
+        for (final var subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /// @return the number of events discarded because of full buffers
+    public long droppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /// @return the number of active subscriptions
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    /// Stops publishing and completes all subscriptions once their buffers are drained.
+    @Override
+    public void close() {
+        closed = true;
+        for (final var subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TransitionPublisher{" +
+                "model=" + model.id() +
+                ", subscribers=" + subscriptions.size() +
+                '}';
+    }
+
+    /// A subscription with a bounded buffer, drained by at most one task at a time.
+    private static final class BufferedSubscription<I> implements Flow.Subscription, Runnable {
+        private final TransitionPublisher<I> publisher;
+        private final Flow.Subscriber<? super TransitionEvent<I>> subscriber;
+        private final int bufferSize;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<TransitionEvent<I>> buffer;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger workInProgress = new AtomicInteger();
+        private volatile Throwable error;
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+
+        BufferedSubscription(final TransitionPublisher<I> publisher, final Flow.Subscriber<? super TransitionEvent<I>> subscriber,
+                             final int bufferSize, final OverflowPolicy policy) {
+            this.publisher = publisher;
+            this.subscriber = subscriber;
+            this.bufferSize = bufferSize;
+            this.policy = policy;
+            this.buffer = new ArrayDeque<>(Math.min(bufferSize, 64));
+        }
+
+        void offer(final TransitionEvent<I> event) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    publisher.droppedEvents.incrementAndGet();
+                    if (!makeRoom(event)) {
+                        return;
+                    }
+                }
+                buffer.addLast(event);
+            }
+            schedule();
+        }
+
+        /// Discards one buffered event according to the policy.
+        ///
+        /// @return `false` if the new event must be discarded instead
+        private boolean makeRoom(final TransitionEvent<I> event) {
+            switch (policy) {
+                case DROP_NEWEST -> {
+                    return false;
+                }
+                case COALESCE -> {
+                    final var key = publisher.coalescingKey.apply(event);
+                    if (key != null) {
+                        final Iterator<TransitionEvent<I>> iterator = buffer.descendingIterator();
+                        while (iterator.hasNext()) {
+                            if (key.equals(publisher.coalescingKey.apply(iterator.next()))) {
+                                iterator.remove();
+                                return true;
+                            }
+                        }
+                    }
+                    buffer.pollFirst();
+                    return true;
+                }
+                default -> {
+                    buffer.pollFirst();
+                    return true;
+                }
+            }
+        }
+
+        void complete() {
+            completed = true;
+            schedule();
+        }
+
+        void fail(final Throwable throwable) {
+            error = throwable;
+            schedule();
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("non-positive subscription request: " + n));
+                return;
+            }
+            demand.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            publisher.subscriptions.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+
+        private void schedule() {
+            if (workInProgress.getAndIncrement() == 0) {
+                try {
+                    publisher.executor.execute(this);
+                } catch (final RejectedExecutionException e) {
+                    cancel();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            var missed = 1;
+            do {
+                drain();
+                missed = workInProgress.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            final var batch = new ArrayList<TransitionEvent<I>>();
+            while (!cancelled) {
+                if (error != null) {
+                    cancel();
+                    subscriber.onError(error);
+                    return;
+                }
+                final var requested = demand.get();
+                final boolean empty;
+                synchronized (buffer) {
+                    final var count = (int) Math.min(requested, publisher.maxBatchSize);
+                    for (var i = 0; i < count && !buffer.isEmpty(); i++) {
+                        batch.add(buffer.pollFirst());
+                    }
+                    empty = buffer.isEmpty();
+                }
+                if (batch.isEmpty()) {
+                    if (empty && completed) {
+                        cancel();
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-batch.size());
+                }
+                for (final var event : batch) {
+                    if (cancelled) {
+                        return;
+                    }
+                    try {
+                        subscriber.onNext(event);
+                    } catch (final RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Subscriber failed, cancelling subscription", e);
+                        cancel();
+                        return;
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+}
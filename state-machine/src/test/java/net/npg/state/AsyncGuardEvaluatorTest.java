@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncGuardEvaluatorTest {
+    private static final long DELAY_MILLIS = 200;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final List<CompletableFuture<Boolean>> started = new ArrayList<>();
+
+    /// A remote guard stub completing after a delay.
+    private AsyncGuard<Object> stub(final boolean result, final long delayMillis) {
+        return context -> {
+            final var future = new CompletableFuture<Boolean>();
+            synchronized (started) {
+                started.add(future);
+            }
+            timer.schedule(() -> future.complete(result), delayMillis, TimeUnit.MILLISECONDS);
+            return future;
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Test
+    void testGuardsResolveConcurrently_success() {
+        final var model = new StateModel<>("remote");
+        final var start = model.addState("start");
+        final var end = model.addState("end");
+        for (var i = 0; i < 8; i++) {
+            model.addAsyncTransition(start, i == 5 ? end : model.addState("s" + i), stub(i == 5, DELAY_MILLIS), "t" + i);
+        }
+        try (final var evaluator = new AsyncGuardEvaluator(Duration.ofSeconds(10))) {
+            final var begin = System.nanoTime();
+            final var token = evaluator.execute(model.createToken(start), null);
+            final var elapsed = Duration.ofNanos(System.nanoTime() - begin);
+
+            assertEquals(end, token.state());
+            assertTrue(elapsed.toMillis() < 8 * DELAY_MILLIS / 2, "guards were evaluated in series: " + elapsed);
+        }
+    }
+
+    @Test
+    void testMultipleEnabledCancelsRemainingGuards_failure() {
+        final var model = new StateModel<>("remote");
+        final var start = model.addState("start");
+        model.addAsyncTransition(start, model.addState("a"), stub(true, 0), "a");
+        model.addAsyncTransition(start, model.addState("b"), stub(true, 50), "b");
+        model.addAsyncTransition(start, model.addState("c"), stub(false, 60_000), "c");
+        model.addTransition(start, model.addState("d"), () -> false, "d");
+
+        try (final var evaluator = new AsyncGuardEvaluator(Duration.ofSeconds(10))) {
+            assertThrows(IllegalStateException.class, () -> evaluator.execute(model.createToken(start), null));
+        }
+        assertEquals(3, started.size());
+        assertTrue(started.get(2).isCancelled());
+    }
+
+    @Test
+    void testTimeout_failure() {
+        final var model = new StateModel<>("remote");
+        final var start = model.addState("start");
+        model.addAsyncTransition(start, model.addState("a"), stub(true, 60_000), "a");
+        model.addAsyncTransition(start, model.addState("b"), stub(false, 0), "b");
+
+        try (final var evaluator = new AsyncGuardEvaluator(Duration.ofMillis(50))) {
+            final var token = model.createToken(start);
+            final var e = assertThrows(IllegalStateException.class, () -> evaluator.step(token, null));
+            assertInstanceOf(TimeoutException.class, e.getCause());
+        }
+        assertTrue(started.getFirst().isCancelled());
+    }
+
+    @Test
+    void testMixedGuardsAndSynchronousFallback_success() {
+        final var model = new StateModel<>("remote");
+        final var start = model.addState("start");
+        final var middle = model.addState("middle");
+        final var end = model.addState("end");
+        model.addAsyncTransition(start, middle, stub(true, 20), "async");
+        model.addTransition(start, end, () -> false, "sync");
+        model.<String>addTransition(middle, end, "go"::equals, "context");
+
+        try (final var evaluator = new AsyncGuardEvaluator(Duration.ofSeconds(10))) {
+            final var token = model.createToken(start);
+            assertEquals(middle, evaluator.step(token, "stop").state());
+            assertEquals(middle, evaluator.execute(token, "stop").state());
+            assertEquals(end, evaluator.execute(token, "go").state());
+        }
+        assertEquals(end, StateMachine.execute(model.createToken(start), "go").state());
+        assertTrue(model.transitions().getFirst().asyncGuard().isPresent());
+        assertTrue(model.transitions().get(1).asyncGuard().isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.npg.state.GuardExpression.Operator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchGuardEvaluatorTest {
+    private static final int AMOUNT = 0;
+    private static final int RETRIES = 1;
+
+    private static double[][] randomColumns(final int rows) {
+        final var random = new Random(17);
+        final var columns = new double[2][rows];
+        for (var row = 0; row < rows; row++) {
+            columns[AMOUNT][row] = random.nextInt(200);
+            columns[RETRIES][row] = random.nextInt(5);
+        }
+        return columns;
+    }
+
+    @Test
+    void testVectorMatchesScalar_success() {
+        final var rows = 1003;
+        final var columns = randomColumns(rows);
+        final var expression = GuardExpression.compare(AMOUNT, GT, 100)
+                .and(GuardExpression.compare(RETRIES, LT, 3))
+                .or(GuardExpression.compare(AMOUNT, EQ, 7));
+        final var result = BatchGuardEvaluator.evaluate(expression, columns, rows);
+        for (var row = 0; row < rows; row++) {
+            final var amount = columns[AMOUNT][row];
+            final var retries = columns[RETRIES][row];
+            assertEquals(amount > 100 && retries < 3 || amount == 7, result[row], "row " + row);
+            assertEquals(result[row], expression.test(NumericFields.row(columns, row)));
+        }
+    }
+
+    @Test
+    void testNextAndAdvance_success() {
+        final var model = new StateModel<>("payments");
+        final var open = model.addState("open");
+        final var approved = model.addState("approved");
+        final var retry = model.addState("retry");
+        model.addTransition(open, approved, GuardExpression.compare(AMOUNT, LE, 100), "approve");
+        model.addTransition(open, retry, (NumericFields fields) -> fields.field(AMOUNT) > 100 && fields.field(RETRIES) < 3, "retry");
+        assertTrue(model.transition(0).expression().isPresent());
+        assertTrue(model.transition(1).expression().isEmpty());
+
+        final var columns = new double[][]{{50, 150, 150, 120}, {0, 1, 4, 2}};
+        final var next = BatchGuardEvaluator.next(open, columns, 4);
+        assertArrayEquals(new int[]{0, 1, BatchGuardEvaluator.NONE, 1}, next);
+
+        try (final var population = new TokenPopulation<>(model, 4, true)) {
+            for (var slot = 0; slot < 3; slot++) {
+                population.set(slot, open);
+            }
+            population.set(3, approved);
+            assertEquals(2, BatchGuardEvaluator.advance(population, open, columns));
+            assertSame(approved, population.state(0));
+            assertSame(retry, population.state(1));
+            assertSame(open, population.state(2));
+            assertEquals(1, population.count(open));
+        }
+    }
+
+    @Test
+    void testAdvanceEvaluatesOccupiedRowsOnce_success() {
+        final var model = new StateModel<>("payments");
+        final var open = model.addState("open");
+        final var approved = model.addState("approved");
+        final var retry = model.addState("retry");
+        final var evaluations = new AtomicInteger();
+        model.addTransition(open, approved, GuardExpression.compare(AMOUNT, LE, 100), "approve");
+        model.addTransition(open, retry, (NumericFields fields) -> {
+            evaluations.incrementAndGet();
+            return fields.field(AMOUNT) > 100 && fields.field(RETRIES) < 3;
+        }, "retry");
+        final var rows = 3 * BatchGuardEvaluator.CHUNK;
+        final var columns = randomColumns(rows);
+
+        try (final var population = new TokenPopulation<>(model, rows, true)) {
+            var expected = 0;
+            for (var slot = 0; slot < rows; slot += 2) {
+                population.set(slot, open);
+                final var amount = columns[AMOUNT][slot];
+                if (amount <= 100 || columns[RETRIES][slot] < 3) {
+                    expected++;
+                }
+            }
+            final var tokens = rows / 2;
+
+            assertEquals(expected, BatchGuardEvaluator.advance(population, open, columns));
+            assertEquals(tokens, evaluations.get(), "every token in the state is evaluated exactly once");
+            assertEquals(tokens - expected, population.count(open));
+            for (var slot = 0; slot < rows; slot += 2) {
+                final var amount = columns[AMOUNT][slot];
+                final var state = amount <= 100 ? approved : columns[RETRIES][slot] < 3 ? retry : open;
+                assertSame(state, population.state(slot), "slot " + slot);
+            }
+        }
+    }
+
+    @Test
+    void testAdvanceCountsOnlyMovedTokens_success() {
+        final var model = new StateModel<>("payments");
+        final var open = model.addState("open");
+        final var approved = model.addState("approved");
+        model.addTransition(open, approved, GuardExpression.compare(AMOUNT, LE, 100), "approve");
+        model.setCapacity(approved, 1);
+        final var columns = new double[][]{{50, 60, 70}, {0, 0, 0}};
+
+        try (final var population = new TokenPopulation<>(model, 3, true)) {
+            for (var slot = 0; slot < 3; slot++) {
+                population.set(slot, open);
+            }
+            assertEquals(1, BatchGuardEvaluator.advance(population, open, columns));
+            assertEquals(1, population.count(approved));
+            assertEquals(2, population.count(open));
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CapacityGateTest {
+
+    @Test
+    void testFullStateDisablesTransition_success() {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        final var done = model.addState("done");
+        final var finished = new AtomicBoolean();
+        model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.addTransition(searching, done, finished::get, "finish");
+        model.setCapacity(searching, 2);
+
+        final var first = StateMachine.execute(model.createToken(idle));
+        final var second = StateMachine.execute(model.createToken(idle));
+        final var third = StateMachine.execute(model.createToken(idle));
+
+        assertEquals(searching, first.state());
+        assertEquals(searching, second.state());
+        assertEquals(idle, third.state());
+        assertEquals(2, model.occupancy(searching));
+        assertEquals(OptionalInt.of(2), model.capacity(searching));
+        assertEquals(OptionalInt.empty(), model.capacity(idle));
+
+        finished.set(true);
+        assertEquals(done, StateMachine.execute(first).state());
+        assertEquals(1, model.occupancy(searching));
+        assertEquals(done, StateMachine.execute(third).state());
+        assertEquals(1, model.occupancy(searching));
+        assertEquals(done, StateMachine.execute(second).state());
+        assertEquals(0, model.occupancy(searching));
+    }
+
+    @Test
+    void testCreateTokenAtFullState_failure() {
+        final var model = new StateModel<>("search");
+        final var searching = model.addState("searching");
+        model.setCapacity(searching, 1);
+        final var token = model.createToken(searching);
+
+        assertThrows(IllegalStateException.class, () -> model.createToken(searching));
+        model.release(token);
+        assertDoesNotThrow(() -> model.createToken(searching));
+        assertThrows(IllegalArgumentException.class, () -> model.setCapacity(searching, 0));
+    }
+
+    @Test
+    void testParkedTokensResumeInOrder_success() {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.setCapacity(searching, 1);
+        final var resumed = new ArrayList<String>();
+        final var pending = new ArrayDeque<Runnable>();
+
+        final var holder = StateMachine.execute(model.createToken(idle));
+        final List<Token<String>> parked = new ArrayList<>();
+        for (final var name : List.of("a", "b", "c")) {
+            parked.add(StateMachine.execute(model.createToken(idle), null, token -> resumed.add(name), pending::add));
+        }
+        assertTrue(parked.stream().allMatch(token -> token.state().equals(idle)));
+        assertEquals(3, model.parked(searching));
+        assertEquals(idle, StateMachine.execute(model.createToken(idle)).state(), "new tokens must not overtake parked ones");
+
+        model.release(holder);
+        assertEquals(List.of(), resumed, "the releasing thread must not run the parked token");
+        assertEquals(1, pending.size());
+        pending.poll().run();
+        assertEquals(List.of("a"), resumed);
+        model.release(new Token<>(searching, model));
+        pending.poll().run();
+        model.release(new Token<>(searching, model));
+        pending.poll().run();
+        assertEquals(List.of("a", "b", "c"), resumed);
+        assertEquals(0, model.parked(searching));
+        assertEquals(1, model.occupancy(searching));
+    }
+
+    @Test
+    void testFailingResumedTokenFreesItsSlot_success() {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.setCapacity(searching, 1);
+        model.setHookExceptionHandler((transition, exception) -> {
+            throw new IllegalStateException(exception);
+        });
+        final var holder = StateMachine.execute(model.createToken(idle));
+        final var fail = new AtomicBoolean(true);
+        model.addEntryListener(searching, state -> {
+            if (fail.getAndSet(false)) {
+                throw new IllegalArgumentException("entry failed");
+            }
+        });
+        final var resumed = new ArrayList<Token<String>>();
+        final var pending = new ArrayDeque<Runnable>();
+        StateMachine.execute(model.createToken(idle), null, resumed::add, pending::add);
+
+        assertDoesNotThrow(() -> model.release(holder));
+        pending.poll().run();
+
+        assertEquals(List.of(), resumed);
+        assertEquals(0, model.occupancy(searching));
+        assertEquals(searching, StateMachine.execute(model.createToken(idle)).state());
+    }
+
+    @Test
+    void testReleaseNeverDropsBelowZero_failure() {
+        final var model = new StateModel<>("search");
+        final var searching = model.addState("searching");
+        final var uncounted = model.createToken(searching);
+        model.setCapacity(searching, 1);
+
+        assertThrows(IllegalStateException.class, () -> model.release(uncounted));
+        assertEquals(0, model.occupancy(searching));
+        model.createToken(searching);
+        assertThrows(IllegalStateException.class, () -> model.createToken(searching));
+
+        model.setCapacity(searching, 2, 2);
+        assertEquals(2, model.occupancy(searching));
+        assertThrows(IllegalStateException.class, () -> model.createToken(searching));
+    }
+
+    @Test
+    void testNegativeOccupancy_failure() {
+        final var model = new StateModel<>("search");
+        final var searching = model.addState("searching");
+        assertThrows(IllegalArgumentException.class, () -> model.setCapacity(searching, 1, -1));
+    }
+
+    @Test
+    void testPopulationSlotsAreCounted_success() {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.setCapacity(searching, 2);
+        try (final var population = new TokenPopulation<>(model, 4)) {
+            population.set(0, searching);
+            population.set(1, idle);
+            population.set(2, idle);
+
+            assertEquals(1, model.occupancy(searching));
+            assertEquals(searching, StateMachine.execute(population, 1));
+            assertEquals(idle, StateMachine.execute(population, 2), "the state is full");
+            assertEquals(2, model.occupancy(searching));
+            assertThrows(IllegalStateException.class, () -> population.set(3, searching));
+
+            population.clear(0);
+            assertEquals(1, model.occupancy(searching));
+            assertEquals(searching, StateMachine.execute(population, 2));
+            population.set(1, idle);
+            assertEquals(1, model.occupancy(searching));
+        }
+    }
+
+    @Test
+    void testTryStepTellsBlockedFromDone_success() {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        final var start = model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.setCapacity(searching, 1);
+        final var holder = model.createToken(idle);
+
+        final var moved = StateMachine.tryStep(holder, null);
+        final var blocked = StateMachine.tryStep(model.createToken(idle), null);
+        final var done = StateMachine.tryStep(moved.token(), null);
+
+        assertEquals(StepResult.Outcome.MOVED, moved.outcome());
+        assertEquals(searching, moved.token().state());
+        assertTrue(blocked.isBlocked());
+        assertEquals(start, blocked.transition());
+        assertEquals(idle, blocked.token().state());
+        assertTrue(done.isDone());
+        assertSame(moved.token(), done.token());
+    }
+
+    @Test
+    void testSchedulerParksBlockedTokens_success() throws Exception {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.setCapacity(searching, 1);
+        final var holder = StateMachine.execute(model.createToken(idle));
+
+        try (final var scheduler = new StepScheduler<String>(2)) {
+            final var blocked = scheduler.submit(model.createToken(idle), null);
+            while (scheduler.parked() == 0) {
+                Thread.onSpinWait();
+            }
+            assertFalse(blocked.isDone());
+
+            model.release(holder);
+            assertEquals(searching, blocked.get(10, TimeUnit.SECONDS).state());
+            assertEquals(0, scheduler.parked());
+            assertEquals(1, model.occupancy(searching));
+        }
+    }
+
+    @Test
+    void testConcurrentAdmissionNeverExceedsCapacity_success() throws InterruptedException {
+        final var model = new StateModel<>("search");
+        final var idle = model.addState("idle");
+        final var searching = model.addState("searching");
+        final var done = model.addState("done");
+        model.addTransition(idle, searching, Transition.ALWAYS, "start");
+        model.addTransition(searching, done, () -> {
+            Thread.onSpinWait();
+            return true;
+        }, "finish");
+        model.setCapacity(searching, 4);
+        final var maximum = new AtomicInteger();
+        model.addEntryListener(searching, state -> maximum.accumulateAndGet(model.occupancy(searching), Math::max));
+        final var finished = new ConcurrentLinkedQueue<Token<String>>();
+        final var latch = new CountDownLatch(2_000);
+        final Consumer<Token<String>> finish = token -> {
+            finished.add(token);
+            latch.countDown();
+        };
+
+        try (final var executor = Executors.newFixedThreadPool(8)) {
+            for (var i = 0; i < 2_000; i++) {
+                executor.execute(() -> {
+                    final var token = StateMachine.execute(model.createToken(idle), null, finish);
+                    if (token.state().equals(done)) {
+                        finish.accept(token);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+        assertEquals(2_000, finished.size());
+        assertTrue(finished.stream().allMatch(token -> token.state().equals(done)));
+        assertTrue(maximum.get() <= 4, "occupancy exceeded capacity: " + maximum);
+        assertEquals(0, model.occupancy(searching));
+    }
+
+    @Test
+    void testWaitersAreAdmittedInOrder_success() throws InterruptedException {
+        final var gate = new CapacityGate(1);
+        gate.add();
+        final var parkers = 4;
+        final var parked = 25_000;
+        final var next = new AtomicIntegerArray(parkers);
+        final var outOfOrder = new AtomicInteger();
+        final var admitted = new AtomicInteger();
+        final var held = new LinkedBlockingQueue<Integer>();
+        held.add(-1);
+
+        try (final var executor = Executors.newFixedThreadPool(parkers + 2)) {
+            for (var p = 0; p < parkers; p++) {
+                final var parker = p;
+                executor.execute(() -> {
+                    for (var i = 0; i < parked; i++) {
+                        while (gate.waiting() > parkers) {
+                            Thread.onSpinWait();
+                        }
+                        final var index = i;
+                        final var waiter = new CapacityGate.Waiter() {
+                            @Override
+                            void admit() {
+                                if (next.getAndIncrement(parker) != index) {
+                                    outOfOrder.incrementAndGet();
+                                }
+                                admitted.incrementAndGet();
+                                held.add(index);
+                            }
+                        };
+                        if (gate.park(waiter)) {
+                            waiter.admit();
+                        }
+                    }
+                });
+            }
+            executor.execute(() -> {
+                while (admitted.get() < parkers * parked) {
+                    if (gate.tryAcquire()) {
+                        gate.release();
+                    }
+                }
+            });
+            executor.execute(() -> {
+                try {
+                    while (admitted.get() < parkers * parked || !held.isEmpty()) {
+                        if (held.poll(10, TimeUnit.MILLISECONDS) != null) {
+                            gate.release();
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        }
+
+        assertEquals(0, outOfOrder.get(), "waiters of one thread were admitted out of order");
+        assertEquals(parkers * parked, admitted.get());
+        assertEquals(0, gate.occupancy());
+        assertEquals(0, gate.waiting());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompositeTokenTest {
+
+    private final AtomicBoolean paid = new AtomicBoolean();
+    private final AtomicBoolean shipped = new AtomicBoolean();
+
+    private static Region<String> region(final String id, final AtomicBoolean done) {
+        final var model = new StateModel<>(id);
+        final var open = model.addState(id + "-open");
+        final var closed = model.addState(id + "-closed");
+        model.addTransition(open, closed, done::get, id + "-done");
+        return new Region<>(model, open, closed);
+    }
+
+    private StateModel<String> createModel() {
+        final var model = new StateModel<>("order");
+        final var created = model.addState("created");
+        final var fulfilment = model.addParallelState("fulfilment", List.of(region("payment", paid), region("shipping", shipped)));
+        final var finished = model.addState("finished");
+        model.addTransition(created, fulfilment, () -> true, "start");
+        model.addTransition(fulfilment, finished, () -> true, "join");
+        return model;
+    }
+
+    @Test
+    void testJoinWhenAllRegionsFinished_success() {
+        final var model = createModel();
+        final var token = model.createCompositeToken(model.state(0));
+
+        final var waiting = StateMachine.execute(token, null);
+        assertEquals("fulfilment", waiting.state().id());
+        assertEquals(2, waiting.regions().size());
+
+        paid.set(true);
+        final var paidToken = StateMachine.execute(waiting, null);
+        assertEquals("fulfilment", paidToken.state().id());
+        assertEquals("payment-closed", paidToken.regions().get(0).state().id());
+        assertEquals("shipping-open", paidToken.regions().get(1).state().id());
+
+        shipped.set(true);
+        final var finished = StateMachine.execute(paidToken, null);
+        assertEquals("finished", finished.state().id());
+        assertTrue(finished.regions().isEmpty());
+    }
+
+    @Test
+    void testRegionsInParallel_success() {
+        final var model = createModel();
+        paid.set(true);
+        shipped.set(true);
+        final var token = model.createCompositeToken(model.state(0));
+
+        final var finished = StateMachine.execute(token, null, ForkJoinPool.commonPool());
+
+        assertEquals("finished", finished.state().id());
+    }
+
+    @Test
+    void testPlainTokenStopsAtParallelState_success() {
+        final var model = createModel();
+        paid.set(true);
+        shipped.set(true);
+
+        final var token = StateMachine.execute(model.createToken(model.state(0)));
+
+        assertEquals("fulfilment", token.state().id());
+    }
+
+    @Test
+    void testParallelStateWithoutRegions_fail() {
+        final var model = new StateModel<>("order");
+        assertThrows(IllegalArgumentException.class, () -> model.addParallelState("fulfilment", List.of()));
+    }
+
+    @Test
+    void testWrongRegionCount_fail() {
+        final var model = createModel();
+        final var fulfilment = model.createToken(model.state(1));
+        final var region = model.regions(model.state(1)).getFirst();
+        final var regionToken = region.model().createToken(region.initialState());
+        assertThrows(IllegalArgumentException.class, () -> new CompositeToken<>(fulfilment, List.of(regionToken)));
+    }
+}
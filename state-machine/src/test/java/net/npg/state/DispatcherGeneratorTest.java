@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DispatcherGeneratorTest {
+
+    private static StateModel<SimpleIdentifier> createModel() {
+        final var model = new StateModel<>(MODEL_ID);
+        model.setBackend(ExecutionBackend.GENERATED);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        final var state3 = model.addState(new SimpleIdentifier("state3"));
+        model.addTransition(state1, state2, (Integer i) -> i > 0, TRANS_ID);
+        model.addTransition(state1, state3, (Integer i) -> i < 0, new SimpleIdentifier("trans_id2"));
+        model.addTransition(state2, state3, (Integer i) -> i > 10, new SimpleIdentifier("trans_id3"));
+        return model;
+    }
+
+    @Test
+    void testGeneratedDispatcher_success() {
+        final var model = createModel();
+        final var dispatcher = DispatcherGenerator.generate(model);
+
+        assertTrue(dispatcher.getClass().isHidden());
+        assertEquals(0, dispatcher.next(0, 1));
+        assertEquals(1, dispatcher.next(0, -1));
+        assertEquals(Dispatcher.NONE, dispatcher.next(0, 0));
+        assertEquals(2, dispatcher.next(1, 11));
+        assertEquals(Dispatcher.NONE, dispatcher.next(2, 11));
+    }
+
+    @Test
+    void testMultipleEnabled_success() {
+        final var model = createModel();
+        model.addTransition(model.state(0), model.state(0), () -> true, new SimpleIdentifier("loop"));
+        final var dispatcher = DispatcherGenerator.generate(model);
+
+        assertEquals(Dispatcher.MULTIPLE, dispatcher.next(0, 1));
+        assertEquals(3, dispatcher.next(0, 0));
+    }
+
+    @Test
+    void testContextFreeGuardCalledDirectly_success() {
+        final var model = createModel();
+        final var calls = new AtomicInteger();
+        final BooleanSupplier supplier = () -> calls.incrementAndGet() > 1;
+        final var transition = model.addTransition(model.state(2), model.state(0), supplier, new SimpleIdentifier("restart"));
+        final var dispatcher = DispatcherGenerator.generate(model);
+
+        assertSame(supplier, transition.contextFreeGuard().orElseThrow());
+        assertTrue(model.transition(0).contextFreeGuard().isEmpty());
+        assertEquals(Dispatcher.NONE, dispatcher.next(2, null));
+        assertEquals(transition.ordinal(), dispatcher.next(2, "ignored"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testSameResultAsInterpreter_success() {
+        final var model = createModel();
+        final var generated = DispatcherGenerator.generate(model);
+        final var interpreted = new InterpretedDispatcher<>(model);
+        for (var state = 0; state < model.states().size(); state++) {
+            for (final var context : new int[]{-5, 0, 5, 50}) {
+                assertEquals(interpreted.next(state, context), generated.next(state, context));
+            }
+        }
+    }
+
+    @Test
+    void testExecuteWithGeneratedBackend_success() {
+        final var model = createModel();
+        final var token = model.createToken(model.state(0));
+
+        assertEquals(ID2, StateMachine.execute(token, 5).state().id());
+        assertEquals("state3", StateMachine.execute(token, 50).state().id().id());
+    }
+
+    @Test
+    void testRegenerateAfterModelChange_success() {
+        final var model = createModel();
+        final var token = model.createToken(model.state(2));
+        assertSame(token.state(), StateMachine.execute(token, 0).state());
+
+        model.addTransition(model.state(2), model.state(0), () -> true, new SimpleIdentifier("back"));
+
+        assertEquals(ID1, StateMachine.execute(token, 0).state().id());
+    }
+
+    @Test
+    void testManyStatesWithFewTransitions_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        for (var i = 0; i < 20_000; i++) {
+            model.addState(new SimpleIdentifier("s" + i));
+        }
+        for (var i = 0; i < DispatcherGenerator.MAX_TRANSITIONS; i++) {
+            final var source = i * 10;
+            model.addTransition(model.state(source), model.state(source + 1), (Integer c) -> c == source,
+                    new SimpleIdentifier("t" + i));
+        }
+        final var dispatcher = DispatcherGenerator.generate(model);
+
+        assertTrue(dispatcher.getClass().isHidden());
+        assertEquals(5, dispatcher.next(50, 50));
+        assertEquals(Dispatcher.NONE, dispatcher.next(50, 0));
+        assertEquals(Dispatcher.NONE, dispatcher.next(51, 50));
+    }
+
+    @Test
+    void testParseBackend_success() {
+        assertEquals(ExecutionBackend.GENERATED, ExecutionBackend.parse("generated"));
+        assertEquals(ExecutionBackend.GENERATED, ExecutionBackend.parse("Generated"));
+        assertEquals(ExecutionBackend.INTERPRETER, ExecutionBackend.parse(null));
+        assertEquals(ExecutionBackend.INTERPRETER, ExecutionBackend.parse("jit"));
+    }
+}
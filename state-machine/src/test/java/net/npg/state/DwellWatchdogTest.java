@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DwellWatchdogTest {
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    private static StateModel<String> createModel() {
+        final var model = new StateModel<>("orders");
+        final var created = model.addState("created");
+        final var paid = model.addState("paid");
+        model.addState("shipped");
+        model.<Boolean>addTransition(created, paid, Boolean::booleanValue, "pay");
+        return model;
+    }
+
+    @Test
+    void testEntryTimes_success() {
+        final var model = createModel();
+        try (final var population = new TokenPopulation<>(model, 4)) {
+            assertThrows(IllegalStateException.class, () -> new DwellWatchdog<>(population));
+            population.trackEntryTimes(clock::get);
+            assertThrows(IllegalStateException.class, () -> population.trackEntryTimes(clock::get));
+
+            population.set(0, model.state(0));
+            clock.addAndGet(50);
+            population.set(0, model.state(0));
+            assertEquals(1_000, population.entryTime(0), "writing the same state keeps the entry time");
+            assertEquals(Duration.ofNanos(50), population.dwellTime(0));
+
+            StateMachine.execute(population, 0, true);
+            assertEquals(1_050, population.entryTime(0));
+            assertThrows(IllegalStateException.class, () -> population.entryTime(1));
+        }
+    }
+
+    @Test
+    void testWatchStateAddedLater_success() {
+        final var model = createModel();
+        try (final var population = new TokenPopulation<>(model, 4, true)) {
+            population.trackEntryTimes(clock::get);
+            final var watchdog = new DwellWatchdog<>(population);
+            final var returned = model.addState("returned");
+            population.set(0, returned);
+
+            watchdog.setThreshold(returned, Duration.ofNanos(10));
+            clock.addAndGet(20);
+            assertEquals(1, watchdog.sweep());
+            final var foreign = new StateModel<>("other").addState("x");
+            assertThrows(IllegalArgumentException.class, () -> watchdog.setThreshold(foreign, Duration.ofNanos(10)));
+        }
+    }
+
+    @Test
+    void testSweepReportsOverdueTokensOnce_success() {
+        final var model = createModel();
+        final var created = model.state(0);
+        try (final var population = new TokenPopulation<>(model, 1_000, true)) {
+            population.trackEntryTimes(clock::get);
+            population.set(0, created);
+            final var watchdog = new DwellWatchdog<>(population);
+            watchdog.setThreshold(created, Duration.ofNanos(100));
+            final List<Long> reported = new ArrayList<>();
+            watchdog.addListener((slot, state, dwellTime) -> {
+                assertEquals(created, state);
+                assertTrue(dwellTime.toNanos() > 100);
+                reported.add(slot);
+            });
+
+            for (var slot = 1; slot < 1_000; slot++) {
+                if (slot < 10) {
+                    clock.incrementAndGet();
+                }
+                population.set(slot, created);
+            }
+            StateMachine.execute(population, 5, true);
+            assertEquals(0, watchdog.sweep());
+
+            clock.addAndGet(100);
+            assertEquals(8, watchdog.sweep(), "slot 5 left the state, slot 9 is exactly at the threshold");
+            assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 6L, 7L, 8L), reported);
+            assertEquals(0, watchdog.sweep());
+
+            clock.addAndGet(5);
+            assertEquals(991, watchdog.sweep());
+            assertEquals(999, watchdog.overdue());
+            assertEquals(1, watchdog.dwellTimes(created).count());
+            assertThrows(IllegalArgumentException.class, () -> watchdog.dwellTimes(model.state(1)));
+        }
+    }
+
+    @Test
+    void testReenteredTokenIsWatchedAgain_success() throws Exception {
+        final var model = createModel();
+        final var created = model.state(0);
+        final var paid = model.state(1);
+        try (final var population = new TokenPopulation<>(model, 2)) {
+            population.trackEntryTimes(clock::get);
+            final var watchdog = new DwellWatchdog<>(population);
+            watchdog.setThreshold(created, Duration.ofNanos(10));
+            watchdog.setThreshold(paid, Duration.ofNanos(20));
+            assertThrows(IllegalStateException.class, () -> watchdog.setThreshold(paid, Duration.ofNanos(20)));
+
+            population.set(0, created);
+            clock.addAndGet(5);
+            population.set(0, paid);
+            population.set(0, created);
+            clock.addAndGet(8);
+            assertEquals(0, watchdog.sweep());
+            clock.addAndGet(3);
+            assertEquals(1, watchdog.sweep());
+
+            final var file = Files.createTempFile("tokens", ".bin");
+            try {
+                population.checkpoint(file);
+                population.restore(file);
+                assertEquals(0, watchdog.sweep());
+                clock.addAndGet(11);
+                assertEquals(1, watchdog.sweep(), "restored tokens are watched again");
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    void testEveryTakenTransitionResetsEntryTime_success() {
+        final var model = new StateModel<>("cycle");
+        final var idle = model.addState("idle");
+        final var busy = model.addState("busy");
+        final var plan = new ArrayDeque<>(List.of("retry", "start", "stop"));
+        model.addTransition(idle, idle, () -> "retry".equals(plan.peek()), "retry");
+        model.addTransition(idle, busy, () -> "start".equals(plan.peek()), "start");
+        model.addTransition(busy, idle, () -> "stop".equals(plan.peek()), "stop");
+        model.addTransitionListener((transition, context) -> {
+            plan.poll();
+            clock.addAndGet(5);
+        });
+        try (final var population = new TokenPopulation<>(model, 1)) {
+            population.trackEntryTimes(clock::get);
+            final var watchdog = new DwellWatchdog<>(population);
+            watchdog.setThreshold(idle, Duration.ofNanos(20));
+            watchdog.setThreshold(busy, Duration.ofNanos(20));
+
+            population.set(0, idle);
+            clock.addAndGet(30);
+            assertSame(idle, StateMachine.execute(population, 0));
+
+            assertEquals(1_045, population.entryTime(0), "the self loop and the cycle re-enter idle");
+            assertEquals(0, watchdog.sweep());
+            assertEquals(2, watchdog.dwellTimes(idle).count());
+            assertEquals(35, watchdog.dwellTimes(idle).max());
+            assertEquals(1, watchdog.dwellTimes(busy).count());
+        }
+    }
+}
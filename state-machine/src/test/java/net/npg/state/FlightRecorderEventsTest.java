@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecorderEventsTest {
+
+    @Test
+    void testRecordEvents_success(@TempDir final Path dir) throws IOException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        final var state3 = model.addState(new SimpleIdentifier("state3"));
+        model.addTransition(state1, state2, () -> true, TRANS_ID);
+        model.addTransition(state2, state3, () -> true, new SimpleIdentifier("trans_id2"));
+        model.addTransition(state2, state1, () -> true, new SimpleIdentifier("trans_id3"));
+        model.addEntryListener(state2, state -> {
+        });
+
+        final var file = dir.resolve("events.jfr");
+        FlightRecorderEvents.guardSampleInterval(1);
+        try (final var recording = new Recording()) {
+            recording.enable("net.npg.state.TransitionTaken");
+            recording.enable("net.npg.state.GuardEvaluated").withThreshold(Duration.ZERO);
+            recording.enable("net.npg.state.ListenerInvoked").withThreshold(Duration.ZERO);
+            recording.enable("net.npg.state.TransitionConflict");
+            recording.start();
+            assertThrows(IllegalStateException.class, () -> StateMachine.execute(model.createToken(state1)));
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            FlightRecorderEvents.guardSampleInterval(64);
+        }
+        final var events = RecordingFile.readAllEvents(file);
+
+        final var taken = named(events, "net.npg.state.TransitionTaken");
+        assertEquals(1, taken.size());
+        assertEquals(MODEL_ID.toString(), taken.getFirst().getString("model"));
+        assertEquals(ID1.toString(), taken.getFirst().getString("source"));
+        assertEquals(ID2.toString(), taken.getFirst().getString("target"));
+        assertEquals(3, named(events, "net.npg.state.GuardEvaluated").size());
+        assertEquals("entry", named(events, "net.npg.state.ListenerInvoked").getFirst().getString("kind"));
+        final var conflicts = named(events, "net.npg.state.TransitionConflict");
+        assertEquals(1, conflicts.size());
+        assertEquals(ID2.toString(), conflicts.getFirst().getString("state"));
+    }
+
+    private static List<RecordedEvent> named(final List<RecordedEvent> events, final String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    @Test
+    void testGuardsAreSampled_success(@TempDir final Path dir) throws IOException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, () -> true, TRANS_ID);
+
+        final var file = dir.resolve("sampled.jfr");
+        try (final var recording = new Recording()) {
+            recording.enable("net.npg.state.GuardEvaluated").withThreshold(Duration.ZERO);
+            recording.start();
+            for (var i = 0; i < 1000; i++) {
+                StateMachine.execute(model.createToken(state1));
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+        final var guards = named(RecordingFile.readAllEvents(file), "net.npg.state.GuardEvaluated").size();
+
+        assertTrue(guards > 0 && guards < 1000, "sampled guards: " + guards);
+    }
+
+    @Test
+    void testGuardSampleInterval_failure() {
+        assertThrows(IllegalArgumentException.class, () -> FlightRecorderEvents.guardSampleInterval(0));
+    }
+}
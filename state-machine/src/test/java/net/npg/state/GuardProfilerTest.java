@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuardProfilerTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    /// A model with a cheap guard and a guard which advances the clock by 20 microseconds
+    private StateModel<SimpleIdentifier> createModel() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, () -> clock.addAndGet(10) < 0, TRANS_ID);
+        model.addTransition(state1, state1, () -> clock.addAndGet(20_000) < 0, new SimpleIdentifier("slow"));
+        return model;
+    }
+
+    @Test
+    void testTopGuards_success() {
+        final var model = createModel();
+        final var profiler = new GuardProfiler<>(model, 1, clock::get);
+        model.setGuardProfiler(profiler);
+        final var token = model.createToken(model.state(0));
+        for (var i = 0; i < 50; i++) {
+            StateMachine.execute(token);
+        }
+
+        final var top = profiler.top(2);
+        assertEquals(2, top.size());
+        assertSame(model.transition(1), top.getFirst().transition());
+        assertEquals(50, top.getFirst().samples());
+        assertEquals(20_000, top.getFirst().meanNanos());
+        assertEquals(10, top.get(1).meanNanos());
+        assertEquals(1, profiler.top(1).size());
+        assertTrue(profiler.report(5).contains("slow"));
+
+        final var diagram = RenderPlantUML.generate(model, profiler);
+        assertTrue(diagram.contains(ID1 + " -[#FF0000,bold]-> " + ID1 + " : " + model.transition(1).id()), diagram);
+
+        model.setGuardProfiler(null);
+        StateMachine.execute(token);
+        assertEquals(50, profiler.histogram(model.transition(1)).count());
+    }
+
+    @Test
+    void testSampleRate_success() {
+        final var model = createModel();
+        final var profiler = new GuardProfiler<>(model, 10, clock::get);
+        model.setGuardProfiler(profiler);
+        final var token = model.createToken(model.state(0));
+        for (var i = 0; i < 100; i++) {
+            StateMachine.execute(token);
+        }
+        assertEquals(20, profiler.top(2).stream().mapToLong(GuardProfiler.GuardCost::samples).sum());
+        profiler.reset();
+        assertTrue(profiler.top(2).isEmpty());
+    }
+
+    @Test
+    void testForeignProfiler_fail() {
+        final var model = createModel();
+        final var other = new GuardProfiler<>(createModel(), 1);
+        assertThrows(IllegalArgumentException.class, () -> model.setGuardProfiler(other));
+        assertThrows(IllegalArgumentException.class, () -> new GuardProfiler<>(model, 0));
+    }
+}
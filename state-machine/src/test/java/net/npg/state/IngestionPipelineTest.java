@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestionPipelineTest {
+
+    @Test
+    void testExecuteUpdates_success() throws InterruptedException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Boolean go) -> go, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 1000);
+             final var executor = Executors.newFixedThreadPool(4)) {
+            try (final var pipeline = new IngestionPipeline<>(population, 64, Duration.ofMillis(1), 100, executor, 4)) {
+                for (var slot = 0; slot < population.capacity(); slot++) {
+                    population.set(slot, state1);
+                    pipeline.submit(slot, slot % 2 == 0);
+                }
+                pipeline.close();
+                assertEquals(1000, pipeline.received());
+                assertEquals(1000 - pipeline.coalesced(), pipeline.latency().count());
+                assertEquals(0, pipeline.failures());
+                assertThrows(IllegalStateException.class, () -> pipeline.submit(0, true));
+            }
+            assertSame(state2, population.state(0));
+            assertSame(state1, population.state(1));
+        }
+    }
+
+    @Test
+    void testCoalesceUpdatesOfSameSlot_success() throws InterruptedException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Boolean go) -> go, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 1)) {
+            population.set(0, state1);
+            try (final var pipeline = new IngestionPipeline<>(population, 100, Duration.ofSeconds(1), 100,
+                    Runnable::run, 1)) {
+                for (var i = 0; i < 10; i++) {
+                    pipeline.submit(0, i == 9);
+                }
+                pipeline.close();
+                assertTrue(pipeline.coalesced() > 0);
+                assertEquals(10, pipeline.coalesced() + pipeline.latency().count());
+            }
+            assertSame(state2, population.state(0));
+        }
+    }
+
+    @Test
+    void testBackpressure_success() throws InterruptedException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        final var entered = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        model.addTransition(state1, state2, () -> {
+            entered.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 3)) {
+            population.set(0, state1);
+            population.set(1, state1);
+            try (final var pipeline = new IngestionPipeline<>(population, 1, Duration.ZERO, 1, Runnable::run, 1)) {
+                pipeline.submit(0, null);
+                entered.await();
+                assertTrue(pipeline.offer(1, null, Duration.ZERO));
+                assertFalse(pipeline.offer(2, null, Duration.ofMillis(20)));
+                release.countDown();
+            }
+            assertSame(state2, population.state(0));
+            assertSame(state2, population.state(1));
+        }
+    }
+
+    @Test
+    void testCloseWhileSubmitting_success() throws InterruptedException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        model.addTransition(state1, state1, () -> false, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 1000);
+             final var producers = Executors.newFixedThreadPool(4)) {
+            for (var slot = 0; slot < population.capacity(); slot++) {
+                population.set(slot, state1);
+            }
+            final var accepted = new AtomicLong();
+            final var pipeline = new IngestionPipeline<>(population, 16, Duration.ZERO, 8, Runnable::run, 1);
+            for (var producer = 0; producer < 4; producer++) {
+                producers.execute(() -> {
+                    try {
+                        for (var slot = 0L; ; slot = (slot + 1) % 1000) {
+                            pipeline.submit(slot, null);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (final IllegalStateException | InterruptedException e) {
+                        // closed
+                    }
+                });
+            }
+            while (accepted.get() < 1000) {
+                Thread.onSpinWait();
+            }
+            pipeline.close();
+            producers.shutdown();
+            assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(accepted.get(), pipeline.received());
+            assertEquals(pipeline.received(), pipeline.latency().count() + pipeline.coalesced(), "no accepted update is lost");
+            assertEquals(0, pipeline.pending());
+        }
+    }
+
+    @Test
+    void testRejectedChunksRunOnDispatcher_success() throws InterruptedException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Boolean go) -> go, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 100)) {
+            try (final var pipeline = new IngestionPipeline<>(population, 16, Duration.ofMillis(1), 100, task -> {
+                throw new RejectedExecutionException("shut down");
+            }, 4)) {
+                for (var slot = 0; slot < population.capacity(); slot++) {
+                    population.set(slot, state1);
+                    pipeline.submit(slot, true);
+                }
+                pipeline.close();
+                assertEquals(0, pipeline.failures());
+            }
+            for (var slot = 0; slot < population.capacity(); slot++) {
+                assertSame(state2, population.state(slot));
+            }
+        }
+    }
+
+    @Test
+    void testDispatcherSurvivesErrors_success() throws InterruptedException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Integer go) -> {
+            if (go < 0) {
+                throw new AssertionError("broken guard");
+            }
+            return go > 0;
+        }, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 100);
+             final var executor = Executors.newFixedThreadPool(2)) {
+            try (final var pipeline = new IngestionPipeline<>(population, 16, Duration.ofMillis(1), 100, executor, 2)) {
+                population.set(0, state1);
+                pipeline.submit(0, -1);
+                final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (pipeline.failures() == 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+                assertEquals(1, pipeline.failures());
+                for (var slot = 1; slot < population.capacity(); slot++) {
+                    population.set(slot, state1);
+                    pipeline.submit(slot, 1);
+                }
+                pipeline.close();
+            }
+            for (var slot = 1; slot < population.capacity(); slot++) {
+                assertSame(state2, population.state(slot));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram_success() {
+        final var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.mean());
+    }
+
+    @Test
+    void testPercentiles_success() {
+        final var histogram = new LatencyHistogram();
+        for (var i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_000, histogram.percentile(50), 500_000 * 0.04);
+        assertEquals(990_000, histogram.percentile(99), 990_000 * 0.04);
+        assertEquals(1_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    void testBucketBounds_success() {
+        for (final var value : new long[]{0, 1, 63, 64, 65, 127, 128, 1_000_000, Long.MAX_VALUE}) {
+            final var bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.upperBound(bucket) >= value, "value " + value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBound(bucket - 1) < value, "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void testAdd_success() {
+        final var histogram = new LatencyHistogram();
+        final var other = new LatencyHistogram();
+        histogram.record(10);
+        other.record(20);
+        histogram.add(other);
+        assertEquals(2, histogram.count());
+        assertEquals(20, histogram.max());
+        assertEquals(30, histogram.total());
+    }
+
+    @Test
+    void testInvalidPercentile_fail() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram().percentile(101));
+    }
+}
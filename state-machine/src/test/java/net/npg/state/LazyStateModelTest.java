@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyStateModelTest {
+    private static final int STATES = 1_000_000;
+
+    /// A generated chain 0 -> 1 -> ... which stops at the state passed as context
+    private static Optional<List<LazyTransition<Integer>>> chain(final Integer state) {
+        if (state < 0 || state >= STATES) {
+            return Optional.empty();
+        }
+        if (state == STATES - 1) {
+            return Optional.of(List.of());
+        }
+        return Optional.of(List.of(new LazyTransition<>(state, state + 1, limit -> state < (Integer) limit)));
+    }
+
+    @Test
+    void testExecuteLoadsOnlyVisitedStates_success() {
+        final var model = new LazyStateModel<>(-1, LazyStateModelTest::chain, 100);
+        assertEquals(10, StateMachine.execute(model, 0, 10));
+        assertEquals(11, model.loads());
+        assertEquals(11, model.cachedStates());
+
+        assertEquals(20, StateMachine.execute(model, 5, 20));
+        assertEquals(6, model.hits());
+        assertEquals(21, model.loads());
+    }
+
+    @Test
+    void testCacheEvictsLeastRecentlyUsed_success() {
+        final var model = new LazyStateModel<>(-1, LazyStateModelTest::chain, 10);
+        assertEquals(500, StateMachine.execute(model, 0, 500));
+        assertEquals(10, model.cachedStates());
+        assertEquals(491, model.evictions());
+        assertTrue(model.isCached(500));
+        assertFalse(model.isCached(0));
+
+        assertEquals(1, StateMachine.execute(model, 0, 1));
+        assertTrue(model.isCached(0));
+    }
+
+    @Test
+    void testReferencedStatesGetSecondChance_success() {
+        final var model = new LazyStateModel<>(-1, LazyStateModelTest::chain, 3);
+        model.outgoingTransitions(0);
+        model.outgoingTransitions(1);
+        model.outgoingTransitions(2);
+        model.outgoingTransitions(0);
+
+        model.outgoingTransitions(3);
+        assertTrue(model.isCached(0));
+        assertFalse(model.isCached(1));
+        assertEquals(3, model.cachedStates());
+        assertEquals(1, model.evictions());
+    }
+
+    @Test
+    void testConcurrentExecutionsStayBounded_success() throws Exception {
+        final var model = new LazyStateModel<>(-1, LazyStateModelTest::chain, 50);
+        try (final var executor = Executors.newFixedThreadPool(4)) {
+            final var results = new ArrayList<Future<Integer>>();
+            for (var i = 0; i < 100; i++) {
+                final var start = i * 100;
+                results.add(executor.submit(() -> StateMachine.execute(model, start, start + 1_000)));
+            }
+            for (var i = 0; i < results.size(); i++) {
+                assertEquals(i * 100 + 1_000, results.get(i).get(30, TimeUnit.SECONDS));
+            }
+        }
+        assertTrue(model.cachedStates() <= 50, "cached states: " + model.cachedStates());
+        assertTrue(model.cachedStates() + model.evictions() <= model.loads());
+    }
+
+    @Test
+    void testUnknownState_fail() {
+        final var model = new LazyStateModel<>(-1, LazyStateModelTest::chain);
+        assertThrows(IllegalArgumentException.class, () -> StateMachine.execute(model, -5, 0));
+    }
+
+    @Test
+    void testMultipleEnabled_fail() {
+        final var model = new LazyStateModel<Integer>(-1, state -> Optional.of(state == 0
+                ? List.of(new LazyTransition<>(1, 1, ctx -> true), new LazyTransition<>(2, 2, ctx -> true))
+                : List.of()));
+        assertThrows(IllegalStateException.class, () -> StateMachine.execute(model, 0, null));
+    }
+}
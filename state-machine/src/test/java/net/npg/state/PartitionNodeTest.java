@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionNodeTest {
+    private static final int KEYS = 1000;
+
+    private static StateModel<SimpleIdentifier> createModel() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Boolean go) -> go, TRANS_ID);
+        return model;
+    }
+
+    private static List<PartitionNode<SimpleIdentifier>> createCluster(final StateModel<SimpleIdentifier> model,
+                                                                       final PartitionTransport transport, final List<String> members) {
+        final var nodes = new ArrayList<PartitionNode<SimpleIdentifier>>();
+        for (final var member : members) {
+            nodes.add(new PartitionNode<>(member, model, transport, members));
+        }
+        return nodes;
+    }
+
+    @Test
+    void testRouteTriggersToOwner_success() {
+        final var model = createModel();
+        final var transport = new LoopbackTransport();
+        final var nodes = createCluster(model, transport, List.of("a", "b", "c"));
+        final var entry = nodes.getFirst();
+        for (var key = 0L; key < KEYS; key++) {
+            entry.put(key, model.state(0));
+        }
+        assertEquals(KEYS, nodes.stream().mapToInt(PartitionNode::size).sum());
+        assertTrue(nodes.stream().allMatch(node -> node.size() > 0));
+
+        for (var key = 0L; key < KEYS; key++) {
+            nodes.get((int) (key % 3)).trigger(key, key % 2 == 0);
+        }
+        for (var key = 0L; key < KEYS; key++) {
+            final var owner = entry.owner(key);
+            final var node = nodes.stream().filter(n -> n.id().equals(owner)).findFirst().orElseThrow();
+            assertSame(model.state(key % 2 == 0 ? 1 : 0), node.localState(key).orElseThrow());
+        }
+        assertThrows(IllegalStateException.class, () -> entry.trigger(KEYS, true));
+    }
+
+    @Test
+    void testRebalance_success() {
+        final var model = createModel();
+        final var transport = new LoopbackTransport();
+        final var nodes = createCluster(model, transport, List.of("a", "b"));
+        for (var key = 0L; key < KEYS; key++) {
+            nodes.getFirst().put(key, model.state(0));
+        }
+        final var members = List.of("a", "b", "c");
+        final var added = new PartitionNode<>("c", model, transport, members);
+        final var before = transport.messages();
+        nodes.forEach(node -> node.rebalance(members));
+        nodes.add(added);
+
+        assertTrue(transport.messages() - before <= 2, "one bulk handoff per node pair");
+        assertTrue(added.size() > 0);
+        assertEquals(KEYS, nodes.stream().mapToInt(PartitionNode::size).sum());
+        for (var key = 0L; key < KEYS; key++) {
+            final var owner = added.owner(key);
+            final var node = nodes.stream().filter(n -> n.id().equals(owner)).findFirst().orElseThrow();
+            assertTrue(node.localState(key).isPresent());
+        }
+
+        final var remaining = List.of("a", "c");
+        nodes.get(1).leave(remaining);
+        nodes.remove(1);
+        nodes.forEach(node -> node.rebalance(remaining));
+        assertEquals(KEYS, nodes.stream().mapToInt(PartitionNode::size).sum());
+    }
+
+    @Test
+    void testNodeNotMember_fail() {
+        final var model = createModel();
+        assertThrows(IllegalArgumentException.class, () -> new PartitionNode<>("x", model, new LoopbackTransport(), List.of("a")));
+    }
+
+    @Test
+    void testConsistentHashRingMovesFewKeys_success() {
+        final var ring3 = new ConsistentHashRing(List.of("a", "b", "c"));
+        final var ring4 = new ConsistentHashRing(List.of("a", "b", "c", "d"));
+        var moved = 0;
+        for (var key = 0L; key < 10_000; key++) {
+            if (!ring3.owner(key).equals(ring4.owner(key))) {
+                moved++;
+                assertEquals("d", ring4.owner(key));
+            }
+        }
+        assertTrue(moved > 1000 && moved < 4000, "moved " + moved);
+    }
+
+    @Test
+    void testConsistentHashRingSeparatesEqualHashCodes_success() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        final var ring = new ConsistentHashRing(List.of("Aa", "BB"));
+        var first = 0;
+        for (var key = 0L; key < 10_000; key++) {
+            if (ring.owner(key).equals("Aa")) {
+                first++;
+            }
+        }
+        assertTrue(first > 2000 && first < 8000, "Aa owns " + first);
+    }
+
+    @Test
+    void testTriggerFromListener_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, Transition.ALWAYS, TRANS_ID);
+        final var node = new PartitionNode<>("a", model, new LoopbackTransport(), List.of("a"));
+        model.addTransitionListener((transition, context) -> {
+            final var key = (long) context;
+            if (key < KEYS / 2) {
+                node.trigger(key + KEYS / 2, key + KEYS / 2);
+            }
+        });
+        for (var key = 0L; key < KEYS; key++) {
+            node.put(key, state1);
+        }
+
+        for (var key = 0L; key < KEYS / 2; key++) {
+            node.trigger(key, key);
+        }
+
+        for (var key = 0L; key < KEYS; key++) {
+            assertSame(state2, node.localState(key).orElseThrow());
+        }
+    }
+
+    @Test
+    void testForwardingLoopIsBounded_failure() {
+        final var model = createModel();
+        final var loopback = new LoopbackTransport();
+        final var misrouting = new PartitionTransport() {
+            @Override
+            public void register(final String node, final Consumer<PartitionMessage> receiver) {
+                loopback.register(node, receiver);
+            }
+
+            @Override
+            public void unregister(final String node) {
+                loopback.unregister(node);
+            }
+
+            @Override
+            public void send(final String node, final PartitionMessage message) {
+                loopback.send("a", message);
+            }
+        };
+        final var node = new PartitionNode<>("a", model, misrouting, List.of("a", "b"));
+        final var key = LongStream.range(0, KEYS).filter(k -> node.owner(k).equals("b")).findFirst().orElseThrow();
+
+        final var exception = assertThrows(IllegalStateException.class, () -> node.trigger(key, true));
+        assertTrue(exception.getMessage().contains(PartitionNode.MAX_HOPS + " hops"), exception.getMessage());
+    }
+}
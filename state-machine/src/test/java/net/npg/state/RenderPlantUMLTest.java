@@ -34,4 +34,14 @@ class RenderPlantUMLTest {
         Assertions.assertTrue(result.contains("trans"), result);
 
     }
+
+    @Test
+    void generateWithoutSamples() {
+        final var model = new StateModel<>("nope");
+        final var s1 = model.addState("State1");
+        final var s2 = model.addState("State2");
+        model.addTransition(s1, s2, () -> true, "trans");
+        final var result = RenderPlantUML.generate(model, new GuardProfiler<>(model, 1));
+        Assertions.assertEquals(RenderPlantUML.generate(model), result);
+    }
 }
\ No newline at end of file
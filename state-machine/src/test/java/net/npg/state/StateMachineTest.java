@@ -20,11 +20,12 @@ package net.npg.state;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static net.npg.state.Ids.*;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class StateMachineTest {
 
@@ -87,4 +88,97 @@ class StateMachineTest {
         final var nextState = new StateMachine<>(model, state1).execute();
         assertEquals(state2, nextState);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExecuteWithContext_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Integer amount) -> amount > 10, TRANS_ID);
+        final var token = model.createToken(state1);
+
+        assertEquals(state1, StateMachine.execute(token, 5).state());
+        assertEquals(state2, StateMachine.execute(token, 15).state());
+        assertEquals(state2, new StateMachine<>(model, state1).execute(20));
+    }
+
+    @Test
+    void testExecuteMultipleEnabled_fail() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, () -> true, TRANS_ID);
+        model.addTransition(state1, state1, () -> true, new SimpleIdentifier("trans_id2"));
+        final var token = model.createToken(state1);
+
+        assertThrows(IllegalStateException.class, () -> StateMachine.execute(token));
+    }
+
+    @Test
+    void testTransitionListenerCalled() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        final var transition = model.addTransition(state1, state2, () -> true, TRANS_ID);
+        final var called = new AtomicBoolean(false);
+        final TransitionListener<SimpleIdentifier> listener = (t, c) -> called.set(t == transition && "ctx".equals(c));
+        model.addTransitionListener(listener);
+
+        StateMachine.execute(model.createToken(state1), "ctx");
+        assertTrue(called.get());
+
+        called.set(false);
+        assertTrue(model.removeTransitionListener(listener));
+        StateMachine.execute(model.createToken(state1), "ctx");
+        assertFalse(called.get());
+    }
+
+    @Test
+    void testHookOrder() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var calls = new ArrayList<String>();
+        final var state2 = model.addState(ID2, s -> calls.add("listener"));
+        final var transition = model.addTransition(state1, state2, () -> true, TRANS_ID);
+        model.addExitListener(state1, s -> calls.add("exit"));
+        model.addTransitionListener(transition, (t, c) -> calls.add("transition"));
+        model.addEntryListener(state2, s -> calls.add("entry"));
+        model.addTransitionListener((t, c) -> calls.add("model"));
+
+        StateMachine.execute(model.createToken(state1));
+
+        assertEquals(List.of("exit", "transition", "listener", "entry", "model"), calls);
+    }
+
+    @Test
+    void testHookExceptionHandler() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        final var transition = model.addTransition(state1, state2, () -> true, TRANS_ID);
+        final var exception = new IllegalStateException("hook");
+        model.addEntryListener(state2, s -> {
+            throw exception;
+        });
+        final var handled = new ArrayList<Exception>();
+        model.setHookExceptionHandler((t, e) -> {
+            assertSame(transition, t);
+            handled.add(e);
+        });
+
+        assertEquals(state2, StateMachine.execute(model.createToken(state1)).state());
+        assertEquals(List.of(exception), handled);
+
+        model.setHookExceptionHandler((t, e) -> {
+            throw new IllegalArgumentException(e);
+        });
+        assertThrows(IllegalArgumentException.class, () -> StateMachine.execute(model.createToken(state1)));
+    }
+
+    @Test
+    void testAddListenerForeignState_fail() {
+        final var model = new StateModel<>(MODEL_ID);
+        assertThrows(IllegalArgumentException.class, () -> model.addEntryListener(STATE1, s -> {
+        }));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateModelBuilderTest {
+
+    private static List<Integer> ids(final Collection<Transition<Integer>> transitions) {
+        return transitions.stream().map(Transition::id).toList();
+    }
+
+    @Test
+    void testBuildMatchesSequentialModel_success() {
+        final var builder = new StateModelBuilder<>("model")
+                .addStates("a", "b", "c", "a")
+                .addTransition("a", "b", () -> true, "ab")
+                .addTransition("b", "c", () -> false, "bc")
+                .addTransition("c", "a", () -> false, "ca")
+                .addTransition("a", "c", () -> false, "ac");
+        final var model = builder.build();
+
+        assertEquals(3, model.states().size());
+        assertEquals(4, model.transitions().size());
+        final var a = model.state(0);
+        assertEquals("a", a.id());
+        assertEquals(List.of("ab", "ac"), a.outgoingTransitions().stream().map(Transition::id).toList());
+        assertEquals(List.of("ca"), a.incomingTransitions().stream().map(Transition::id).toList());
+        assertSame(model.state(2), model.transition(1).target());
+        assertEquals(1, model.transition(1).ordinal());
+
+        assertSame(model.state(1), StateMachine.execute(model.createToken(a)).state());
+        final var d = model.addState("d");
+        model.addTransition(d, a, () -> true, "da");
+        assertSame(model.state(1), StateMachine.execute(model.createToken(d)).state());
+    }
+
+    @Test
+    void testDuplicateTransitions() {
+        final Predicate<Object> guard = ctx -> true;
+        final var model = new StateModelBuilder<>("model")
+                .addStates("a", "b")
+                .addTransition("a", "b", guard, "ab")
+                .addTransition("a", "b", guard, "ab")
+                .build();
+        assertEquals(1, model.transitions().size());
+
+        final var conflicting = new StateModelBuilder<>("model")
+                .addStates("a", "b")
+                .addTransition("a", "b", guard, "ab")
+                .addTransition("b", "a", guard, "ab");
+        assertThrows(IllegalArgumentException.class, conflicting::build);
+    }
+
+    @Test
+    void testUnknownState_fail() {
+        final var builder = new StateModelBuilder<>("model")
+                .addStates("a")
+                .addTransition("a", "x", () -> true, "ax");
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @Test
+    void testParallelBuild_success() {
+        final var states = 5_000;
+        final var edges = new ArrayList<StateModelBuilder.Edge<Integer>>();
+        for (var i = 0; i < 4 * states; i++) {
+            edges.add(new StateModelBuilder.Edge<>(i, (i * 7) % states, (i * 13 + 1) % states, ctx -> false));
+        }
+        final var stateIds = IntStream.range(0, states).boxed().toList();
+        final var sequential = new StateModelBuilder<>(-1).addStates(stateIds).addTransitions(edges).build();
+        final var parallel = new StateModelBuilder<>(-1).addStates(stateIds).addTransitions(edges).parallel(true).build();
+
+        for (var ordinal = 0; ordinal < states; ordinal++) {
+            assertEquals(ids(sequential.state(ordinal).outgoingTransitions()), ids(parallel.state(ordinal).outgoingTransitions()));
+            assertEquals(ids(sequential.state(ordinal).incomingTransitions()), ids(parallel.state(ordinal).incomingTransitions()));
+        }
+        assertEquals(4, parallel.state(0).outgoingTransitions().size());
+    }
+}
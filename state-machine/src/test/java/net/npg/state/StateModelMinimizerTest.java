@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateModelMinimizerTest {
+
+    @Test
+    void testCollapseChainsAndMergeStates_success() {
+        final var go = new AtomicBoolean(true);
+        final BooleanSupplier left = go::get;
+        final BooleanSupplier right = () -> !go.get();
+        final BooleanSupplier finish = () -> false;
+        final var model = new StateModel<>("model");
+        final var s0 = model.addState("s0");
+        final var s1 = model.addState("s1");
+        final var s2 = model.addState("s2");
+        final var s3 = model.addState("s3");
+        final var s4 = model.addState("s4");
+        final var s5 = model.addState("s5");
+        model.addTransition(s0, s1, Transition.ALWAYS, "t01");
+        model.addTransition(s1, s2, Transition.ALWAYS, "t12");
+        model.addTransition(s2, s3, left, "t23");
+        model.addTransition(s2, s4, right, "t24");
+        model.addTransition(s3, s5, finish, "t35");
+        model.addTransition(s4, s5, finish, "t45");
+
+        final var minimized = StateModelMinimizer.minimize(model);
+        final var result = minimized.model();
+
+        assertEquals(3, result.states().size());
+        assertEquals(3, minimized.removedStates());
+        assertSame(minimized.state("s2"), minimized.state("s0"));
+        assertSame(minimized.state("s2"), minimized.state("s1"));
+        assertSame(minimized.state("s3"), minimized.state("s4"));
+        assertEquals("s3", minimized.state("s4").id());
+        assertEquals(6, model.states().size());
+
+        final var original = StateMachine.execute(model.createToken(s0));
+        final var shrunk = StateMachine.execute(minimized.token(model.createToken(s0)));
+        assertSame(minimized.state(original.state().id()), shrunk.state());
+        assertThrows(IllegalArgumentException.class, () -> minimized.state("unknown"));
+    }
+
+    @Test
+    void testListenersPreventMerging_success() {
+        final var model = new StateModel<>("model");
+        final var s0 = model.addState("s0");
+        final var s1 = model.addState("s1");
+        final var s2 = model.addState("s2");
+        final var s3 = model.addState("s3");
+        model.addTransition(s0, s1, Transition.ALWAYS, "t01");
+        model.addTransition(s1, s2, Transition.ALWAYS, "t12");
+        model.addTransition(s1, s3, () -> false, "t13");
+        final var entered = new ArrayList<String>();
+        model.addEntryListener(s2, state -> entered.add(state.id()));
+        model.addEntryListener(s3, state -> entered.add(state.id()));
+
+        final var minimized = StateModelMinimizer.minimize(model);
+
+        assertEquals(3, minimized.model().states().size());
+        assertSame(minimized.state("s1"), minimized.state("s0"));
+        assertNotSame(minimized.state("s2"), minimized.state("s3"));
+        StateMachine.execute(minimized.token(model.createToken(s0)));
+        assertEquals(List.of("s2"), entered);
+    }
+
+    @Test
+    void testUnconditionalCycleCollapsesToSelfLoop_success() {
+        final var model = new StateModel<>("model");
+        final var s0 = model.addState("s0");
+        final var s1 = model.addState("s1");
+        model.addTransition(s0, s1, Transition.ALWAYS, "t01");
+        model.addTransition(s1, s0, Transition.ALWAYS, "t10");
+
+        final var minimized = StateModelMinimizer.minimize(model);
+        assertEquals(1, minimized.model().states().size());
+        assertEquals(1, minimized.model().transitions().size());
+        final var loop = minimized.model().transition(0);
+        assertSame(loop.source(), loop.target(), "the cycle must survive as a self loop");
+        assertSame(Transition.ALWAYS, loop.guardSupplier());
+    }
+}
@@ -21,6 +21,7 @@ package net.npg.state;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.function.BooleanSupplier;
 
 import static net.npg.state.Ids.*;
@@ -143,4 +144,19 @@ class StateModelTest {
         assertThrows(IllegalArgumentException.class, () -> stateModel.addTransition(state1, state2, () -> true, TRANS_ID));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testTransitionOrdinals_success() {
+        final var stateModel = new StateModel<>(MODEL_ID);
+        final var state1 = stateModel.addState(ID1);
+        final var state2 = stateModel.addState(ID2);
+        final var transition1 = stateModel.addTransition(state1, state2, () -> true, TRANS_ID);
+        final var transition2 = stateModel.addTransition(state2, state1, () -> true, new SimpleIdentifier("trans_id2"));
+
+        assertEquals(0, state1.ordinal());
+        assertSame(state2, stateModel.state(1));
+        assertEquals(0, transition1.ordinal());
+        assertEquals(1, transition2.ordinal());
+        assertSame(transition2, stateModel.transition(1));
+        assertEquals(List.of(transition1, transition2), stateModel.transitions());
+    }
+}
@@ -57,4 +57,30 @@ class StateTest {
         final var state = new State<>(ID1);
         assertThrows(NullPointerException.class, () -> state.addOutgoingTransition(null));
     }
+
+    @Test
+    void testStateIdentity_success() {
+        final var state = new State<>(ID1, 0);
+        final var sameId = new State<>(ID1, 0);
+        assertEquals(state, state);
+        assertNotEquals(state, sameId);
+    }
+
+    @Test
+    void testHashCodeStable_success() {
+        final var state = new State<>(ID1, 0);
+        final var targetState = new State<>(ID2, 1);
+        final var hashCode = state.hashCode();
+
+        state.addOutgoingTransition(new Transition<>(TRANS_ID, state, targetState, () -> true));
+
+        assertEquals(hashCode, state.hashCode());
+    }
+
+    @Test
+    void testAddForeignOutgoingTransition_fail() {
+        final var state = new State<>(ID1);
+        final var transition = new Transition<>(TRANS_ID, new State<>(ID1), new State<>(ID2), () -> true);
+        assertThrows(IllegalArgumentException.class, () -> state.addOutgoingTransition(transition));
+    }
 }
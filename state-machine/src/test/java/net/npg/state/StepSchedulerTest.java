@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StepSchedulerTest {
+
+    /// A chain of `length` states connected by unconditional transitions
+    private static StateModel<String> chain(final String name, final int length) {
+        final var model = new StateModel<>(name);
+        var previous = model.addState(name + 0);
+        for (var i = 1; i < length; i++) {
+            final var next = model.addState(name + i);
+            model.addTransition(previous, next, Transition.ALWAYS, name + "t" + i);
+            previous = next;
+        }
+        return model;
+    }
+
+    @Test
+    void testStep_success() {
+        final var model = chain("s", 3);
+        final var token = model.createToken(model.state(0));
+        final var first = StateMachine.step(token);
+        assertSame(model.state(1), first.state());
+        final var second = StateMachine.step(first, null);
+        assertSame(model.state(2), second.state());
+        assertSame(second, StateMachine.step(second));
+    }
+
+    @Test
+    void testShortTokensOvertakeLongChains_success() throws Exception {
+        final var longModel = chain("long", 2000);
+        final var shortModel = chain("short", 3);
+        final var finished = new CopyOnWriteArrayList<String>();
+        try (final var scheduler = new StepScheduler<String>(1, 2)) {
+            final var longResult = scheduler.submit(longModel.createToken(longModel.state(0)), null)
+                    .whenComplete((token, error) -> finished.add("long"));
+            final var shortResult = scheduler.submit(shortModel.createToken(shortModel.state(0)), null)
+                    .whenComplete((token, error) -> finished.add("short"));
+
+            assertSame(shortModel.state(2), shortResult.get(10, TimeUnit.SECONDS).state());
+            assertSame(longModel.state(1999), longResult.get(10, TimeUnit.SECONDS).state());
+            assertEquals(List.of("short", "long"), finished);
+            assertTrue(scheduler.slices() >= 1000);
+        }
+    }
+
+    @Test
+    void testDeadlineFirst_success() throws Exception {
+        final var model = chain("s", 2);
+        final var blocker = new CountDownLatch(1);
+        final var blocked = new StateModel<>("blocked");
+        final var b0 = blocked.addState("b0");
+        blocked.addTransition(b0, blocked.addState("b1"), () -> {
+            try {
+                return blocker.await(10, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "bt");
+        final var finished = new CopyOnWriteArrayList<String>();
+        try (final var scheduler = new StepScheduler<String>(1)) {
+            final var first = scheduler.submit(blocked.createToken(b0), null);
+            Thread.sleep(50);
+            final var relaxed = scheduler.submit(model.createToken(model.state(0)), null)
+                    .whenComplete((token, error) -> finished.add("relaxed"));
+            final var urgent = scheduler.submit(model.createToken(model.state(0)), null, Duration.ofSeconds(5))
+                    .whenComplete((token, error) -> finished.add("urgent"));
+            blocker.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            relaxed.get(10, TimeUnit.SECONDS);
+            urgent.get(10, TimeUnit.SECONDS);
+            assertEquals(List.of("urgent", "relaxed"), finished);
+            assertEquals(0, scheduler.missedDeadlines());
+        }
+    }
+
+    @Test
+    void testFailureAndClose() throws Exception {
+        final var model = new StateModel<>("model");
+        final var s0 = model.addState("s0");
+        model.addTransition(s0, model.addState("s1"), Transition.ALWAYS, "a");
+        model.addTransition(s0, model.addState("s2"), Transition.ALWAYS, "b");
+        final var scheduler = new StepScheduler<String>(1);
+        final var failed = scheduler.submit(model.createToken(s0), null);
+        final var error = assertThrows(Exception.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        scheduler.close();
+        assertThrows(IllegalStateException.class, () -> scheduler.submit(model.createToken(s0), null));
+    }
+}
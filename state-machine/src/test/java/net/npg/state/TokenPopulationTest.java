@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.LongStream;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenPopulationTest {
+
+    @Test
+    void testNewPopulationIsEmpty_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        model.addState(ID1);
+        try (final var population = new TokenPopulation<>(model, 4)) {
+            assertTrue(population.isEmpty(0));
+            assertEquals(TokenPopulation.EMPTY, population.ordinal(3));
+            assertThrows(IllegalStateException.class, () -> population.state(0));
+        }
+    }
+
+    @Test
+    void testSetAndExecuteSlot_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, () -> true, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 4)) {
+            population.set(1, state1);
+            population.set(2, state1);
+            assertSame(state1, population.state(1));
+
+            assertSame(state2, StateMachine.execute(population, 1));
+            assertSame(state2, population.state(1));
+
+            StateMachine.executeRange(population, 0, population.capacity());
+            assertSame(state2, population.state(2));
+            assertTrue(population.isEmpty(0));
+        }
+    }
+
+    @Test
+    void testExecuteSlotWithNumericContext_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (Long amount) -> amount > 10, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 64)) {
+            population.set(0, state1);
+
+            assertSame(state1, StateMachine.execute(population, 0, 5L));
+            assertSame(state2, StateMachine.execute(population, 0, 42L), "a long context is not a slot range");
+        }
+    }
+
+    @Test
+    void testOccupancyIndex_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, () -> true, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 200, true)) {
+            population.set(3, state1);
+            population.set(64, state1);
+            population.set(130, state1);
+            assertEquals(3, population.count(state1));
+            assertArrayEquals(new long[]{3, 64, 130}, population.slots(state1).toArray());
+
+            StateMachine.execute(population, 64);
+            population.clear(3);
+            population.clear(3);
+            assertEquals(1, population.count(state1));
+            assertEquals(1, population.count(state2));
+            assertArrayEquals(new long[]{130}, population.slots(state1).toArray());
+            assertArrayEquals(new long[]{64}, population.slots(state2).toArray());
+
+            final var state3 = model.addState(new SimpleIdentifier("state3"));
+            population.set(199, state3);
+            assertEquals(1, population.count(state3));
+            assertArrayEquals(new long[]{199}, population.slots(state3).toArray());
+        }
+    }
+
+    @Test
+    void testOccupancyIndexConcurrentUpdates_success() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, () -> true, TRANS_ID);
+        try (final var population = new TokenPopulation<>(model, 10_000, true)) {
+            LongStream.range(0, population.capacity()).parallel().forEach(slot -> population.set(slot, state1));
+            LongStream.range(0, population.capacity()).parallel().forEach(slot -> StateMachine.execute(population, slot));
+            assertEquals(0, population.count(state1));
+            assertEquals(10_000, population.count(state2));
+            assertEquals(10_000, population.slots(state2).count());
+        }
+    }
+
+    @Test
+    void testNotIndexed_fail() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        try (final var population = new TokenPopulation<>(model, 1)) {
+            assertFalse(population.isIndexed());
+            assertThrows(IllegalStateException.class, () -> population.count(state1));
+        }
+    }
+
+    @Test
+    void testSetForeignState_fail() {
+        final var model = new StateModel<>(MODEL_ID);
+        try (final var population = new TokenPopulation<>(model, 1)) {
+            assertThrows(IllegalArgumentException.class, () -> population.set(0, new State<>(ID1)));
+        }
+    }
+
+    @Test
+    void testCheckpointAndRestore_success(@TempDir final Path dir) throws IOException {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        final var file = dir.resolve("tokens.bin");
+        try (final var population = new TokenPopulation<>(model, 3)) {
+            population.set(0, state2);
+            population.set(2, state1);
+            population.checkpoint(file);
+        }
+        try (final var restored = new TokenPopulation<>(model, 3, true)) {
+            restored.set(1, state1);
+            restored.restore(file);
+            assertSame(state2, restored.state(0));
+            assertTrue(restored.isEmpty(1));
+            assertSame(state1, restored.state(2));
+            assertArrayEquals(new long[]{2}, restored.slots(state1).toArray());
+            assertEquals(1, restored.count(state2));
+        }
+    }
+
+    @Test
+    void testRestoreWrongCapacity_fail(@TempDir final Path dir) throws IOException {
+        final var model = new StateModel<>(MODEL_ID);
+        model.addState(ID1);
+        final var file = dir.resolve("tokens.bin");
+        try (final var population = new TokenPopulation<>(model, 3)) {
+            population.checkpoint(file);
+        }
+        try (final var restored = new TokenPopulation<>(model, 4)) {
+            assertThrows(IllegalArgumentException.class, () -> restored.restore(file));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopologyInternerTest {
+
+    private static StateModel<String> entityModel(final AtomicBoolean ready) {
+        final var model = new StateModel<>("entity");
+        final var waiting = model.addState("waiting");
+        final var running = model.addState("running");
+        final var done = model.addState("done");
+        model.addTransition(waiting, running, ready::get, "start");
+        model.addTransition(running, done, Transition.ALWAYS, "finish");
+        return model;
+    }
+
+    @Test
+    void testIdenticalTopologiesShareOneModel_success() {
+        final var interner = new TopologyInterner<String>();
+        final var ready = new AtomicBoolean(true);
+        final var blocked = new AtomicBoolean(false);
+        final var first = interner.intern(entityModel(ready));
+        final var second = interner.intern(entityModel(blocked));
+
+        assertSame(first.model(), second.model());
+        assertEquals(1, interner.size());
+
+        final var start = first.createToken("waiting");
+        assertEquals("done", first.execute(start).state().id());
+        assertEquals("waiting", second.execute(start).state().id());
+        blocked.set(true);
+        assertEquals("done", second.execute(start, null).state().id());
+    }
+
+    @Test
+    void testDifferentTopologies_success() {
+        final var interner = new TopologyInterner<String>();
+        final var first = interner.intern(entityModel(new AtomicBoolean()));
+        final var other = entityModel(new AtomicBoolean());
+        other.addTransition(other.state(2), other.state(0), () -> false, "restart");
+        final var second = interner.intern(other);
+
+        assertNotSame(first.model(), second.model());
+        assertEquals(2, interner.size());
+        assertThrows(IllegalArgumentException.class, () -> first.createToken("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> first.execute(second.createToken("waiting")));
+    }
+
+    @Test
+    void testListenersReceiveCallerContext_success() {
+        final var interner = new TopologyInterner<String>();
+        final var interned = interner.intern(entityModel(new AtomicBoolean(true)));
+        final var contexts = new ArrayList<Object>();
+        interned.model().addTransitionListener((transition, context) -> contexts.add(context));
+
+        interned.execute(interned.createToken("waiting"), "order-17");
+
+        assertEquals(List.of("order-17", "order-17"), contexts);
+    }
+
+    @Test
+    void testExecuteSharedModelDirectly_failure() {
+        final var interner = new TopologyInterner<String>();
+        final var interned = interner.intern(entityModel(new AtomicBoolean(true)));
+        final var token = interned.createToken("waiting");
+
+        final var exception = assertThrows(IllegalStateException.class, () -> StateMachine.execute(token, "order-17"));
+        assertTrue(exception.getMessage().contains("InternedModel"));
+    }
+}
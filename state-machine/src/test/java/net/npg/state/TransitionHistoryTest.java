@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitionHistoryTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    /// A cycle a -> b -> c -> a, every guard reads the context as the number of remaining hops.
+    private static StateModel<String> createModel() {
+        final var model = new StateModel<>("cycle");
+        final var a = model.addState("a");
+        final var b = model.addState("b");
+        final var c = model.addState("c");
+        model.<Hops>addTransition(a, b, Hops::take, "ab");
+        model.<Hops>addTransition(b, c, Hops::take, "bc");
+        model.<Hops>addTransition(c, a, Hops::take, "ca");
+        return model;
+    }
+
+    private static final class Hops {
+        private int remaining;
+
+        private Hops(final int remaining) {
+            this.remaining = remaining;
+        }
+
+        private boolean take() {
+            return remaining-- > 0;
+        }
+    }
+
+    private List<String> ids(final List<HistoryEntry<String>> entries) {
+        return entries.stream().map(entry -> entry.transition().id()).toList();
+    }
+
+    @Test
+    void testLastTransitions_success() {
+        final var model = createModel();
+        try (final var population = new TokenPopulation<>(model, 2)) {
+            assertThrows(IllegalStateException.class, () -> population.lastTransitions(0, 1));
+            population.recordHistory(4, clock::incrementAndGet);
+            assertEquals(4, population.historyDepth());
+            population.set(0, model.state(0));
+            population.set(1, model.state(0));
+
+            StateMachine.execute(population, 0, new Hops(2));
+            assertEquals(List.of("ab", "bc"), ids(population.lastTransitions(0, 10)));
+            assertEquals(List.of("bc"), ids(population.lastTransitions(0, 1)));
+            assertEquals(List.of(), population.lastTransitions(1, 10));
+
+            StateMachine.execute(population, 0, new Hops(4));
+            assertEquals(List.of("ca", "ab", "bc", "ca"), ids(population.lastTransitions(0, 10)), "the oldest entries are overwritten");
+            assertEquals(List.of(3L, 4L, 5L, 6L), population.lastTransitions(0, 4).stream().map(HistoryEntry::time).toList());
+
+            population.clear(0);
+            assertEquals(List.of(), population.lastTransitions(0, 10));
+        }
+    }
+
+    @Test
+    void testTransitionsSince_success() {
+        final var model = createModel();
+        try (final var population = new TokenPopulation<>(model, 1)) {
+            population.recordHistory(8, clock::incrementAndGet);
+            population.set(0, model.state(0));
+            StateMachine.execute(population, 0, new Hops(3));
+            clock.addAndGet(100);
+            StateMachine.execute(population, 0, new Hops(2));
+
+            assertEquals(List.of("ab", "bc"), ids(population.transitionsSince(0, 100)));
+            assertEquals(5, population.transitionsSince(0, 0).size());
+            assertEquals(List.of(), population.transitionsSince(0, 1_000));
+            assertThrows(IllegalArgumentException.class, () -> population.recordHistory(0, clock::get));
+            assertThrows(IllegalStateException.class, () -> population.recordHistory(8, clock::get));
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static net.npg.state.Ids.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitionPublisherTest {
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<TransitionEvent<SimpleIdentifier>> {
+        final List<TransitionEvent<SimpleIdentifier>> events = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final TransitionEvent<SimpleIdentifier> item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static StateModel<SimpleIdentifier> createModel() {
+        final var model = new StateModel<>(MODEL_ID);
+        final var state1 = model.addState(ID1);
+        final var state2 = model.addState(ID2);
+        model.addTransition(state1, state2, (String c) -> c.startsWith("go"), TRANS_ID);
+        return model;
+    }
+
+    @Test
+    void testPublishWithDemand_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        model.addTransitionListener(publisher);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        final var start = model.state(0);
+        StateMachine.execute(model.createToken(start), "go1");
+        StateMachine.execute(model.createToken(start), "go2");
+        assertTrue(subscriber.events.isEmpty());
+
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.events.size());
+        assertEquals("go1", subscriber.events.getFirst().context());
+        assertSame(model.transition(0), subscriber.events.getFirst().transition());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(2, subscriber.events.size());
+
+        publisher.close();
+        assertTrue(subscriber.completed);
+        assertEquals(0, publisher.subscriberCount());
+    }
+
+    @Test
+    void testDropOldest_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, 2, TransitionPublisher.OverflowPolicy.DROP_OLDEST);
+        final var transition = model.transition(0);
+
+        publisher.onTransition(transition, "a");
+        publisher.onTransition(transition, "b");
+        publisher.onTransition(transition, "c");
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of("b", "c"), subscriber.events.stream().map(TransitionEvent::context).toList());
+        assertEquals(1, publisher.droppedEvents());
+    }
+
+    @Test
+    void testDropNewest_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, 2, TransitionPublisher.OverflowPolicy.DROP_NEWEST);
+        final var transition = model.transition(0);
+
+        publisher.onTransition(transition, "a");
+        publisher.onTransition(transition, "b");
+        publisher.onTransition(transition, "c");
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of("a", "b"), subscriber.events.stream().map(TransitionEvent::context).toList());
+    }
+
+    @Test
+    void testCoalesce_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, 2, TransitionPublisher.OverflowPolicy.COALESCE);
+        final var transition = model.transition(0);
+
+        publisher.onTransition(transition, "a");
+        publisher.onTransition(transition, "b");
+        publisher.onTransition(transition, "a");
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of("b", "a"), subscriber.events.stream().map(TransitionEvent::context).toList());
+    }
+
+    @Test
+    void testCoalesceEqualContexts_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, 2, TransitionPublisher.OverflowPolicy.COALESCE);
+        final var transition = model.transition(0);
+
+        publisher.onTransition(transition, new String("a"));
+        publisher.onTransition(transition, null);
+        publisher.onTransition(transition, new String("a"));
+        publisher.onTransition(transition, null);
+        subscriber.subscription.request(10);
+
+        assertEquals(Arrays.asList("a", null), subscriber.events.stream().map(TransitionEvent::context).toList());
+        assertEquals(2, publisher.droppedEvents());
+    }
+
+    @Test
+    void testCoalesceByKey_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16, event -> ((String) event.context()).charAt(0));
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, 2, TransitionPublisher.OverflowPolicy.COALESCE);
+        final var transition = model.transition(0);
+
+        publisher.onTransition(transition, "a1");
+        publisher.onTransition(transition, "b1");
+        publisher.onTransition(transition, "a2");
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of("b1", "a2"), subscriber.events.stream().map(TransitionEvent::context).toList());
+    }
+
+    @Test
+    void testInvalidRequest_fail() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        assertEquals(0, publisher.subscriberCount());
+    }
+
+    @Test
+    void testCancel_success() {
+        final var model = createModel();
+        final var publisher = new TransitionPublisher<>(model, Runnable::run, 16);
+        final var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(10);
+        subscriber.subscription.cancel();
+
+        publisher.onTransition(model.transition(0), "a");
+
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(0, publisher.subscriberCount());
+    }
+}
@@ -20,6 +20,8 @@ package net.npg.state;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.function.BooleanSupplier;
+
 import static net.npg.state.Ids.*;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,6 +42,22 @@ class TransitionTest {
         assertFalse(transition.canTraverse());
     }
 
+    @Test
+    void testTransitionWithContextGuard_success() {
+        final var transition = new Transition<>(TRANS_ID, STATE1, STATE2, "go"::equals, 0);
+        assertTrue(transition.canTraverse("go"));
+        assertFalse(transition.canTraverse("stop"));
+        assertFalse(transition.canTraverse());
+    }
+
+    @Test
+    void testGuardSupplier_success() {
+        final BooleanSupplier guard = () -> true;
+        assertSame(guard, new Transition<>(TRANS_ID, STATE1, STATE2, guard).guardSupplier());
+        final var transition = new Transition<>(TRANS_ID, STATE1, STATE2, context -> context == null, 0);
+        assertTrue(transition.guardSupplier().getAsBoolean());
+    }
+
     @Test
     void testTransitionWithNullSource_fail() {
         final var target = new State<>(ID1);
@@ -52,4 +70,25 @@ class TransitionTest {
         final var target = new State<>(ID2);
         assertThrows(NullPointerException.class, () -> new Transition<>(TRANS_ID, source, target, null));
     }
+
+    @Test
+    void testEqualityIgnoresGuard_success() {
+        final var transition1 = new Transition<>(TRANS_ID, STATE1, STATE2, () -> true, 0);
+        final var transition2 = new Transition<>(TRANS_ID, STATE1, STATE2, () -> false, 0);
+        assertEquals(transition1, transition2);
+        assertEquals(transition1.hashCode(), transition2.hashCode());
+    }
+
+    @Test
+    void testEqualityUsesOrdinal_fail() {
+        final BooleanSupplier guard = () -> true;
+        final var transition1 = new Transition<>(TRANS_ID, STATE1, STATE2, guard, 0);
+        final var transition2 = new Transition<>(TRANS_ID, STATE1, STATE2, guard, 1);
+        assertNotEquals(transition1, transition2);
+    }
+
+    @Test
+    void testTransitionWithInvalidOrdinal_fail() {
+        assertThrows(IllegalArgumentException.class, () -> new Transition<>(TRANS_ID, STATE1, STATE2, () -> true, -2));
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2025 Roland Spatzenegger
+ * This file is part of StateMachine.
+ *
+ * StateMachine is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * StateMachine is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with StateMachine. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package net.npg.state;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/// A [GuardKernel] which compares as many rows at once as the CPU supports, using the Vector API.
+///
+/// This class is only loaded if the module `jdk.incubator.vector` is present, see
+/// [BatchGuardEvaluator]. The remaining rows are evaluated by scalar code.
+final class VectorGuardKernel implements GuardKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void evaluate(final GuardExpression expression, final double[][] columns, final int count, final boolean[] result) {
+        final var bound = SPECIES.loopBound(count);
+        var row = 0;
+        for (; row < bound; row += SPECIES.length()) {
+            mask(expression, columns, row).intoArray(result, row);
+        }
+        for (; row < count; row++) {
+            result[row] = expression.evaluate(columns, row);
+        }
+    }
+
+    private static VectorMask<Double> mask(final GuardExpression expression, final double[][] columns, final int row) {
+        return switch (expression) {
+            case GuardExpression.Comparison comparison -> DoubleVector.fromArray(SPECIES, columns[comparison.field()], row)
+                    .compare(operator(comparison.operator()), comparison.constant());
+            case GuardExpression.And and -> mask(and.left(), columns, row).and(mask(and.right(), columns, row));
+            case GuardExpression.Or or -> mask(or.left(), columns, row).or(mask(or.right(), columns, row));
+        };
+    }
+
+    private static VectorOperators.Comparison operator(final GuardExpression.Operator operator) {
+        return switch (operator) {
+            case LT -> VectorOperators.LT;
+            case LE -> VectorOperators.LE;
+            case GT -> VectorOperators.GT;
+            case GE -> VectorOperators.GE;
+            case EQ -> VectorOperators.EQ;
+            case NE -> VectorOperators.NE;
+        };
+    }
+}